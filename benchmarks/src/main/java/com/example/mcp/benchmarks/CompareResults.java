@@ -0,0 +1,78 @@
+package com.example.mcp.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares two JMH result files written with {@code -rf json}, printing the score and normalised allocation
+ * ({@code gc.alloc.rate.norm}, present when run with {@code -prof gc}) of every benchmark in both runs.
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.example.mcp.benchmarks.CompareResults baseline.json candidate.json
+ * </pre>
+ */
+public final class CompareResults {
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    private CompareResults() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: CompareResults <baseline.json> <candidate.json>");
+            System.exit(2);
+        }
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, JsonNode> baseline = index(mapper.readTree(Path.of(args[0]).toFile()));
+        Map<String, JsonNode> candidate = index(mapper.readTree(Path.of(args[1]).toFile()));
+
+        System.out.printf(Locale.ROOT, "%-70s %14s %14s %9s %14s %14s %9s%n", "Benchmark", "Baseline", "Candidate",
+                "Change", "Alloc B/op", "Alloc B/op", "Change");
+        for (Map.Entry<String, JsonNode> entry : candidate.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) {
+                continue;
+            }
+            JsonNode after = entry.getValue();
+            double beforeScore = before.path("primaryMetric").path("score").asDouble();
+            double afterScore = after.path("primaryMetric").path("score").asDouble();
+            double beforeAlloc = allocation(before);
+            double afterAlloc = allocation(after);
+            System.out.printf(Locale.ROOT, "%-70s %14.3f %14.3f %8.1f%% %14.1f %14.1f %8.1f%%  %s%n",
+                    entry.getKey(), beforeScore, afterScore, change(beforeScore, afterScore),
+                    beforeAlloc, afterAlloc, change(beforeAlloc, afterAlloc),
+                    after.path("primaryMetric").path("scoreUnit").asText());
+        }
+    }
+
+    private static Map<String, JsonNode> index(JsonNode results) {
+        Map<String, JsonNode> indexed = new LinkedHashMap<>();
+        for (JsonNode result : results) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText()
+                    .replace("com.example.mcp.benchmarks.", ""));
+            JsonNode params = result.path("params");
+            for (Iterator<Map.Entry<String, JsonNode>> it = params.fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> param = it.next();
+                key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+            indexed.put(key.toString(), result);
+        }
+        return indexed;
+    }
+
+    private static double allocation(JsonNode result) {
+        JsonNode metric = result.path("secondaryMetrics").path(ALLOCATION);
+        return metric.isMissingNode() ? Double.NaN : metric.path("score").asDouble();
+    }
+
+    private static double change(double before, double after) {
+        return before == 0 ? Double.NaN : (after - before) * 100.0 / before;
+    }
+}
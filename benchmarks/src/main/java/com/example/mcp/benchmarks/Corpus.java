@@ -0,0 +1,128 @@
+package com.example.mcp.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Deterministic SQL and source corpora shared by the benchmarks. Every generator is seeded so runs on different
+ * branches measure exactly the same input.
+ */
+public final class Corpus {
+    public static final String SHORT_SQL = "SELECT u.id, u.name FROM users u WHERE u.id = :id AND u.status = ?1";
+
+    private static final String[] FUNCTIONS = {"NVL(%s, 0)", "DECODE(%s, 1, 'Y', 'N')", "UPPER(%s)", "%s"};
+
+    private Corpus() {
+    }
+
+    /**
+     * {@code short}: one-line lookup; {@code long}: a reporting query of several kilobytes with joins, Oracle
+     * functions, comments, literals and many named, positional and collection parameters.
+     */
+    public static String sql(String shape) {
+        return switch (shape) {
+            case "short" -> SHORT_SQL;
+            case "long" -> longSql(40, 12);
+            default -> throw new IllegalArgumentException("Unknown SQL shape: " + shape);
+        };
+    }
+
+    public static String longSql(int columns, int joins) {
+        Random random = new Random(42);
+        StringBuilder sql = new StringBuilder("SELECT /* report */ ");
+        for (int i = 0; i < columns; i++) {
+            if (i > 0) {
+                sql.append(",\n       ");
+            }
+            String column = "t" + random.nextInt(joins) + ".c" + random.nextInt(10);
+            sql.append(String.format(FUNCTIONS[i % FUNCTIONS.length], column)).append(" AS col").append(i);
+        }
+        sql.append("\n  FROM t0");
+        for (int i = 1; i < joins; i++) {
+            sql.append("\n  LEFT JOIN t").append(i).append(" ON t").append(i).append(".id = t").append(i - 1)
+                    .append(".c1 -- join ").append(i);
+        }
+        sql.append("\n WHERE t0.status = :status\n   AND t0.created_at > SYSDATE - :days");
+        for (int i = 0; i < joins; i++) {
+            sql.append("\n   AND (t").append(i).append(".c2 IN (:ids").append(i).append(") OR t").append(i)
+                    .append(".c3 = ?").append(i + 1).append(" OR t").append(i).append(".c4 = 'it''s :not_a_param')");
+        }
+        sql.append("\n   AND ROWNUM <= 100\nMINUS\nSELECT * FROM archived WHERE id = :id");
+        return sql.toString();
+    }
+
+    /**
+     * Repository interface whose native queries are Java text blocks.
+     */
+    public static String textBlockRepository(int methods) {
+        StringBuilder source = header("TextBlockRepository");
+        for (int i = 0; i < methods; i++) {
+            source.append("    @Query(value = \"\"\"\n");
+            for (String line : longSql(8, 3).split("\n")) {
+                source.append("            ").append(line).append('\n');
+            }
+            source.append("            \"\"\", nativeQuery = true)\n");
+            source.append("    List<Object[]> report").append(i).append("(@Param(\"status\") String status);\n\n");
+        }
+        return source.append("}\n").toString();
+    }
+
+    /**
+     * Repository interface mixing native queries, JPQL queries and unrelated annotations.
+     */
+    public static String manyAnnotationsRepository(int methods) {
+        StringBuilder source = header("ManyAnnotationsRepository");
+        for (int i = 0; i < methods; i++) {
+            switch (i % 3) {
+                case 0 -> source.append("    @Query(value = \"SELECT * FROM users WHERE id = :id AND NVL(status, 0) = ?1\", ")
+                        .append("nativeQuery = true)\n");
+                case 1 -> source.append("    @Query(\"select u from User u where u.name = :name\")\n");
+                default -> source.append("    @Transactional(readOnly = true)\n    @Modifying\n");
+            }
+            source.append("    List<User> find").append(i).append("(String name, Long id);\n\n");
+        }
+        return source.append("}\n").toString();
+    }
+
+    /**
+     * Repository interface without any query annotation, the common case in a large code base.
+     */
+    public static String plainSource(int methods) {
+        StringBuilder source = header("PlainService");
+        for (int i = 0; i < methods; i++) {
+            source.append("    /** Returns the value ").append(i).append(". */\n");
+            source.append("    default int value").append(i).append("() {\n        return ").append(i)
+                    .append(";\n    }\n\n");
+        }
+        return source.append("}\n").toString();
+    }
+
+    /**
+     * DDL for {@code tables} tables named {@code t0..tN} with ten columns and two indexes each.
+     */
+    public static String initSchema(int tables) {
+        StringBuilder ddl = new StringBuilder();
+        for (int i = 0; i < tables; i++) {
+            ddl.append("CREATE TABLE t").append(i).append(" (id BIGINT PRIMARY KEY, status VARCHAR(20), ")
+                    .append("created_at TIMESTAMP");
+            for (int c = 0; c < 10; c++) {
+                ddl.append(", c").append(c).append(c % 2 == 0 ? " BIGINT" : " VARCHAR(100)");
+            }
+            ddl.append(");\n");
+            ddl.append("CREATE INDEX ix_t").append(i).append("_status ON t").append(i).append(" (status);\n");
+            ddl.append("CREATE INDEX ix_t").append(i).append("_c1 ON t").append(i).append(" (c1, c2);\n");
+        }
+        return ddl.toString();
+    }
+
+    private static StringBuilder header(String name) {
+        return new StringBuilder("""
+                package com.example.repository;
+
+                import java.util.List;
+                import org.springframework.data.jpa.repository.Query;
+
+                public interface %s {
+
+                """.formatted(name));
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.mcp.benchmarks;
+
+import com.example.mcp.tools.H2PrepareTool;
+import com.example.mcp.util.H2SchemaCache;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code h2.prepare} against an init schema of {@code tables} tables: a warm call on the cached schema, and the
+ * one-off cost of building the schema from its init script.
+ */
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class H2PrepareBenchmark {
+    @Param({"10", "500"})
+    public int tables;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private Path initScript;
+    private H2SchemaCache schemaCache;
+    private H2PrepareTool tool;
+    private ObjectNode validArguments;
+    private ObjectNode invalidArguments;
+
+    @Setup
+    public void setUp() throws IOException {
+        initScript = Files.createTempFile("bench-schema", ".sql");
+        Files.writeString(initScript, Corpus.initSchema(tables), StandardCharsets.UTF_8);
+        schemaCache = new H2SchemaCache();
+        tool = new H2PrepareTool(mapper, schemaCache);
+        validArguments = arguments("SELECT t1.c1, t2.c3 FROM t1 JOIN t2 ON t2.id = t1.c2 WHERE t1.status = ?");
+        invalidArguments = arguments("SELECT c1 FROM t1 WHERE status = ? CONNECT BY PRIOR id = c2");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        schemaCache.clear();
+        Files.deleteIfExists(initScript);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public JsonNode prepareValid() throws Exception {
+        return tool.call(validArguments);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public JsonNode prepareInvalid() throws Exception {
+        return tool.call(invalidArguments);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean initSchema() throws SQLException, IOException {
+        H2SchemaCache coldCache = new H2SchemaCache();
+        try (H2SchemaCache.Schema schema = coldCache.acquire(
+                "jdbc:h2:mem:bench;MODE=Oracle", "sa", "", List.of(initScript))) {
+            return schema.cached();
+        } finally {
+            // Closes the in-memory database so every invocation starts from scratch.
+            coldCache.clear();
+        }
+    }
+
+    private ObjectNode arguments(String sql) {
+        ObjectNode arguments = mapper.createObjectNode();
+        arguments.put("sql", sql);
+        arguments.putArray("initSqlPaths").add(initScript.toString());
+        return arguments;
+    }
+}
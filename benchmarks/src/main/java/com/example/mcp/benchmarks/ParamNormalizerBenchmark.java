@@ -0,0 +1,39 @@
+package com.example.mcp.benchmarks;
+
+import com.example.mcp.util.ParamNormalizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParamNormalizerBenchmark {
+    @Param({"short", "long"})
+    public String shape;
+
+    private String sql;
+
+    @Setup
+    public void setUp() {
+        sql = Corpus.sql(shape);
+    }
+
+    @Benchmark
+    public ParamNormalizer.Result normalize() {
+        return ParamNormalizer.normalize(sql);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.mcp.benchmarks;
+
+import com.example.mcp.model.QueryItem;
+import com.example.mcp.util.QueryExtractor;
+import com.example.mcp.util.RuleEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extraction of one file from disk (read, decode, annotation scan, normalisation and rule matching). The file sits
+ * in the page cache after the first iteration, so this measures CPU and allocation rather than disk.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryExtractorBenchmark {
+    @Param({"textBlocks", "manyAnnotations", "plain"})
+    public String source;
+
+    @Param({"50"})
+    public int methods;
+
+    private final QueryExtractor extractor = new QueryExtractor(new RuleEngine());
+    private Path directory;
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        String content = switch (source) {
+            case "textBlocks" -> Corpus.textBlockRepository(methods);
+            case "manyAnnotations" -> Corpus.manyAnnotationsRepository(methods);
+            case "plain" -> Corpus.plainSource(methods);
+            default -> throw new IllegalArgumentException("Unknown source: " + source);
+        };
+        directory = Files.createTempDirectory("extractor-bench");
+        file = directory.resolve("Repository.java");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public List<QueryItem> extract() throws IOException {
+        return extractor.extract(file, "Repository.java");
+    }
+}
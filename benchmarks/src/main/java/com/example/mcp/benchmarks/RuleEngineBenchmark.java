@@ -0,0 +1,60 @@
+package com.example.mcp.benchmarks;
+
+import com.example.mcp.model.RuleHit;
+import com.example.mcp.util.ParamNormalizer;
+import com.example.mcp.util.RuleEngine;
+import com.example.mcp.util.SqlTokens;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RuleEngineBenchmark {
+    @Param({"short", "long"})
+    public String shape;
+
+    private final RuleEngine ruleEngine = new RuleEngine();
+    private final ParamNormalizer.Spans spans = new ParamNormalizer.Spans();
+    private String sql;
+
+    @Setup
+    public void setUp() {
+        sql = Corpus.sql(shape);
+    }
+
+    @Benchmark
+    public List<RuleHit> findHits() {
+        return ruleEngine.findHits(sql);
+    }
+
+    @Benchmark
+    public RuleEngine.RewriteResult rewrite() {
+        return ruleEngine.rewrite(sql);
+    }
+
+    /**
+     * What a scan does per query: one lexing pass shared by the normalizer and the rule engine.
+     */
+    @Benchmark
+    public List<RuleHit> normalizeAndFindHits() {
+        SqlTokens tokens = SqlTokens.of(sql);
+        ParamNormalizer.normalize(tokens, spans);
+        return ruleEngine.findHits(tokens);
+    }
+}
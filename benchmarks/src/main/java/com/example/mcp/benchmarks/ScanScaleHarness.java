@@ -0,0 +1,133 @@
+package com.example.mcp.benchmarks;
+
+import com.example.mcp.tools.JpaListNativeQueriesTool;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * End-to-end scale test of {@code jpa.list_native_queries} over synthetic repositories.
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.example.mcp.benchmarks.ScanScaleHarness \
+ *     [--sizes 1000,10000,100000] [--runs 3] [--dir /tmp/h2-sql-mcp-scan] [--keep]
+ * </pre>
+ *
+ * <p>Each size is generated once under {@code --dir} and scanned {@code --runs} times. For every run it reports
+ * files/sec, queries/sec, peak heap (sum of the heap pools' peak usage during the full call) and time to first
+ * result, measured as the latency of the same scan with {@code limit: 1}, which stops at the first query found.</p>
+ */
+public final class ScanScaleHarness {
+    private ScanScaleHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<Integer> sizes = List.of(1_000, 10_000, 100_000);
+        int runs = 3;
+        Path directory = Path.of(System.getProperty("java.io.tmpdir"), "h2-sql-mcp-scan");
+        boolean keep = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--sizes" -> sizes = parseSizes(args[++i]);
+                case "--runs" -> runs = Integer.parseInt(args[++i]);
+                case "--dir" -> directory = Path.of(args[++i]);
+                case "--keep" -> keep = true;
+                default -> throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+
+        ObjectMapper mapper = new ObjectMapper();
+        JpaListNativeQueriesTool tool = new JpaListNativeQueriesTool(mapper);
+        System.out.printf(Locale.ROOT, "%8s %4s %10s %12s %12s %12s %10s %10s%n",
+                "files", "run", "millis", "files/s", "queries/s", "peakHeapMB", "firstMs", "queries");
+        for (int size : sizes) {
+            Path root = directory.resolve("repo-" + size);
+            SyntheticRepositoryGenerator.Summary summary = prepare(root, size);
+            ObjectNode arguments = mapper.createObjectNode();
+            arguments.putArray("rootDirs").add(root.toString());
+            arguments.putArray("excludeGlobs").add("**/target/**").add("**/build/**");
+            for (int run = 1; run <= runs; run++) {
+                Measurement measurement = measure(tool, arguments);
+                int queries = measurement.result().path("queries").size();
+                if (queries != summary.expectedQueries()) {
+                    System.err.printf("Expected %d queries but found %d%n", summary.expectedQueries(), queries);
+                }
+                double seconds = measurement.nanos() / 1e9;
+                System.out.printf(Locale.ROOT, "%8d %4d %10.1f %12.0f %12.0f %12.1f %10.1f %10d%n",
+                        size, run, measurement.nanos() / 1e6, summary.sourceFiles() / seconds, queries / seconds,
+                        measurement.peakHeapBytes() / (1024.0 * 1024.0), measurement.firstResultNanos() / 1e6,
+                        queries);
+            }
+            if (!keep) {
+                delete(root);
+            }
+        }
+    }
+
+    private static SyntheticRepositoryGenerator.Summary prepare(Path root, int size) throws IOException {
+        if (Files.exists(root)) {
+            delete(root);
+        }
+        long start = System.nanoTime();
+        SyntheticRepositoryGenerator.Summary summary =
+                SyntheticRepositoryGenerator.generate(root, SyntheticRepositoryGenerator.Options.defaults(size));
+        System.out.printf(Locale.ROOT, "# generated %d source + %d excluded files (%.1f MB, %d native queries) in %.1f s%n",
+                summary.sourceFiles(), summary.excludedFiles(), summary.bytes() / (1024.0 * 1024.0),
+                summary.expectedQueries(), (System.nanoTime() - start) / 1e9);
+        return summary;
+    }
+
+    private static Measurement measure(JpaListNativeQueriesTool tool, ObjectNode arguments) throws Exception {
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+        long start = System.nanoTime();
+        JsonNode result = tool.call(arguments);
+        long nanos = System.nanoTime() - start;
+        long peak = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        ObjectNode firstOnly = arguments.deepCopy();
+        firstOnly.put("limit", 1);
+        long firstStart = System.nanoTime();
+        tool.call(firstOnly);
+        long firstResultNanos = System.nanoTime() - firstStart;
+        return new Measurement(result, nanos, firstResultNanos, peak);
+    }
+
+    private static List<Integer> parseSizes(String value) {
+        List<Integer> sizes = new ArrayList<>();
+        for (String part : value.split(",")) {
+            sizes.add(Integer.parseInt(part.trim()));
+        }
+        return sizes;
+    }
+
+    private static void delete(Path root) throws IOException {
+        try (var stream = Files.walk(root)) {
+            for (Path path : stream.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private record Measurement(JsonNode result, long nanos, long firstResultNanos, long peakHeapBytes) {
+    }
+}
@@ -0,0 +1,361 @@
+package com.example.mcp.benchmarks;
+
+import com.example.mcp.util.LatencyHistogram;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Load and soak test of the server through its stdio transport.
+ *
+ * <p>Starts the shaded jar as a child process, initialises an MCP session over newline-delimited JSON-RPC on its
+ * stdin/stdout, and drives a weighted mix of {@code tools/call} requests from several client threads, optionally
+ * paced to a fixed total rate. Every interval and at the end it reports end-to-end latency percentiles and throughput
+ * per operation, the child's resident set size and the GC pauses from its {@code -Xlog:gc} file. A steadily growing
+ * RSS or GC pause total over a long soak run points at a leak.</p>
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.example.mcp.benchmarks.StdioLoadHarness \
+ *     [--jar target/h2-sql-mcp-0.1.0.jar] [--duration 60] [--concurrency 8] [--rate 0] [--interval 10] \
+ *     [--mix rewrite=50,prepare=30,report=10,scan=10] [--scanFiles 200] [--jvmArgs "-Xmx512m"]
+ * </pre>
+ */
+public final class StdioLoadHarness {
+    private static final Pattern GC_PAUSE = Pattern.compile("Pause.*?(\\d+(?:\\.\\d+)?)ms\\s*$");
+    private static final Pattern VM_RSS = Pattern.compile("VmRSS:\\s+(\\d+) kB");
+    private static final long CALL_TIMEOUT_SECONDS = 120;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<Long, CompletableFuture<JsonNode>> pending = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final Map<String, Operation> operations = new LinkedHashMap<>();
+    private Process process;
+    private OutputStream stdin;
+
+    private StdioLoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path jar = Path.of("target/h2-sql-mcp-0.1.0.jar");
+        long durationSeconds = 60;
+        int concurrency = 8;
+        double rate = 0;
+        long intervalSeconds = 10;
+        String mix = "rewrite=50,prepare=30,report=10,scan=10";
+        int scanFiles = 200;
+        List<String> jvmArgs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--jar" -> jar = Path.of(args[++i]);
+                case "--duration" -> durationSeconds = Long.parseLong(args[++i]);
+                case "--concurrency" -> concurrency = Integer.parseInt(args[++i]);
+                case "--rate" -> rate = Double.parseDouble(args[++i]);
+                case "--interval" -> intervalSeconds = Long.parseLong(args[++i]);
+                case "--mix" -> mix = args[++i];
+                case "--scanFiles" -> scanFiles = Integer.parseInt(args[++i]);
+                case "--jvmArgs" -> jvmArgs.addAll(List.of(args[++i].trim().split("\\s+")));
+                default -> throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        new StdioLoadHarness().run(jar, durationSeconds, concurrency, rate, intervalSeconds, mix, scanFiles, jvmArgs);
+    }
+
+    private void run(Path jar, long durationSeconds, int concurrency, double rate, long intervalSeconds, String mix,
+                     int scanFiles, List<String> jvmArgs) throws Exception {
+        // The server writes its log and report files next to the jar, so run a copy in a scratch directory.
+        Path workDirectory = Files.createTempDirectory("h2-sql-mcp-load");
+        Path serverJar = Files.copy(jar, workDirectory.resolve(jar.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+        Path gcLog = workDirectory.resolve("gc.log");
+        Path scanRoot = workDirectory.resolve("repo");
+        SyntheticRepositoryGenerator.generate(scanRoot, SyntheticRepositoryGenerator.Options.defaults(scanFiles));
+        configureOperations(mix, scanRoot);
+
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-Xlog:gc:file=" + gcLog + ":uptime");
+        command.add("-jar");
+        command.add(serverJar.toString());
+        process = new ProcessBuilder(command)
+                .directory(workDirectory.toFile())
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        stdin = process.getOutputStream();
+        Thread reader = new Thread(this::readResponses, "load-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        long startupStart = System.nanoTime();
+        call("initialize", mapper.createObjectNode()
+                .put("protocolVersion", "2024-11-05")
+                .set("clientInfo", mapper.createObjectNode().put("name", "load-harness").put("version", "1")))
+                .get(60, TimeUnit.SECONDS);
+        send(mapper.createObjectNode().put("jsonrpc", "2.0").put("method", "notifications/initialized"));
+        System.out.printf(Locale.ROOT, "# server %s ready in %.0f ms (pid %d, work dir %s)%n", jar,
+                (System.nanoTime() - startupStart) / 1e6, process.pid(), workDirectory);
+
+        GcLog gc = new GcLog(gcLog);
+        long rssStart = rssKb();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+        long pacingNanos = rate > 0 ? (long) (1e9 / rate) : 0;
+        AtomicLong nextSlot = new AtomicLong(System.nanoTime());
+        List<Thread> clients = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            Random random = new Random(i);
+            Thread client = new Thread(() -> drive(random, deadline, pacingNanos, nextSlot), "load-client-" + i);
+            client.setDaemon(true);
+            clients.add(client);
+            client.start();
+        }
+
+        long maxRss = rssStart;
+        long intervalStart = System.nanoTime();
+        while (System.nanoTime() < deadline) {
+            long sleep = Math.min(TimeUnit.SECONDS.toNanos(intervalSeconds), deadline - System.nanoTime());
+            TimeUnit.NANOSECONDS.sleep(Math.max(0, sleep));
+            long rss = rssKb();
+            maxRss = Math.max(maxRss, rss);
+            gc.update();
+            double elapsed = (System.nanoTime() - intervalStart) / 1e9;
+            intervalStart = System.nanoTime();
+            System.out.printf(Locale.ROOT, "# interval %.0fs: rss=%.1fMB gcPauses=%d gcPauseTotal=%.1fms%n",
+                    elapsed, rss / 1024.0, gc.pauses, gc.totalMillis);
+            report(operations, elapsed, true);
+        }
+        for (Thread client : clients) {
+            client.join(TimeUnit.SECONDS.toMillis(CALL_TIMEOUT_SECONDS));
+        }
+        long rssEnd = rssKb();
+        gc.update();
+
+        System.out.printf(Locale.ROOT, "%n# summary after %ds at concurrency %d%s%n", durationSeconds, concurrency,
+                rate > 0 ? String.format(Locale.ROOT, ", target rate %.1f/s", rate) : "");
+        report(operations, durationSeconds, false);
+        System.out.printf(Locale.ROOT, "rss start=%.1fMB end=%.1fMB max=%.1fMB%n",
+                rssStart / 1024.0, rssEnd / 1024.0, Math.max(maxRss, rssEnd) / 1024.0);
+        System.out.printf(Locale.ROOT, "gc pauses=%d total=%.1fms max=%.1fms%n", gc.pauses, gc.totalMillis,
+                gc.maxMillis);
+
+        stdin.close();
+        process.destroy();
+        if (!process.waitFor(15, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+    }
+
+    private void configureOperations(String mix, Path scanRoot) {
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.split("=");
+            String name = parts[0].trim();
+            int weight = Integer.parseInt(parts[1].trim());
+            ObjectNode arguments = mapper.createObjectNode();
+            String tool = switch (name) {
+                case "rewrite" -> {
+                    arguments.put("sql", "SELECT NVL(a, 0), SYSDATE FROM t WHERE id = :id MINUS SELECT 1 FROM DUAL");
+                    yield "sql.rewrite";
+                }
+                case "prepare" -> {
+                    arguments.put("sql", "SELECT COALESCE(NULL, 1) AS x FROM DUAL");
+                    yield "h2.prepare";
+                }
+                case "report" -> {
+                    arguments.put("sql", "SELECT * FROM users WHERE id = ?");
+                    arguments.put("diagnosis", "ok");
+                    yield "h2.prepare.report";
+                }
+                case "scan" -> {
+                    arguments.putArray("rootDirs").add(scanRoot.toString());
+                    yield "jpa.list_native_queries";
+                }
+                default -> throw new IllegalArgumentException("Unknown operation in mix: " + name);
+            };
+            operations.put(name, new Operation(name, tool, arguments, weight));
+        }
+    }
+
+    private void drive(Random random, long deadline, long pacingNanos, AtomicLong nextSlot) {
+        int totalWeight = operations.values().stream().mapToInt(Operation::weight).sum();
+        while (System.nanoTime() < deadline) {
+            if (pacingNanos > 0) {
+                long slot = nextSlot.getAndAdd(pacingNanos);
+                long wait = slot - System.nanoTime();
+                if (wait > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (System.nanoTime() >= deadline) {
+                    return;
+                }
+            }
+            Operation operation = pick(random, totalWeight);
+            ObjectNode params = mapper.createObjectNode().put("name", operation.tool());
+            params.set("arguments", operation.arguments());
+            long start = System.nanoTime();
+            boolean failed;
+            try {
+                JsonNode response = call("tools/call", params).get(CALL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                failed = response.has("error") || response.path("result").path("isError").asBoolean(false);
+            } catch (TimeoutException e) {
+                failed = true;
+            } catch (Exception e) {
+                return;
+            }
+            operation.record(System.nanoTime() - start, failed);
+        }
+    }
+
+    private Operation pick(Random random, int totalWeight) {
+        int value = random.nextInt(totalWeight);
+        for (Operation operation : operations.values()) {
+            value -= operation.weight();
+            if (value < 0) {
+                return operation;
+            }
+        }
+        throw new IllegalStateException("Empty operation mix");
+    }
+
+    private CompletableFuture<JsonNode> call(String method, ObjectNode params) throws IOException {
+        long id = nextId.getAndIncrement();
+        CompletableFuture<JsonNode> future = new CompletableFuture<>();
+        pending.put(id, future);
+        ObjectNode request = mapper.createObjectNode().put("jsonrpc", "2.0").put("id", id).put("method", method);
+        request.set("params", params);
+        send(request);
+        return future;
+    }
+
+    private void send(ObjectNode message) throws IOException {
+        byte[] line = (mapper.writeValueAsString(message) + "\n").getBytes(StandardCharsets.UTF_8);
+        synchronized (this) {
+            stdin.write(line);
+            stdin.flush();
+        }
+    }
+
+    private void readResponses() {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                JsonNode message = mapper.readTree(line);
+                if (message.has("id") && !message.has("method")) {
+                    CompletableFuture<JsonNode> future = pending.remove(message.get("id").asLong());
+                    if (future != null) {
+                        future.complete(message);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // The child went away; waiting callers time out.
+        }
+    }
+
+    private long rssKb() {
+        try {
+            String status = Files.readString(Path.of("/proc", Long.toString(process.pid()), "status"));
+            Matcher matcher = VM_RSS.matcher(status);
+            return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+        } catch (IOException e) {
+            // /proc is only available on Linux.
+            return -1;
+        }
+    }
+
+    private static void report(Map<String, Operation> operations, double seconds, boolean interval) {
+        System.out.printf(Locale.ROOT, "%-10s %8s %8s %10s %10s %10s %10s %10s%n",
+                "operation", "calls", "errors", "calls/s", "p50ms", "p90ms", "p99ms", "maxms");
+        for (Operation operation : operations.values()) {
+            LatencyHistogram histogram = interval ? operation.interval : operation.total;
+            LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+            long errors = interval ? operation.intervalErrors.sumThenReset() : operation.totalErrors.sum();
+            System.out.printf(Locale.ROOT, "%-10s %8d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+                    operation.name(), snapshot.count(), errors, snapshot.count() / seconds, snapshot.p50() / 1e6,
+                    snapshot.p90() / 1e6, snapshot.p99() / 1e6, snapshot.max() / 1e6);
+            if (interval) {
+                histogram.reset();
+            }
+        }
+    }
+
+    private record Operation(String name, String tool, ObjectNode arguments, int weight,
+                             LatencyHistogram total, LatencyHistogram interval,
+                             LongAdder totalErrors, LongAdder intervalErrors) {
+        Operation(String name, String tool, ObjectNode arguments, int weight) {
+            this(name, tool, arguments, weight, new LatencyHistogram(), new LatencyHistogram(), new LongAdder(),
+                    new LongAdder());
+        }
+
+        void record(long nanos, boolean failed) {
+            total.record(nanos);
+            interval.record(nanos);
+            if (failed) {
+                totalErrors.increment();
+                intervalErrors.increment();
+            }
+        }
+    }
+
+    /**
+     * Incrementally parses GC pause lines such as
+     * {@code [12.345s][info][gc] GC(7) Pause Young (Normal) (G1 Evacuation Pause) 24M->6M(256M) 3.210ms}.
+     */
+    private static final class GcLog {
+        private final Path file;
+        private long offset;
+        private long pauses;
+        private double totalMillis;
+        private double maxMillis;
+
+        private GcLog(Path file) {
+            this.file = file;
+        }
+
+        private void update() throws IOException {
+            if (Files.notExists(file)) {
+                return;
+            }
+            try (RandomAccessFile log = new RandomAccessFile(file.toFile(), "r")) {
+                log.seek(offset);
+                String line;
+                while ((line = log.readLine()) != null) {
+                    Matcher matcher = GC_PAUSE.matcher(line);
+                    if (matcher.find()) {
+                        double millis = Double.parseDouble(matcher.group(1));
+                        pauses++;
+                        totalMillis += millis;
+                        maxMillis = Math.max(maxMillis, millis);
+                    }
+                }
+                offset = log.getFilePointer();
+            }
+        }
+    }
+}
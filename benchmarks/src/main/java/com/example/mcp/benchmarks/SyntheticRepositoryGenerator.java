@@ -0,0 +1,144 @@
+package com.example.mcp.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Writes a deterministic synthetic source tree resembling a large Spring Data code base.
+ *
+ * <p>Files are spread over {@code depth} levels of package directories. A share of them are repositories with
+ * {@code @Query(nativeQuery = true)} methods, written either as text blocks or as concatenated string literals; the
+ * rest are plain classes or JPQL-only repositories. A further share of files goes into {@code target/} and
+ * {@code build/} directories, which a scan is expected to exclude. The same options and seed always produce the same
+ * tree.</p>
+ */
+public final class SyntheticRepositoryGenerator {
+
+    /**
+     * @param files          number of source files outside the build directories
+     * @param depth          package directory levels below the root
+     * @param nativeShare    share of files that declare native queries
+     * @param textBlockShare share of native-query files using text blocks instead of concatenated literals
+     * @param excludedShare  additional files, relative to {@code files}, written into build directories
+     * @param queriesPerFile native query methods per native-query file
+     * @param seed           random seed
+     */
+    public record Options(int files, int depth, double nativeShare, double textBlockShare, double excludedShare,
+                          int queriesPerFile, long seed) {
+
+        public static Options defaults(int files) {
+            return new Options(files, 6, 0.2, 0.5, 0.1, 4, 42L);
+        }
+    }
+
+    /**
+     * What was written; {@code expectedQueries} counts native queries outside the build directories.
+     */
+    public record Summary(Path root, int sourceFiles, int excludedFiles, int expectedQueries, long bytes) {
+    }
+
+    private SyntheticRepositoryGenerator() {
+    }
+
+    public static Summary generate(Path root, Options options) throws IOException {
+        Random random = new Random(options.seed());
+        int expectedQueries = 0;
+        long bytes = 0;
+        for (int i = 0; i < options.files(); i++) {
+            String className = "Generated" + i;
+            String content;
+            if (random.nextDouble() < options.nativeShare()) {
+                boolean textBlocks = random.nextDouble() < options.textBlockShare();
+                content = nativeRepository(className, options.queriesPerFile(), textBlocks, random);
+                expectedQueries += options.queriesPerFile();
+            } else if (random.nextBoolean()) {
+                content = jpqlRepository(className, options.queriesPerFile());
+            } else {
+                content = Corpus.plainSource(8).replace("PlainService", className);
+            }
+            bytes += write(root.resolve(packageDirectory(i, options.depth())).resolve(className + ".java"), content);
+        }
+        int excluded = (int) Math.round(options.files() * options.excludedShare());
+        for (int i = 0; i < excluded; i++) {
+            String className = "Generated" + i;
+            String buildDirectory = i % 2 == 0 ? "target/generated-sources" : "build/generated";
+            String content = nativeRepository(className, options.queriesPerFile(), false, random);
+            bytes += write(root.resolve("module" + (i % 8)).resolve(buildDirectory)
+                    .resolve(packageDirectory(i, 2)).resolve(className + ".java"), content);
+        }
+        return new Summary(root, options.files(), excluded, expectedQueries, bytes);
+    }
+
+    private static String packageDirectory(int index, int depth) {
+        StringBuilder directory = new StringBuilder("module" + (index % 8) + "/src/main/java/com/example");
+        int value = index;
+        for (int level = 0; level < depth; level++) {
+            directory.append("/p").append(value % 10);
+            value /= 10;
+        }
+        return directory.toString();
+    }
+
+    private static String nativeRepository(String className, int queries, boolean textBlocks, Random random) {
+        StringBuilder source = new StringBuilder("""
+                package com.example.generated;
+
+                import java.util.List;
+                import org.springframework.data.jpa.repository.Query;
+                import org.springframework.data.repository.query.Param;
+
+                public interface %s {
+
+                """.formatted(className));
+        for (int q = 0; q < queries; q++) {
+            String sql = Corpus.longSql(4 + random.nextInt(8), 1 + random.nextInt(4));
+            if (textBlocks) {
+                source.append("    @Query(value = \"\"\"\n");
+                for (String line : sql.split("\n")) {
+                    source.append("            ").append(line.replace("\\", "\\\\")).append('\n');
+                }
+                source.append("            \"\"\", nativeQuery = true)\n");
+            } else {
+                source.append("    @Query(value = ");
+                String[] lines = sql.split("\n");
+                for (int l = 0; l < lines.length; l++) {
+                    if (l > 0) {
+                        source.append("\n            + ");
+                    }
+                    source.append('"').append(lines[l].replace("\\", "\\\\").replace("\"", "\\\""))
+                            .append(l < lines.length - 1 ? " " : "").append('"');
+                }
+                source.append(", nativeQuery = true)\n");
+            }
+            source.append("    List<Object[]> query").append(q).append("(@Param(\"status\") String status);\n\n");
+        }
+        return source.append("}\n").toString();
+    }
+
+    private static String jpqlRepository(String className, int queries) {
+        StringBuilder source = new StringBuilder("""
+                package com.example.generated;
+
+                import java.util.List;
+                import org.springframework.data.jpa.repository.Query;
+
+                public interface %s {
+
+                """.formatted(className));
+        for (int q = 0; q < queries; q++) {
+            source.append("    @Query(\"select e from Entity e where e.id = :id\")\n");
+            source.append("    List<Object> find").append(q).append("(Long id);\n\n");
+        }
+        return source.append("}\n").toString();
+    }
+
+    private static long write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        Files.write(file, bytes);
+        return bytes.length;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.mcp;
+
+import io.modelcontextprotocol.json.TypeRef;
+import io.modelcontextprotocol.spec.McpSchema;
+import io.modelcontextprotocol.spec.McpServerSession;
+import io.modelcontextprotocol.spec.McpServerTransport;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Session that honours the client's {@code notifications/cancelled}, which the SDK session ignores.
+ *
+ * <p>Every {@code tools/call} is remembered by request id while it runs. A cancel notification for that id cancels
+ * the handling, which reaches the tool call's subscriber ({@link McpServer} then interrupts the tool) and, as the
+ * protocol asks, suppresses the response. All other work is delegated to the SDK session; the superclass state is
+ * never used.</p>
+ */
+final class CancellingSession extends McpServerSession {
+    private final McpServerSession delegate;
+    private final RunningCalls running = new RunningCalls();
+
+    CancellingSession(McpServerSession delegate, McpServerTransport transport) {
+        super(delegate.getId(), Duration.ZERO, transport,
+                initializeRequest -> Mono.error(new IllegalStateException("Handled by the wrapped session")),
+                Map.of(), Map.of());
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Mono<Void> handle(McpSchema.JSONRPCMessage message) {
+        if (message instanceof McpSchema.JSONRPCNotification notification
+                && RunningCalls.METHOD_NOTIFICATION_CANCELLED.equals(notification.method())) {
+            running.cancel(notification.params());
+            return Mono.empty();
+        }
+        if (message instanceof McpSchema.JSONRPCRequest request
+                && McpSchema.METHOD_TOOLS_CALL.equals(request.method()) && request.id() != null) {
+            return running.track(request.id(), delegate.handle(message));
+        }
+        return delegate.handle(message);
+    }
+
+    @Override
+    public String getId() {
+        return delegate.getId();
+    }
+
+    @Override
+    public void init(McpSchema.ClientCapabilities clientCapabilities, McpSchema.Implementation clientInfo) {
+        delegate.init(clientCapabilities, clientInfo);
+    }
+
+    @Override
+    public void setMinLoggingLevel(McpSchema.LoggingLevel minLoggingLevel) {
+        delegate.setMinLoggingLevel(minLoggingLevel);
+    }
+
+    @Override
+    public boolean isNotificationForLevelAllowed(McpSchema.LoggingLevel loggingLevel) {
+        return delegate.isNotificationForLevelAllowed(loggingLevel);
+    }
+
+    @Override
+    public <T> Mono<T> sendRequest(String method, Object requestParams, TypeRef<T> typeRef) {
+        return delegate.sendRequest(method, requestParams, typeRef);
+    }
+
+    @Override
+    public Mono<Void> sendNotification(String method, Object params) {
+        return delegate.sendNotification(method, params);
+    }
+
+    @Override
+    public Mono<Void> closeGracefully() {
+        return delegate.closeGracefully();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
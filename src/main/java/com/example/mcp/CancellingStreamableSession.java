@@ -0,0 +1,101 @@
+package com.example.mcp;
+
+import io.modelcontextprotocol.json.TypeRef;
+import io.modelcontextprotocol.spec.McpSchema;
+import io.modelcontextprotocol.spec.McpStreamableServerSession;
+import io.modelcontextprotocol.spec.McpStreamableServerTransport;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Streamable HTTP counterpart of {@link CancellingSession}: each {@code tools/call} arrives as its own response
+ * stream and the cancel notification as a separate POST, which the SDK session would ignore. A cancelled call's
+ * stream is closed without a response. All other work is delegated to the SDK session; the superclass state is never
+ * used.
+ */
+final class CancellingStreamableSession extends McpStreamableServerSession {
+    private final McpStreamableServerSession delegate;
+    private final RunningCalls running = new RunningCalls();
+
+    CancellingStreamableSession(McpStreamableServerSession delegate) {
+        super(delegate.getId(), null, null, Duration.ZERO, Map.of(), Map.of());
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Mono<Void> responseStream(McpSchema.JSONRPCRequest request, McpStreamableServerTransport transport) {
+        Mono<Void> handling = delegate.responseStream(request, transport);
+        if (McpSchema.METHOD_TOOLS_CALL.equals(request.method()) && request.id() != null) {
+            // No response follows a cancelled call, so end its response stream instead of leaving the client waiting.
+            return running.track(request.id(), handling, transport::close);
+        }
+        return handling;
+    }
+
+    @Override
+    public Mono<Void> accept(McpSchema.JSONRPCNotification notification) {
+        if (RunningCalls.METHOD_NOTIFICATION_CANCELLED.equals(notification.method())) {
+            running.cancel(notification.params());
+            return Mono.empty();
+        }
+        return delegate.accept(notification);
+    }
+
+    @Override
+    public Mono<Void> accept(McpSchema.JSONRPCResponse response) {
+        return delegate.accept(response);
+    }
+
+    @Override
+    public McpStreamableServerSessionStream listeningStream(McpStreamableServerTransport transport) {
+        return delegate.listeningStream(transport);
+    }
+
+    @Override
+    public Flux<McpSchema.JSONRPCMessage> replay(Object lastEventId) {
+        return delegate.replay(lastEventId);
+    }
+
+    @Override
+    public String getId() {
+        return delegate.getId();
+    }
+
+    @Override
+    public void setMinLoggingLevel(McpSchema.LoggingLevel minLoggingLevel) {
+        delegate.setMinLoggingLevel(minLoggingLevel);
+    }
+
+    @Override
+    public boolean isNotificationForLevelAllowed(McpSchema.LoggingLevel loggingLevel) {
+        return delegate.isNotificationForLevelAllowed(loggingLevel);
+    }
+
+    @Override
+    public <T> Mono<T> sendRequest(String method, Object requestParams, TypeRef<T> typeRef) {
+        return delegate.sendRequest(method, requestParams, typeRef);
+    }
+
+    @Override
+    public Mono<Void> sendNotification(String method, Object params) {
+        return delegate.sendNotification(method, params);
+    }
+
+    @Override
+    public Mono<Void> delete() {
+        return delegate.delete();
+    }
+
+    @Override
+    public Mono<Void> closeGracefully() {
+        return delegate.closeGracefully();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.mcp;
+
+import io.modelcontextprotocol.spec.McpStreamableServerSession;
+import io.modelcontextprotocol.spec.McpStreamableServerTransportProvider;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Wraps the sessions of a streamable HTTP transport provider in {@link CancellingStreamableSession}.
+ *
+ * <p>Unlike stdio, outbound messages need no serialization here: every request gets its own response stream, and the
+ * servlet transport already locks each stream's writer.</p>
+ */
+final class CancellingStreamableTransportProvider implements McpStreamableServerTransportProvider {
+    private final McpStreamableServerTransportProvider delegate;
+
+    CancellingStreamableTransportProvider(McpStreamableServerTransportProvider delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void setSessionFactory(McpStreamableServerSession.Factory sessionFactory) {
+        delegate.setSessionFactory(initializeRequest -> {
+            McpStreamableServerSession.McpStreamableServerSessionInit init =
+                    sessionFactory.startSession(initializeRequest);
+            return new McpStreamableServerSession.McpStreamableServerSessionInit(
+                    new CancellingStreamableSession(init.session()), init.initResult());
+        });
+    }
+
+    @Override
+    public Mono<Void> notifyClients(String method, Object params) {
+        return delegate.notifyClients(method, params);
+    }
+
+    @Override
+    public Mono<Void> closeGracefully() {
+        return delegate.closeGracefully();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    @Override
+    public List<String> protocolVersions() {
+        return delegate.protocolVersions();
+    }
+}
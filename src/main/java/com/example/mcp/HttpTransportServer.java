@@ -0,0 +1,69 @@
+package com.example.mcp;
+
+import jakarta.servlet.http.HttpServlet;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Embedded Tomcat hosting the MCP streamable HTTP endpoint for the shared server mode.
+ *
+ * <p>Binds to one local address only (loopback by default); the server has no authentication and is meant to be
+ * shared by the agents of one developer machine, not exposed on a network.</p>
+ */
+final class HttpTransportServer implements AutoCloseable {
+    private final Tomcat tomcat;
+    private final Connector connector;
+
+    private HttpTransportServer(Tomcat tomcat, Connector connector) {
+        this.tomcat = tomcat;
+        this.connector = connector;
+    }
+
+    static HttpTransportServer start(HttpServlet servlet, String host, int port) throws IOException, LifecycleException {
+        Path baseDirectory = Files.createTempDirectory("h2-sql-mcp-tomcat");
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(baseDirectory.toString());
+
+        Connector connector = new Connector();
+        connector.setPort(port);
+        connector.setProperty("address", host);
+        tomcat.getService().addConnector(connector);
+        tomcat.setConnector(connector);
+
+        Context context = tomcat.addContext("", baseDirectory.toString());
+        Wrapper wrapper = Tomcat.addServlet(context, "mcp", servlet);
+        wrapper.setAsyncSupported(true);
+        context.addServletMappingDecoded("/*", "mcp");
+
+        try {
+            tomcat.start();
+        } catch (LifecycleException e) {
+            tomcat.destroy();
+            throw e;
+        }
+        return new HttpTransportServer(tomcat, connector);
+    }
+
+    /**
+     * The bound port, which differs from the configured one when port 0 was requested.
+     */
+    int port() {
+        return connector.getLocalPort();
+    }
+
+    @Override
+    public void close() throws LifecycleException {
+        try {
+            tomcat.stop();
+        } finally {
+            tomcat.destroy();
+        }
+    }
+}
@@ -1,71 +1,261 @@
 package com.example.mcp;
 
+import com.example.mcp.jfr.ToolCallEvent;
+import com.example.mcp.tools.BatchTool;
+import com.example.mcp.tools.H2CompatibilityMatrixTool;
+import com.example.mcp.tools.H2IndexAdvisorTool;
 import com.example.mcp.tools.H2PrepareTool;
 import com.example.mcp.tools.JpaListNativeQueriesTool;
+import com.example.mcp.tools.PrepareReportQueryTool;
 import com.example.mcp.tools.PrepareReportTool;
+import com.example.mcp.tools.ServerMetricsTool;
 import com.example.mcp.tools.SqlRewriteTool;
 import com.example.mcp.tools.Tool;
+import com.example.mcp.tools.ToolBulkhead;
+import com.example.mcp.tools.ToolContext;
+import com.example.mcp.tools.ToolCost;
 import com.example.mcp.tools.ToolRegistry;
+import com.example.mcp.util.AsyncLogOutputStream;
+import com.example.mcp.util.FileRotation;
+import com.example.mcp.util.H2SchemaCache;
 import com.example.mcp.util.JarLocationResolver;
+import com.example.mcp.util.Lazy;
+import com.example.mcp.util.Metrics;
+import com.example.mcp.util.PrepareReportStore;
+import com.example.mcp.util.RollingFileOutputStream;
+import com.example.mcp.util.SystemSettings;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
 import io.modelcontextprotocol.json.McpJsonMapper;
+import io.modelcontextprotocol.server.McpAsyncServer;
+import io.modelcontextprotocol.server.McpAsyncServerExchange;
 import io.modelcontextprotocol.server.McpServerFeatures;
-import io.modelcontextprotocol.server.McpSyncServer;
+import io.modelcontextprotocol.server.transport.HttpServletStreamableServerTransportProvider;
 import io.modelcontextprotocol.server.transport.StdioServerTransportProvider;
 import io.modelcontextprotocol.spec.McpSchema;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * MCP server bootstrap that exposes SQL migration utilities over the Anthropics MCP Java SDK.
  */
 public class McpServer {
 
+    private static AsyncLogOutputStream logOutput;
     private static final String LOG_FILE_PATH = configureSimpleLogger();
     private static final Logger LOGGER = LoggerFactory.getLogger(McpServer.class);
+    private static final String HTTP_ENDPOINT = "/mcp";
 
     private final ObjectMapper mapper = new ObjectMapper();
     private final McpJsonMapper mcpJsonMapper = McpJsonMapper.getDefault();
     private final ToolRegistry registry = new ToolRegistry();
+    private final Lazy<H2SchemaCache> schemaCache = Lazy.of(H2SchemaCache::new);
+    private final Lazy<PrepareReportStore> reportStore = Lazy.of(PrepareReportStore::nextToJar);
+    private final ExecutorService toolExecutor = Executors.newCachedThreadPool(toolThreadFactory());
+    private final Scheduler toolScheduler = Schedulers.fromExecutorService(toolExecutor, "mcp-tool");
+    private final Map<String, ToolBulkhead> bulkheads = new HashMap<>();
+    private final boolean structuredOnly = SystemSettings.booleanValue("result.structuredOnly", false);
+    private final AtomicInteger activeCalls = new AtomicInteger();
+    private SessionLimits sessionLimits;
 
     public McpServer() {
         registry.register(new JpaListNativeQueriesTool(mapper));
-        registry.register(new H2PrepareTool(mapper));
-        registry.register(new PrepareReportTool(mapper));
+        registry.register(new H2PrepareTool(mapper, schemaCache));
+        registry.register(new H2CompatibilityMatrixTool(mapper, schemaCache));
+        registry.register(new H2IndexAdvisorTool(mapper, schemaCache));
+        registry.register(new PrepareReportTool(mapper, reportStore));
+        registry.register(new PrepareReportQueryTool(mapper, reportStore));
         registry.register(new SqlRewriteTool(mapper));
+        registry.register(new ServerMetricsTool(mapper));
+        registry.register(new BatchTool(mapper, registry, this::invokeNested));
+        for (Tool tool : registry.list()) {
+            if (tool.getCost() == ToolCost.HEAVY) {
+                bulkheads.put(tool.getName(), createBulkhead(tool.getName()));
+            }
+        }
     }
 
-    public static void main(String[] args) {
-        new McpServer().start();
+    /**
+     * Heavy tools share default limits from {@code h2sqlmcp.heavy.maxConcurrent} and {@code h2sqlmcp.heavy.queueLimit},
+     * each overridable per tool through {@code h2sqlmcp.tool.<name>.maxConcurrent} and
+     * {@code h2sqlmcp.tool.<name>.queueLimit}.
+     */
+    private static ToolBulkhead createBulkhead(String toolName) {
+        int maxConcurrent = SystemSettings.intValue("heavy.maxConcurrent", 2);
+        int queueLimit = SystemSettings.intValue("heavy.queueLimit", 8);
+        return new ToolBulkhead(
+                SystemSettings.intValue("tool." + toolName + ".maxConcurrent", maxConcurrent),
+                SystemSettings.intValue("tool." + toolName + ".queueLimit", queueLimit));
+    }
+
+    private static ThreadFactory toolThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "mcp-tool-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (List.of(args).contains("--train")) {
+            TrainingRun.run(new McpServer());
+            // The stdio transport threads are not daemons; exit so -XX:ArchiveClassesAtExit can dump the archive.
+            System.exit(0);
+        }
+        String transport = SystemSettings.stringValue("transport", "stdio");
+        for (String arg : args) {
+            if (arg.startsWith("--transport=")) {
+                transport = arg.substring("--transport=".length());
+            }
+        }
+        switch (transport) {
+            case "stdio" -> new McpServer().start();
+            case "http" -> new McpServer().startHttp();
+            default -> throw new IllegalArgumentException("Unknown transport '" + transport + "'; use stdio or http");
+        }
     }
 
     public void start() {
-        List<McpServerFeatures.SyncToolSpecification> tools = registry.list().stream()
-                .map(this::toToolSpecification)
-                .toList();
+        if (LOG_FILE_PATH != null) {
+            LOGGER.info("Logging MCP server output to {}", LOG_FILE_PATH);
+        }
+
+        McpAsyncServer server = createServer(System.in, System.out);
 
+        scheduleMetricsLogging();
+        Warmup.startIfEnabled(schemaCache, activeCalls::get);
+        keepServerAlive(server, null, registry.list().size());
+    }
+
+    /**
+     * Shared mode: one long-lived server on a local streamable HTTP endpoint ({@code h2sqlmcp.http.host}, default
+     * {@code 127.0.0.1}; {@code h2sqlmcp.http.port}, default 8765; path {@code /mcp}). All clients share the schema
+     * cache, report store and JIT state; each session is limited to {@code h2sqlmcp.session.maxConcurrent} running
+     * and {@code h2sqlmcp.session.queueLimit} waiting calls.
+     */
+    public void startHttp() throws Exception {
         if (LOG_FILE_PATH != null) {
             LOGGER.info("Logging MCP server output to {}", LOG_FILE_PATH);
         }
+        String host = SystemSettings.stringValue("http.host", "127.0.0.1");
+        HttpEndpoint endpoint = openHttp(host, SystemSettings.intValue("http.port", 8765));
+        LOGGER.info("Listening for MCP clients on http://{}:{}{}", host, endpoint.http().port(), HTTP_ENDPOINT);
 
-        StdioServerTransportProvider transportProvider = new StdioServerTransportProvider(mcpJsonMapper);
+        scheduleMetricsLogging();
+        Warmup.startIfEnabled(schemaCache, activeCalls::get);
+        keepServerAlive(endpoint.server(), endpoint.http(), registry.list().size());
+    }
 
-        McpSyncServer server = io.modelcontextprotocol.server.McpServer
-                .sync(transportProvider)
+    /**
+     * Server and embedded Tomcat of the shared HTTP mode.
+     */
+    record HttpEndpoint(McpAsyncServer server, HttpTransportServer http) {
+    }
+
+    /**
+     * Builds the server on the streamable HTTP transport and starts listening on {@code host:port} (0 for any free
+     * port). Sessions get the same cancellation handling as stdio; see {@link CancellingStreamableTransportProvider}
+     * for why they need no send serialization.
+     */
+    HttpEndpoint openHttp(String host, int port) throws Exception {
+        sessionLimits = new SessionLimits(
+                SystemSettings.intValue("session.maxConcurrent", 4),
+                SystemSettings.intValue("session.queueLimit", 16));
+        HttpServletStreamableServerTransportProvider transportProvider = HttpServletStreamableServerTransportProvider
+                .builder()
+                .jsonMapper(mcpJsonMapper)
+                .mcpEndpoint(HTTP_ENDPOINT)
+                .keepAliveInterval(Duration.ofSeconds(SystemSettings.longValue("http.keepAliveSeconds", 30)))
+                .build();
+        McpAsyncServer server = buildServer(io.modelcontextprotocol.server.McpServer
+                .async(new CancellingStreamableTransportProvider(transportProvider)));
+        try {
+            return new HttpEndpoint(server, HttpTransportServer.start(transportProvider, host, port));
+        } catch (Exception e) {
+            server.close();
+            throw e;
+        }
+    }
+
+    McpAsyncServer createServer(InputStream input, OutputStream output) {
+        StdioServerTransportProvider transportProvider = new StdioServerTransportProvider(mcpJsonMapper, input, output);
+        return buildServer(io.modelcontextprotocol.server.McpServer
+                .async(new SerializedTransportProvider(transportProvider)));
+    }
+
+    private McpAsyncServer buildServer(io.modelcontextprotocol.server.McpServer.AsyncSpecification<?> specification) {
+        List<McpServerFeatures.AsyncToolSpecification> tools = registry.list().stream()
+                .map(this::toToolSpecification)
+                .toList();
+        return specification
                 .serverInfo(new McpSchema.Implementation("h2-sql-mcp", "0.1.0"))
                 .jsonMapper(mcpJsonMapper)
                 .tools(tools)
                 .build();
+    }
 
-        keepServerAlive(server, tools.size());
+    /**
+     * Stops the tool executor and releases tool resources. The log output is left open.
+     */
+    void releaseResources() throws Exception {
+        toolExecutor.shutdownNow();
+        try {
+            registry.close();
+        } finally {
+            if (reportStore.isCreated()) {
+                reportStore.get().close();
+            }
+        }
+    }
+
+    private void scheduleMetricsLogging() {
+        long interval = SystemSettings.longValue("metrics.logIntervalSeconds", 0);
+        if (interval <= 0) {
+            return;
+        }
+        Thread dumper = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(interval));
+                } catch (InterruptedException e) {
+                    return;
+                }
+                String summary = Metrics.describe();
+                if (!summary.isEmpty()) {
+                    LOGGER.info("Metrics:{}", summary);
+                }
+            }
+        }, "mcp-metrics-log");
+        dumper.setDaemon(true);
+        dumper.start();
     }
 
     private static String configureSimpleLogger() {
@@ -83,9 +273,14 @@ public class McpServer {
             if (parent != null && Files.notExists(parent)) {
                 Files.createDirectories(parent);
             }
-            String absolutePath = logFile.toAbsolutePath().toString();
-            System.setProperty("org.slf4j.simpleLogger.logFile", absolutePath);
-            return absolutePath;
+            // slf4j-simple can only target a file path or System.err; route System.err through a rotating file
+            // behind a ring buffer so logging never blocks tool calls on disk I/O.
+            FileRotation.Policy policy = FileRotation.Policy.fromSettings("log", 10L * 1024 * 1024, 5);
+            logOutput = new AsyncLogOutputStream(new RollingFileOutputStream(logFile, policy),
+                    SystemSettings.intValue("log.bufferChunks", 8192), "mcp-log-writer");
+            System.setErr(new PrintStream(logOutput, true, StandardCharsets.UTF_8));
+            System.setProperty("org.slf4j.simpleLogger.logFile", "System.err");
+            return logFile.toAbsolutePath().toString();
         } catch (Exception ex) {
             System.err.println("Failed to configure simple logger file output: " + ex.getMessage());
             return null;
@@ -100,7 +295,7 @@ public class McpServer {
         return jarDirectory.resolve("mcp-server.log");
     }
 
-    private void keepServerAlive(McpSyncServer server, int toolCount) {
+    private void keepServerAlive(McpAsyncServer server, HttpTransportServer http, int toolCount) {
         CountDownLatch shutdown = new CountDownLatch(1);
         AtomicBoolean closed = new AtomicBoolean(false);
 
@@ -108,10 +303,19 @@ public class McpServer {
             if (closed.compareAndSet(false, true)) {
                 try {
                     LOGGER.info("Shutting down MCP server");
-                    server.closeGracefully();
+                    server.closeGracefully().block(Duration.ofSeconds(10));
+                    if (http != null) {
+                        http.close();
+                    }
                 } catch (Exception e) {
                     LOGGER.warn("Error while shutting down MCP server", e);
+                }
+                try {
+                    releaseResources();
+                } catch (Exception e) {
+                    LOGGER.warn("Error while releasing tool resources", e);
                 } finally {
+                    closeLogOutput();
                     shutdown.countDown();
                 }
             }
@@ -119,7 +323,14 @@ public class McpServer {
 
         Runtime.getRuntime().addShutdownHook(new Thread(shutdownHook, "mcp-server-shutdown"));
 
-        LOGGER.info("MCP server started with {} tool(s); awaiting requests...", toolCount);
+        long startupNanos = startupNanos();
+        if (startupNanos >= 0) {
+            Metrics.record(Metrics.SERVER_STARTUP, startupNanos);
+            LOGGER.info("MCP server started with {} tool(s) in {} ms after JVM start; awaiting requests...",
+                    toolCount, TimeUnit.NANOSECONDS.toMillis(startupNanos));
+        } else {
+            LOGGER.info("MCP server started with {} tool(s); awaiting requests...", toolCount);
+        }
         try {
             shutdown.await();
         } catch (InterruptedException e) {
@@ -129,11 +340,175 @@ public class McpServer {
         }
     }
 
-    private McpServerFeatures.SyncToolSpecification toToolSpecification(Tool tool) {
+    /**
+     * Time from process start until now, or -1 if the platform does not report the start time.
+     */
+    private static long startupNanos() {
+        return ProcessHandle.current().info().startInstant()
+                .map(start -> Duration.between(start, Instant.now()).toNanos())
+                .orElse(-1L);
+    }
+
+    static void closeLogOutput() {
+        if (logOutput != null) {
+            try {
+                logOutput.close();
+            } catch (IOException ignored) {
+                // Logging is going away with the process.
+            }
+        }
+    }
+
+    private McpServerFeatures.AsyncToolSpecification toToolSpecification(Tool tool) {
         McpSchema.Tool descriptor = buildToolDescriptor(tool);
-        return McpServerFeatures.SyncToolSpecification.builder()
+        return McpServerFeatures.AsyncToolSpecification.builder()
                 .tool(descriptor)
-                .callHandler((exchange, request) -> executeTool(tool, request))
+                .callHandler((exchange, request) -> dispatch(tool, exchange, request))
+                .build();
+    }
+
+    /**
+     * Runs the tool on the dedicated executor so the transport thread keeps serving other requests. In the shared HTTP
+     * mode the call first passes its session's bulkhead, and heavy tools pass through their own bulkhead; when the
+     * running and queued slots of either are taken the call is answered right away with a busy error. Cancelling the
+     * subscription (the client cancelled the request) interrupts the running tool.
+     */
+    private Mono<McpSchema.CallToolResult> dispatch(Tool tool, McpAsyncServerExchange exchange,
+                                                    McpSchema.CallToolRequest request) {
+        ToolCallContext context = new ToolCallContext(exchange, request.progressToken());
+        List<ToolBulkhead> gates = new ArrayList<>(2);
+        String session = sessionLimits != null ? exchange.sessionId() : null;
+        if (session != null) {
+            ToolBulkhead sessionGate = sessionLimits.tryEnter(session);
+            if (sessionGate == null) {
+                return Mono.just(sessionBusyResult(tool, session));
+            }
+            gates.add(sessionGate);
+        }
+        ToolBulkhead bulkhead = bulkheads.get(tool.getName());
+        if (bulkhead != null) {
+            if (!bulkhead.tryEnter()) {
+                release(gates, session);
+                return Mono.just(busyResult(tool, bulkhead));
+            }
+            gates.add(bulkhead);
+        }
+        if (gates.isEmpty()) {
+            return Mono.fromCallable(() -> executeTool(tool, request, context))
+                    .subscribeOn(toolScheduler)
+                    .doFinally(signal -> {
+                        if (signal == SignalType.CANCEL) {
+                            context.cancel();
+                        }
+                    });
+        }
+        // Whichever of "task started" and "subscriber cancelled" happens first owns the admitted slots.
+        AtomicBoolean started = new AtomicBoolean(false);
+        return Mono.fromCallable(() -> {
+                    if (!started.compareAndSet(false, true)) {
+                        return busyResult(tool, gates.get(gates.size() - 1));
+                    }
+                    try {
+                        return executeAdmitted(tool, request, gates, context);
+                    } finally {
+                        if (session != null) {
+                            sessionLimits.release(session);
+                        }
+                    }
+                })
+                .subscribeOn(toolScheduler)
+                .doFinally(signal -> {
+                    if (signal != SignalType.CANCEL) {
+                        return;
+                    }
+                    context.cancel();
+                    if (started.compareAndSet(false, true)) {
+                        release(gates, session);
+                    }
+                });
+    }
+
+    private McpSchema.CallToolResult executeAdmitted(Tool tool, McpSchema.CallToolRequest request,
+                                                     List<ToolBulkhead> gates, ToolCallContext context) {
+        int entered = 0;
+        try {
+            for (ToolBulkhead gate : gates) {
+                gate.awaitTurn();
+                entered++;
+            }
+            return executeTool(tool, request, context);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // The interrupted gate already gave its slot back; the ones after it were never waited on.
+            for (int i = entered + 1; i < gates.size(); i++) {
+                gates.get(i).abandon();
+            }
+            return busyResult(tool, gates.get(entered));
+        } finally {
+            for (int i = 0; i < entered; i++) {
+                gates.get(i).leave();
+            }
+        }
+    }
+
+    private void release(List<ToolBulkhead> gates, String session) {
+        for (ToolBulkhead gate : gates) {
+            gate.abandon();
+        }
+        if (session != null) {
+            sessionLimits.release(session);
+        }
+    }
+
+    /**
+     * Runs a tool for {@code batch}. The entry passes the tool's bulkhead like a direct call and is recorded under
+     * the tool's own timer, but fails fast with an exception instead of producing an error result.
+     */
+    private JsonNode invokeNested(Tool tool, JsonNode arguments, ToolContext context) throws Exception {
+        ToolBulkhead bulkhead = bulkheads.get(tool.getName());
+        if (bulkhead != null) {
+            if (!bulkhead.tryEnter()) {
+                throw new IllegalStateException(String.format("Tool '%s' is busy (%d running, %d queued)",
+                        tool.getName(), bulkhead.running(), bulkhead.queued()));
+            }
+            bulkhead.awaitTurn();
+        }
+        Metrics.Timer timer = Metrics.timer(Metrics.TOOL_PREFIX + tool.getName());
+        ToolCallEvent event = new ToolCallEvent();
+        event.tool = tool.getName();
+        event.begin();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            JsonNode result = tool.call(arguments, context);
+            failed = false;
+            return result;
+        } finally {
+            timer.record(System.nanoTime() - start, failed);
+            event.failed = failed;
+            event.commit();
+            if (bulkhead != null) {
+                bulkhead.leave();
+            }
+        }
+    }
+
+    private McpSchema.CallToolResult sessionBusyResult(Tool tool, String session) {
+        LOGGER.warn("Rejected call to '{}' from session {}: too many calls in flight", tool.getName(), session);
+        return McpSchema.CallToolResult.builder()
+                .isError(true)
+                .addTextContent(String.format("Too many calls in flight for this session; '%s' was not started, try "
+                        + "again later", tool.getName()))
+                .build();
+    }
+
+    private McpSchema.CallToolResult busyResult(Tool tool, ToolBulkhead bulkhead) {
+        LOGGER.warn("Rejected call to '{}': {} running, {} queued", tool.getName(), bulkhead.running(),
+                bulkhead.queued());
+        return McpSchema.CallToolResult.builder()
+                .isError(true)
+                .addTextContent(String.format("Tool '%s' is busy (%d running, %d queued); try again later",
+                        tool.getName(), bulkhead.running(), bulkhead.queued()))
                 .build();
     }
 
@@ -154,50 +529,71 @@ public class McpServer {
         return schema.toString();
     }
 
-    private McpSchema.CallToolResult executeTool(Tool tool, McpSchema.CallToolRequest request) {
+    private McpSchema.CallToolResult executeTool(Tool tool, McpSchema.CallToolRequest request,
+                                                 ToolCallContext context) {
         JsonNode arguments = toArgumentsNode(request);
+        Metrics.Timer timer = Metrics.timer(Metrics.TOOL_PREFIX + tool.getName());
+        ToolCallEvent event = new ToolCallEvent();
+        event.tool = tool.getName();
+        event.begin();
+        long start = System.nanoTime();
+        activeCalls.incrementAndGet();
+        context.attach();
         try {
-            JsonNode result = tool.call(arguments);
-            McpSchema.CallToolResult.Builder builder = McpSchema.CallToolResult.builder().isError(false);
-            if (result == null || result.isNull()) {
-                builder.addTextContent("null");
+            JsonNode result = tool.call(arguments, context);
+            McpSchema.CallToolResult callResult = toCallToolResult(result, event);
+            timer.record(System.nanoTime() - start, false);
+            event.commit();
+            return callResult;
+        } catch (Exception ex) {
+            timer.record(System.nanoTime() - start, true);
+            event.failed = true;
+            event.commit();
+            if (context.isCancelled()) {
+                LOGGER.info("Tool '{}' stopped: the client cancelled the call", tool.getName());
             } else {
-                Object structured = mapper.convertValue(result, Object.class);
-                builder.structuredContent(structured);
-                builder.addTextContent(renderResultText(result));
+                LOGGER.error("Tool '{}' execution failed", tool.getName(), ex);
             }
-            return builder.build();
-        } catch (Exception ex) {
-            LOGGER.error("Tool '{}' execution failed", tool.getName(), ex);
             String message = ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName();
             return McpSchema.CallToolResult.builder()
                     .isError(true)
                     .addTextContent("Tool execution failed: " + message)
                     .build();
+        } finally {
+            context.detach();
+            activeCalls.decrementAndGet();
         }
     }
 
-    private JsonNode toArgumentsNode(McpSchema.CallToolRequest request) {
-        if (request.arguments() == null) {
-            return mapper.createObjectNode();
-        }
-        return mapper.valueToTree(request.arguments());
-    }
-
-    private String renderResultText(JsonNode result) {
+    /**
+     * Serializes the result tree exactly once. The JSON text becomes the text content and, wrapped in a
+     * {@link RawValue}, the structured content, so the transport copies it verbatim instead of converting the tree
+     * into maps and lists and serializing it a second time. With {@code h2sqlmcp.result.structuredOnly} the text
+     * copy is left out for clients that read structured content only.
+     */
+    McpSchema.CallToolResult toCallToolResult(JsonNode result, ToolCallEvent event) throws JsonProcessingException {
+        McpSchema.CallToolResult.Builder builder = McpSchema.CallToolResult.builder().isError(false);
         if (result == null || result.isNull()) {
-            return "null";
+            return builder.addTextContent("null").build();
         }
-        if (result.isTextual()) {
-            return result.asText();
+        if (!result.isContainerNode()) {
+            return builder.addTextContent(result.isTextual() ? result.asText() : result.toString()).build();
         }
-        if (result.isNumber() || result.isBoolean()) {
-            return result.toString();
+        long start = System.nanoTime();
+        String json = mapper.writeValueAsString(result);
+        Metrics.record(Metrics.PHASE_SERIALIZE, System.nanoTime() - start);
+        event.resultChars = json.length();
+        builder.structuredContent(new RawValue(json));
+        if (!structuredOnly) {
+            builder.addTextContent(json);
         }
-        try {
-            return mapper.writeValueAsString(result);
-        } catch (JsonProcessingException e) {
-            return result.toString();
+        return builder.build();
+    }
+
+    private JsonNode toArgumentsNode(McpSchema.CallToolRequest request) {
+        if (request.arguments() == null) {
+            return mapper.createObjectNode();
         }
+        return mapper.valueToTree(request.arguments());
     }
 }
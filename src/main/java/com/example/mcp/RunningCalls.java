@@ -0,0 +1,54 @@
+package com.example.mcp;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@code tools/call} requests of one session that are still running, by request id, so a client's
+ * {@code notifications/cancelled} can cancel them. Shared by the stdio and streamable HTTP session wrappers.
+ */
+final class RunningCalls {
+    static final String METHOD_NOTIFICATION_CANCELLED = "notifications/cancelled";
+
+    private final Map<String, Call> running = new ConcurrentHashMap<>();
+
+    /**
+     * Remembers the call while {@code handling} runs and completes it empty, without a response, once cancelled.
+     */
+    <T> Mono<T> track(Object requestId, Mono<T> handling) {
+        return track(requestId, handling, () -> {
+        });
+    }
+
+    /**
+     * Same as {@link #track(Object, Mono)}, running {@code onCancel} after the handling has been cancelled.
+     */
+    <T> Mono<T> track(Object requestId, Mono<T> handling, Runnable onCancel) {
+        String id = String.valueOf(requestId);
+        Call call = new Call(Sinks.one(), onCancel);
+        running.put(id, call);
+        return handling
+                .takeUntilOther(call.cancelled().asMono())
+                .doFinally(signal -> running.remove(id, call));
+    }
+
+    /**
+     * Cancels the call named by the {@code requestId} of a cancel notification's params, if it is still running.
+     */
+    void cancel(Object params) {
+        if (!(params instanceof Map<?, ?> map) || map.get("requestId") == null) {
+            return;
+        }
+        Call call = running.remove(String.valueOf(map.get("requestId")));
+        if (call != null) {
+            call.cancelled().tryEmitValue(Boolean.TRUE);
+            call.onCancel().run();
+        }
+    }
+
+    private record Call(Sinks.One<Boolean> cancelled, Runnable onCancel) {
+    }
+}
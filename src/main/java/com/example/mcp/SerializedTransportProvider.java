@@ -0,0 +1,94 @@
+package com.example.mcp;
+
+import io.modelcontextprotocol.json.TypeRef;
+import io.modelcontextprotocol.spec.McpSchema;
+import io.modelcontextprotocol.spec.McpServerSession;
+import io.modelcontextprotocol.spec.McpServerTransport;
+import io.modelcontextprotocol.spec.McpServerTransportProvider;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Serializes outbound messages of a transport provider.
+ *
+ * <p>The SDK's stdio transport emits each outgoing message into a Reactor sink that rejects concurrent emissions
+ * ("Failed to enqueue message"), silently dropping the response. Tool results complete on several executor threads
+ * at once, so every send is funnelled through one lock here. Sessions are wrapped in {@link CancellingSession} so
+ * client cancellations reach running tools.</p>
+ */
+final class SerializedTransportProvider implements McpServerTransportProvider {
+    private final McpServerTransportProvider delegate;
+
+    SerializedTransportProvider(McpServerTransportProvider delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void setSessionFactory(McpServerSession.Factory sessionFactory) {
+        delegate.setSessionFactory(transport -> {
+            SerializedTransport serialized = new SerializedTransport(transport);
+            return new CancellingSession(sessionFactory.create(serialized), serialized);
+        });
+    }
+
+    @Override
+    public Mono<Void> notifyClients(String method, Object params) {
+        return delegate.notifyClients(method, params);
+    }
+
+    @Override
+    public Mono<Void> closeGracefully() {
+        return delegate.closeGracefully();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    @Override
+    public List<String> protocolVersions() {
+        return delegate.protocolVersions();
+    }
+
+    private static final class SerializedTransport implements McpServerTransport {
+        private final McpServerTransport delegate;
+        private final Object sendLock = new Object();
+
+        private SerializedTransport(McpServerTransport delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Mono<Void> sendMessage(McpSchema.JSONRPCMessage message) {
+            // Subscribing emits the message synchronously once the transport is running, so hold the lock for it.
+            return Mono.create(sink -> {
+                synchronized (sendLock) {
+                    delegate.sendMessage(message).subscribe(ignored -> {
+                    }, sink::error, sink::success);
+                }
+            });
+        }
+
+        @Override
+        public <T> T unmarshalFrom(Object data, TypeRef<T> typeRef) {
+            return delegate.unmarshalFrom(data, typeRef);
+        }
+
+        @Override
+        public Mono<Void> closeGracefully() {
+            return delegate.closeGracefully();
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+
+        @Override
+        public List<String> protocolVersions() {
+            return delegate.protocolVersions();
+        }
+    }
+}
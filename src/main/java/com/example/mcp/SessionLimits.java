@@ -0,0 +1,51 @@
+package com.example.mcp;
+
+import com.example.mcp.tools.ToolBulkhead;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-session bulkheads for the shared HTTP mode, so one client cannot occupy every tool slot while others wait.
+ * Entries exist only while the session has calls admitted, so sessions that disconnect leave nothing behind.
+ */
+final class SessionLimits {
+    private final int maxConcurrent;
+    private final int queueLimit;
+    private final Map<String, Entry> sessions = new HashMap<>();
+
+    SessionLimits(int maxConcurrent, int queueLimit) {
+        this.maxConcurrent = maxConcurrent;
+        this.queueLimit = queueLimit;
+    }
+
+    /**
+     * Reserves a slot for the session and returns its bulkhead, or {@code null} if the session is at its limit. A
+     * returned bulkhead must be used as described in {@link ToolBulkhead#tryEnter()} and then handed back through
+     * {@link #release(String)}.
+     */
+    synchronized ToolBulkhead tryEnter(String sessionId) {
+        Entry entry = sessions.computeIfAbsent(sessionId, ignored -> new Entry(new ToolBulkhead(maxConcurrent, queueLimit)));
+        if (!entry.bulkhead.tryEnter()) {
+            return null;
+        }
+        entry.references++;
+        return entry.bulkhead;
+    }
+
+    synchronized void release(String sessionId) {
+        Entry entry = sessions.get(sessionId);
+        if (entry != null && --entry.references == 0) {
+            sessions.remove(sessionId);
+        }
+    }
+
+    private static final class Entry {
+        private final ToolBulkhead bulkhead;
+        private int references;
+
+        private Entry(ToolBulkhead bulkhead) {
+            this.bulkhead = bulkhead;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.mcp;
+
+import com.example.mcp.tools.ToolContext;
+import io.modelcontextprotocol.server.McpAsyncServerExchange;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link ToolContext} of one client call. Progress goes to the client only when the request carried a
+ * {@code _meta.progressToken}; {@link #cancel()} flags the call and interrupts the thread running it, if any.
+ */
+final class ToolCallContext implements ToolContext {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ToolCallContext.class);
+
+    private final McpAsyncServerExchange exchange;
+    private final String progressToken;
+    private volatile boolean cancelled;
+    private Thread runner;
+
+    ToolCallContext(McpAsyncServerExchange exchange, String progressToken) {
+        this.exchange = exchange;
+        this.progressToken = progressToken;
+    }
+
+    /**
+     * Binds the call to the current thread until {@link #detach()}.
+     */
+    synchronized void attach() {
+        runner = Thread.currentThread();
+        if (cancelled) {
+            runner.interrupt();
+        }
+    }
+
+    /**
+     * Unbinds the thread and clears an interrupt left by a late {@link #cancel()}, so the pooled thread starts its
+     * next task clean.
+     */
+    synchronized void detach() {
+        runner = null;
+        Thread.interrupted();
+    }
+
+    synchronized void cancel() {
+        cancelled = true;
+        if (runner != null) {
+            runner.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public void progress(double progress, Double total, String message) {
+        if (progressToken == null || cancelled) {
+            return;
+        }
+        exchange.progressNotification(new McpSchema.ProgressNotification(progressToken, progress, total, message))
+                .subscribe(ignored -> {
+                }, error -> LOGGER.debug("Failed to send progress notification", error));
+    }
+}
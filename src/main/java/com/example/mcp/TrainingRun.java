@@ -0,0 +1,207 @@
+package com.example.mcp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.modelcontextprotocol.server.McpAsyncServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Scripted session used to train the AppCDS archive ({@code --train}).
+ *
+ * <p>Runs the real server over piped stdio and calls each non-persistent tool once against the bundled samples, so
+ * the classes loaded on a typical first request (transport, JSON mapping, rule engine, extractor, H2 driver) end up in
+ * the archive written by {@code -XX:ArchiveClassesAtExit}. Report tools are skipped because they write to disk.</p>
+ */
+final class TrainingRun {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TrainingRun.class);
+    private static final String SAMPLE_REPOSITORY = "/samples/SampleRepository.java.txt";
+    private static final String SAMPLE_SCHEMA = "/samples/sample-schema.sql";
+    private static final int PIPE_SIZE = 1 << 20;
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+    private TrainingRun() {
+    }
+
+    static void run(McpServer server) throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        Path workDirectory = Files.createTempDirectory("h2-sql-mcp-train");
+        try {
+            Path sources = Files.createDirectories(workDirectory.resolve("src"));
+            copySample(SAMPLE_REPOSITORY, sources.resolve("SampleRepository.java"));
+            Path schema = copySample(SAMPLE_SCHEMA, workDirectory.resolve("schema.sql"));
+            List<ObjectNode> script = script(mapper, sources, schema);
+            long expectedResponses = script.stream().filter(message -> message.has("id")).count();
+
+            PipedOutputStream requests = new PipedOutputStream();
+            PipedInputStream serverInput = new PipedInputStream(requests, PIPE_SIZE);
+            PipedInputStream responses = new PipedInputStream(PIPE_SIZE);
+            PipedOutputStream serverOutput = new PipedOutputStream(responses);
+
+            CountDownLatch pending = new CountDownLatch((int) expectedResponses);
+            List<String> failures = new ArrayList<>();
+            Thread reader = new Thread(() -> readResponses(mapper, responses, pending, failures), "mcp-train-reader");
+            reader.setDaemon(true);
+            reader.start();
+
+            long start = System.nanoTime();
+            McpAsyncServer mcpServer = server.createServer(serverInput, serverOutput);
+            try {
+                for (ObjectNode message : script) {
+                    send(requests, mapper.writeValueAsString(message));
+                    if ("initialize".equals(message.path("method").asText())) {
+                        // The session only accepts further requests once initialize has been answered.
+                        awaitCount(pending, expectedResponses - 1);
+                    }
+                }
+                if (!pending.await(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                    throw new IllegalStateException("Training run timed out with " + pending.getCount()
+                            + " response(s) outstanding");
+                }
+            } finally {
+                mcpServer.closeGracefully().block(Duration.ofSeconds(10));
+                server.releaseResources();
+                requests.close();
+            }
+            synchronized (failures) {
+                for (String failure : failures) {
+                    LOGGER.warn("Training call failed: {}", failure);
+                }
+            }
+            LOGGER.info("Training run finished {} call(s) in {} ms", expectedResponses,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } finally {
+            deleteRecursively(workDirectory);
+            McpServer.closeLogOutput();
+        }
+    }
+
+    private static List<ObjectNode> script(ObjectMapper mapper, Path sources, Path schema) {
+        List<ObjectNode> messages = new ArrayList<>();
+        ObjectNode initialize = request(mapper, messages.size() + 1, "initialize");
+        ObjectNode params = initialize.putObject("params");
+        params.put("protocolVersion", "2024-11-05");
+        params.putObject("capabilities");
+        params.putObject("clientInfo").put("name", "h2-sql-mcp-training").put("version", "0.1.0");
+        messages.add(initialize);
+
+        ObjectNode initialized = mapper.createObjectNode();
+        initialized.put("jsonrpc", "2.0");
+        initialized.put("method", "notifications/initialized");
+        messages.add(initialized);
+
+        messages.add(request(mapper, messages.size() + 1, "tools/list"));
+
+        ObjectNode rewrite = mapper.createObjectNode();
+        rewrite.put("sql", "SELECT NVL(name, 'x') FROM users WHERE ROWNUM <= 1 MINUS SELECT name FROM dual");
+        messages.add(toolCall(mapper, messages.size() + 1, "sql.rewrite", rewrite));
+
+        ObjectNode prepare = mapper.createObjectNode();
+        prepare.put("sql", "SELECT id, status FROM users WHERE status = ?");
+        prepare.putArray("initSqlPaths").add(schema.toString());
+        messages.add(toolCall(mapper, messages.size() + 1, "h2.prepare", prepare));
+
+        ObjectNode scan = mapper.createObjectNode();
+        scan.putArray("rootDirs").add(sources.toString());
+        messages.add(toolCall(mapper, messages.size() + 1, "jpa.list_native_queries", scan));
+
+        messages.add(toolCall(mapper, messages.size() + 1, "server.metrics", mapper.createObjectNode()));
+        return messages;
+    }
+
+    private static ObjectNode request(ObjectMapper mapper, int id, String method) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("jsonrpc", "2.0");
+        node.put("id", id);
+        node.put("method", method);
+        return node;
+    }
+
+    private static ObjectNode toolCall(ObjectMapper mapper, int id, String tool, ObjectNode arguments) {
+        ObjectNode node = request(mapper, id, "tools/call");
+        ObjectNode params = node.putObject("params");
+        params.put("name", tool);
+        params.set("arguments", arguments);
+        return node;
+    }
+
+    private static void send(OutputStream requests, String line) throws IOException {
+        requests.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+        requests.flush();
+    }
+
+    private static void awaitCount(CountDownLatch latch, long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (latch.getCount() > count) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Training run timed out waiting for initialize");
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private static void readResponses(ObjectMapper mapper, InputStream responses, CountDownLatch pending,
+                                      List<String> failures) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(responses, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                JsonNode message = mapper.readTree(line);
+                if (!message.has("id")) {
+                    continue;
+                }
+                if (message.has("error") || message.path("result").path("isError").asBoolean(false)) {
+                    synchronized (failures) {
+                        failures.add(line);
+                    }
+                }
+                pending.countDown();
+            }
+        } catch (IOException e) {
+            // The pipe breaks once the server has been closed; anything still pending is reported as a timeout.
+        }
+    }
+
+    private static Path copySample(String resource, Path target) throws IOException {
+        try (InputStream input = TrainingRun.class.getResourceAsStream(resource)) {
+            if (input == null) {
+                throw new IllegalStateException("Missing bundled sample " + resource);
+            }
+            Files.copy(input, target);
+        }
+        return target;
+    }
+
+    private static void deleteRecursively(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.warn("Failed to delete training directory {}", directory, e);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.mcp;
+
+import com.example.mcp.tools.H2PrepareTool;
+import com.example.mcp.util.H2SchemaCache;
+import com.example.mcp.util.ParamNormalizer;
+import com.example.mcp.util.QueryExtractor;
+import com.example.mcp.util.RuleEngine;
+import com.example.mcp.util.SystemSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Opt-in background warm-up ({@code h2sqlmcp.warmup=true}).
+ *
+ * <p>Runs the SQL hot paths (normalizer, rule engine, extractor, H2 prepare) over the bundled samples on a
+ * minimum-priority daemon thread so the first real scan or prepare of a session does not pay for class loading and
+ * interpretation. Before every step it waits until no tool call is in flight, so it only uses otherwise idle time.
+ * Optionally pre-builds the schema template for {@code h2sqlmcp.warmup.initSqlPaths} (separated by the platform path
+ * separator) against {@code h2sqlmcp.warmup.jdbcUrl}, so the first matching {@code h2.prepare} finds it cached.</p>
+ */
+final class Warmup implements Runnable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Warmup.class);
+    private static final String SAMPLE_REPOSITORY = "/samples/SampleRepository.java.txt";
+    private static final String SAMPLE_SCHEMA = "/samples/sample-schema.sql";
+    private static final String WARMUP_JDBC_URL = "jdbc:h2:mem:warmup;MODE=Oracle;DATABASE_TO_UPPER=false";
+    private static final long IDLE_POLL_MILLIS = 50;
+    private static final List<String> SAMPLE_SQL = List.of(
+            "SELECT NVL(u.name, 'n/a') FROM users u WHERE u.id = :id AND ROWNUM <= 1",
+            "SELECT u.id FROM users u WHERE u.status IN (:statuses) AND u.created_at > SYSDATE - ?1",
+            "SELECT DECODE(status, 'A', 1, 0) FROM users MINUS SELECT 0 FROM archived_users",
+            "SELECT id FROM users WHERE name = '?' -- :ignored\n AND email = ? FROM DUAL"
+    );
+
+    private final Supplier<H2SchemaCache> schemaCache;
+    private final IntSupplier activeCalls;
+    private final int iterations;
+    private long yields;
+
+    Warmup(Supplier<H2SchemaCache> schemaCache, IntSupplier activeCalls) {
+        this.schemaCache = schemaCache;
+        this.activeCalls = activeCalls;
+        this.iterations = Math.max(1, SystemSettings.intValue("warmup.iterations", 200));
+    }
+
+    static void startIfEnabled(Supplier<H2SchemaCache> schemaCache, IntSupplier activeCalls) {
+        if (!SystemSettings.booleanValue("warmup", false)) {
+            return;
+        }
+        Thread thread = new Thread(new Warmup(schemaCache, activeCalls), "mcp-warmup");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        long start = System.nanoTime();
+        Path workDirectory = null;
+        try {
+            workDirectory = Files.createTempDirectory("h2-sql-mcp-warmup");
+            Path repository = copySample(SAMPLE_REPOSITORY, workDirectory.resolve("SampleRepository.java"));
+            Path schema = copySample(SAMPLE_SCHEMA, workDirectory.resolve("schema.sql"));
+
+            buildTemplate();
+            RuleEngine ruleEngine = new RuleEngine();
+            QueryExtractor extractor = new QueryExtractor(ruleEngine);
+            // A private cache keeps the warm-up database out of the shared cache's capacity.
+            H2SchemaCache warmupCache = new H2SchemaCache(1);
+            try (H2SchemaCache.Schema h2 = warmupCache.acquire(WARMUP_JDBC_URL, "sa", "", List.of(schema))) {
+                for (int i = 0; i < iterations; i++) {
+                    awaitIdle();
+                    for (String sql : SAMPLE_SQL) {
+                        ParamNormalizer.Result normalized = ParamNormalizer.normalize(sql);
+                        ruleEngine.findHits(normalized.sql());
+                        ruleEngine.rewrite(sql);
+                        prepare(h2, normalized.sql());
+                    }
+                    extractor.extract(repository, "SampleRepository.java");
+                }
+            } finally {
+                warmupCache.clear();
+            }
+            LOGGER.info("Warm-up finished {} iteration(s) in {} ms, yielding to tool calls {} time(s)", iterations,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), yields);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOGGER.warn("Warm-up stopped early", e);
+        } finally {
+            if (workDirectory != null) {
+                deleteQuietly(workDirectory);
+            }
+        }
+    }
+
+    private void buildTemplate() throws InterruptedException {
+        String configured = SystemSettings.stringValue("warmup.initSqlPaths", null);
+        if (configured == null) {
+            return;
+        }
+        List<Path> initPaths = new ArrayList<>();
+        for (String path : configured.split(File.pathSeparator)) {
+            if (!path.isBlank()) {
+                initPaths.add(Path.of(path.trim()));
+            }
+        }
+        String jdbcUrl = SystemSettings.stringValue("warmup.jdbcUrl", H2PrepareTool.DEFAULT_JDBC_URL);
+        awaitIdle();
+        long start = System.nanoTime();
+        try (H2SchemaCache.Schema ignored = schemaCache.get().acquire(jdbcUrl, "sa", "", initPaths)) {
+            LOGGER.info("Warm-up built schema template for {} ({} script(s)) in {} ms", jdbcUrl, initPaths.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (SQLException | IOException e) {
+            LOGGER.warn("Warm-up could not build schema template for {}", jdbcUrl, e);
+        }
+    }
+
+    private static void prepare(H2SchemaCache.Schema schema, String sql) {
+        try (PreparedStatement ignored = schema.connection().prepareStatement(sql)) {
+            // Only prepare, do not execute
+        } catch (SQLException expected) {
+            // Some samples are deliberately Oracle-only; the error path is part of what gets warmed.
+        }
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        boolean yielded = false;
+        while (activeCalls.getAsInt() > 0) {
+            yielded = true;
+            Thread.sleep(IDLE_POLL_MILLIS);
+        }
+        if (yielded) {
+            yields++;
+        }
+    }
+
+    private static Path copySample(String resource, Path target) throws IOException {
+        try (InputStream input = Warmup.class.getResourceAsStream(resource)) {
+            if (input == null) {
+                throw new IOException("Missing bundled sample " + resource);
+            }
+            Files.copy(input, target);
+        }
+        return target;
+    }
+
+    private static void deleteQuietly(Path directory) {
+        try (var paths = Files.list(directory)) {
+            for (Path path : paths.toList()) {
+                Files.deleteIfExists(path);
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            LOGGER.debug("Failed to delete warm-up directory {}", directory, e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.mcp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.mcp.FileExtract")
+@Label("File Extract")
+@Description("Reading one source file and extracting its native queries.")
+@Category({"H2 SQL MCP", "Scan"})
+@StackTrace(false)
+public class FileExtractEvent extends Event {
+    @Label("Path")
+    public String path;
+
+    @Label("File Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Query Count")
+    public int queryCount;
+}
@@ -0,0 +1,24 @@
+package com.example.mcp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.mcp.Prepare")
+@Label("Prepare")
+@Description("Preparing one SQL statement against H2.")
+@Category({"H2 SQL MCP", "H2"})
+@StackTrace(false)
+public class PrepareEvent extends Event {
+    @Label("JDBC URL")
+    public String jdbcUrl;
+
+    @Label("SQL Fingerprint")
+    public String sqlFingerprint;
+
+    @Label("Accepted")
+    public boolean ok;
+}
@@ -0,0 +1,26 @@
+package com.example.mcp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.mcp.ReportWrite")
+@Label("Report Write")
+@Description("Writing prepare report records to the report database or the CSV file.")
+@Category({"H2 SQL MCP", "Report"})
+@StackTrace(false)
+public class ReportWriteEvent extends Event {
+    @Label("Target")
+    public String target;
+
+    @Label("Records")
+    public int records;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+}
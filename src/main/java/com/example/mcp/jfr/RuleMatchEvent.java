@@ -0,0 +1,26 @@
+package com.example.mcp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.mcp.RuleMatch")
+@Label("Rule Match")
+@Description("Running the rewrite and hint rules over one SQL statement.")
+@Category({"H2 SQL MCP", "Scan"})
+@StackTrace(false)
+public class RuleMatchEvent extends Event {
+    @Label("Operation")
+    @Description("findHits or rewrite")
+    public String operation;
+
+    @Label("SQL Length")
+    public int sqlLength;
+
+    @Label("Matches")
+    @Description("Rule hits found, or rules applied for a rewrite")
+    public int matches;
+}
@@ -0,0 +1,21 @@
+package com.example.mcp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.mcp.SchemaInit")
+@Label("Schema Init")
+@Description("Running the init scripts for a new H2 schema.")
+@Category({"H2 SQL MCP", "H2"})
+@StackTrace(false)
+public class SchemaInitEvent extends Event {
+    @Label("JDBC URL")
+    public String jdbcUrl;
+
+    @Label("Script Count")
+    public int scriptCount;
+}
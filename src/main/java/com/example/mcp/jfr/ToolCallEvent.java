@@ -0,0 +1,25 @@
+package com.example.mcp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.mcp.ToolCall")
+@Label("Tool Call")
+@Description("One MCP tools/call request, from argument decoding to the serialized result.")
+@Category({"H2 SQL MCP", "Tools"})
+@StackTrace(false)
+public class ToolCallEvent extends Event {
+    @Label("Tool")
+    public String tool;
+
+    @Label("Result Length")
+    @Description("Characters in the serialized JSON result")
+    public long resultChars;
+
+    @Label("Failed")
+    public boolean failed;
+}
@@ -0,0 +1,300 @@
+package com.example.mcp.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs several tool calls in one round trip.
+ *
+ * <p>Entries without dependencies run in parallel (up to {@code maxParallel}); an entry listing {@code dependsOn}
+ * starts once those entries have finished and is skipped if any of them failed. Every entry reports its own result
+ * or error and timings, so one failing call does not fail the batch.</p>
+ *
+ * <p>Entries share the batch's cancellation: once the client cancels, running entries see it through their context
+ * and entries not yet started are skipped. Progress is reported by the batch as entries finish; the entries' own
+ * progress is dropped, since parallel entries cannot share one growing progress value.</p>
+ */
+public class BatchTool implements Tool {
+    private static final int DEFAULT_PARALLELISM = 4;
+    private static final int MAX_PARALLELISM = 16;
+
+    private final ObjectMapper mapper;
+    private final ToolRegistry registry;
+    private final ToolInvoker invoker;
+
+    public BatchTool(ObjectMapper mapper, ToolRegistry registry, ToolInvoker invoker) {
+        this.mapper = mapper;
+        this.registry = registry;
+        this.invoker = invoker;
+    }
+
+    @Override
+    public String getName() {
+        return "batch";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Execute many tool calls in one request: independent calls run in parallel, 'dependsOn' orders the rest.";
+    }
+
+    @Override
+    public ObjectNode getInputSchema() {
+        ObjectNode schema = mapper.createObjectNode();
+        schema.put("type", "object");
+        ObjectNode properties = mapper.createObjectNode();
+        ObjectNode call = mapper.createObjectNode();
+        call.put("type", "object");
+        ObjectNode callProperties = mapper.createObjectNode();
+        callProperties.putObject("id").put("type", "string")
+                .put("description", "Entry id used in results and dependsOn; defaults to '#<index>'.");
+        callProperties.putObject("tool").put("type", "string");
+        callProperties.putObject("arguments").put("type", "object");
+        ObjectNode dependsOn = mapper.createObjectNode();
+        dependsOn.put("type", "array");
+        dependsOn.putObject("items").put("type", "string");
+        callProperties.set("dependsOn", dependsOn);
+        call.set("properties", callProperties);
+        call.putArray("required").add("tool");
+        ObjectNode calls = mapper.createObjectNode();
+        calls.put("type", "array");
+        calls.set("items", call);
+        properties.set("calls", calls);
+        properties.putObject("maxParallel").put("type", "integer")
+                .put("description", "Maximum entries running at once (default " + DEFAULT_PARALLELISM + ").");
+        schema.set("properties", properties);
+        schema.putArray("required").add("calls");
+        return schema;
+    }
+
+    @Override
+    public JsonNode call(JsonNode arguments) throws Exception {
+        return call(arguments, ToolContext.NONE);
+    }
+
+    @Override
+    public JsonNode call(JsonNode arguments, ToolContext context) throws Exception {
+        List<Entry> entries = readEntries(arguments.get("calls"));
+        int parallelism = Math.max(1, Math.min(MAX_PARALLELISM,
+                Math.min(entries.size(), arguments.path("maxParallel").asInt(DEFAULT_PARALLELISM))));
+
+        long batchStart = System.nanoTime();
+        Map<String, CompletableFuture<EntryResult>> futures = new HashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        List<EntryResult> results = new ArrayList<>(entries.size());
+        ToolContext entryContext = entryContext(context);
+        Progress progress = new Progress(context, entries.size());
+        try {
+            for (Entry entry : orderByDependencies(entries)) {
+                List<CompletableFuture<EntryResult>> dependencies = new ArrayList<>();
+                for (String dependency : entry.dependsOn()) {
+                    dependencies.add(futures.get(dependency));
+                }
+                CompletableFuture<EntryResult> future = CompletableFuture
+                        .allOf(dependencies.toArray(CompletableFuture[]::new))
+                        .thenApplyAsync(ignored -> run(entry, dependencies, entryContext, batchStart), executor)
+                        .whenComplete((result, error) -> progress.entryFinished(entry));
+                futures.put(entry.id(), future);
+            }
+            for (Entry entry : entries) {
+                try {
+                    results.add(futures.get(entry.id()).get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Batch interrupted", e);
+                } catch (ExecutionException e) {
+                    throw new RuntimeException("Batch entry '" + entry.id() + "' failed unexpectedly", e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        ArrayNode resultsNode = mapper.createArrayNode();
+        int failed = 0;
+        for (EntryResult result : results) {
+            if (result.error() != null) {
+                failed++;
+            }
+            resultsNode.add(serialize(result));
+        }
+        ObjectNode node = mapper.createObjectNode();
+        node.set("results", resultsNode);
+        node.put("failed", failed);
+        node.put("parallelism", parallelism);
+        node.put("totalMs", ServerMetricsTool.toMillis(System.nanoTime() - batchStart));
+        return node;
+    }
+
+    private EntryResult run(Entry entry, List<CompletableFuture<EntryResult>> dependencies, ToolContext context,
+                            long batchStart) {
+        long start = System.nanoTime();
+        if (context.isCancelled()) {
+            return new EntryResult(entry, null, "Skipped: the batch was cancelled", true, start - batchStart, 0);
+        }
+        for (CompletableFuture<EntryResult> dependency : dependencies) {
+            EntryResult upstream = dependency.join();
+            if (upstream.error() != null) {
+                return new EntryResult(entry, null, "Skipped: dependency '" + upstream.entry().id() + "' failed",
+                        true, start - batchStart, 0);
+            }
+        }
+        try {
+            JsonNode result = invoker.invoke(entry.tool(), entry.arguments(), context);
+            return new EntryResult(entry, result, null, false, start - batchStart, System.nanoTime() - start);
+        } catch (Exception e) {
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            return new EntryResult(entry, null, message, false, start - batchStart, System.nanoTime() - start);
+        }
+    }
+
+    private static ToolContext entryContext(ToolContext batch) {
+        return new ToolContext() {
+            @Override
+            public boolean isCancelled() {
+                return batch.isCancelled();
+            }
+
+            @Override
+            public void progress(double progress, Double total, String message) {
+            }
+        };
+    }
+
+    private List<Entry> readEntries(JsonNode node) {
+        if (node == null || !node.isArray() || node.isEmpty()) {
+            throw new IllegalArgumentException("'calls' must be a non-empty array");
+        }
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        int index = 0;
+        for (JsonNode element : node) {
+            String id = element.path("id").asText("#" + index);
+            String toolName = element.path("tool").asText(null);
+            if (toolName == null) {
+                throw new IllegalArgumentException("Batch entry '" + id + "' requires a 'tool'");
+            }
+            if (getName().equals(toolName)) {
+                throw new IllegalArgumentException("Batch entry '" + id + "' cannot call 'batch' recursively");
+            }
+            Tool tool = registry.get(toolName);
+            if (tool == null) {
+                throw new IllegalArgumentException("Batch entry '" + id + "' refers to unknown tool '" + toolName + "'");
+            }
+            JsonNode arguments = element.get("arguments");
+            if (arguments == null || arguments.isNull()) {
+                arguments = mapper.createObjectNode();
+            }
+            List<String> dependsOn = new ArrayList<>();
+            JsonNode dependsOnNode = element.get("dependsOn");
+            if (dependsOnNode != null && dependsOnNode.isArray()) {
+                for (JsonNode dependency : dependsOnNode) {
+                    dependsOn.add(dependency.asText());
+                }
+            }
+            if (entries.putIfAbsent(id, new Entry(id, tool, arguments, dependsOn)) != null) {
+                throw new IllegalArgumentException("Duplicate batch entry id '" + id + "'");
+            }
+            index++;
+        }
+        for (Entry entry : entries.values()) {
+            for (String dependency : entry.dependsOn()) {
+                if (!entries.containsKey(dependency)) {
+                    throw new IllegalArgumentException(
+                            "Batch entry '" + entry.id() + "' depends on unknown entry '" + dependency + "'");
+                }
+            }
+        }
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * Depth-first topological order, so every entry's dependencies are scheduled before it.
+     */
+    private static List<Entry> orderByDependencies(List<Entry> entries) {
+        Map<String, Entry> byId = new HashMap<>();
+        for (Entry entry : entries) {
+            byId.put(entry.id(), entry);
+        }
+        List<Entry> ordered = new ArrayList<>(entries.size());
+        Set<String> done = new HashSet<>();
+        Set<String> visiting = new HashSet<>();
+        for (Entry entry : entries) {
+            visit(entry, byId, done, visiting, ordered);
+        }
+        return ordered;
+    }
+
+    private static void visit(Entry entry, Map<String, Entry> byId, Set<String> done, Set<String> visiting,
+                              List<Entry> ordered) {
+        if (done.contains(entry.id())) {
+            return;
+        }
+        if (!visiting.add(entry.id())) {
+            throw new IllegalArgumentException("Batch entries have a dependency cycle through '" + entry.id() + "'");
+        }
+        for (String dependency : entry.dependsOn()) {
+            visit(byId.get(dependency), byId, done, visiting, ordered);
+        }
+        visiting.remove(entry.id());
+        done.add(entry.id());
+        ordered.add(entry);
+    }
+
+    private ObjectNode serialize(EntryResult result) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("id", result.entry().id());
+        node.put("tool", result.entry().tool().getName());
+        node.put("ok", result.error() == null);
+        if (result.error() == null) {
+            node.set("result", result.result());
+        } else {
+            node.put("error", result.error());
+        }
+        if (result.skipped()) {
+            node.put("skipped", true);
+        }
+        node.put("startMs", ServerMetricsTool.toMillis(result.startOffsetNanos()));
+        node.put("elapsedMs", ServerMetricsTool.toMillis(result.elapsedNanos()));
+        return node;
+    }
+
+    private record Entry(String id, Tool tool, JsonNode arguments, List<String> dependsOn) {
+    }
+
+    /**
+     * Counts finished entries; synchronized so the reported values reach the context in increasing order.
+     */
+    private static final class Progress {
+        private final ToolContext context;
+        private final int total;
+        private int finished;
+
+        private Progress(ToolContext context, int total) {
+            this.context = context;
+            this.total = total;
+        }
+
+        synchronized void entryFinished(Entry entry) {
+            finished++;
+            context.progress(finished, (double) total, "Finished '" + entry.id() + "'");
+        }
+    }
+
+    private record EntryResult(Entry entry, JsonNode result, String error, boolean skipped, long startOffsetNanos,
+                               long elapsedNanos) {
+    }
+}
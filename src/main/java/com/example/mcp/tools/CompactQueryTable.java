@@ -0,0 +1,91 @@
+package com.example.mcp.tools;
+
+import com.example.mcp.model.Placeholder;
+import com.example.mcp.model.QueryItem;
+import com.example.mcp.model.RuleHit;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds the {@code format: "compact"} scan result: one row array per query in {@code columns} order, with the
+ * strings that repeat across queries (file, repo, method, placeholder kinds, rule names) replaced by indexes into a
+ * shared {@code strings} table. Placeholders become {@code [kind, token]} and rule hits {@code [rule, snippet]} pairs.
+ */
+final class CompactQueryTable {
+    static final String FORMAT = "compact";
+
+    private final ObjectMapper mapper;
+    private final Set<QueryField> fields;
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private final ArrayNode strings;
+    private final ArrayNode rows;
+
+    CompactQueryTable(ObjectMapper mapper, Set<QueryField> fields) {
+        this.mapper = mapper;
+        this.fields = fields;
+        this.strings = mapper.createArrayNode();
+        this.rows = mapper.createArrayNode();
+    }
+
+    /**
+     * Appends one query; {@code sqlRaw} is passed separately because the caller may have collapsed its whitespace.
+     */
+    void add(QueryItem item, String sqlRaw) {
+        ArrayNode row = rows.addArray();
+        for (QueryField field : fields) {
+            switch (field) {
+                case ID -> row.add(item.id());
+                case FILE -> row.add(intern(item.file()));
+                case REPO -> row.add(intern(item.repo()));
+                case METHOD -> {
+                    if (item.method() == null) {
+                        row.addNull();
+                    } else {
+                        row.add(intern(item.method()));
+                    }
+                }
+                case SQL_RAW -> row.add(sqlRaw);
+                case SQL_NORMALIZED -> row.add(item.sqlNormalized());
+                case PLACEHOLDERS -> {
+                    ArrayNode placeholders = row.addArray();
+                    for (Placeholder placeholder : item.placeholders()) {
+                        placeholders.addArray().add(intern(placeholder.kind())).add(placeholder.token());
+                    }
+                }
+                case RULE_HITS -> {
+                    ArrayNode hits = row.addArray();
+                    for (RuleHit hit : item.ruleHits()) {
+                        hits.addArray().add(intern(hit.rule())).add(hit.snippet());
+                    }
+                }
+            }
+        }
+    }
+
+    ObjectNode toResult() {
+        ObjectNode result = mapper.createObjectNode();
+        result.put("format", FORMAT);
+        ArrayNode columns = result.putArray("columns");
+        for (QueryField field : fields) {
+            columns.add(field.jsonName());
+        }
+        result.set("strings", strings);
+        result.set("queries", rows);
+        return result;
+    }
+
+    private int intern(String value) {
+        Integer index = indexes.get(value);
+        if (index == null) {
+            index = strings.size();
+            indexes.put(value, index);
+            strings.add(value);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,270 @@
+package com.example.mcp.tools;
+
+import com.example.mcp.jfr.PrepareEvent;
+import com.example.mcp.model.PrepareResult;
+import com.example.mcp.util.H2SchemaCache;
+import com.example.mcp.util.Lazy;
+import com.example.mcp.util.Metrics;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Prepares one or more statements against several H2 compatibility configurations in parallel.
+ *
+ * <p>Each configuration gets its own cached schema, so init scripts run once per configuration and identifier case
+ * rules ({@code DATABASE_TO_UPPER}) apply to the tables they create. The result is a matrix of which configuration
+ * accepts which statement plus the configuration accepting the most statements. Configurations are prepared on one
+ * pool of at most {@value #MAX_THREADS} daemon threads shared by all calls.</p>
+ */
+public class H2CompatibilityMatrixTool implements Tool {
+    private static final int MAX_THREADS = 8;
+    private static final Lazy<ExecutorService> EXECUTOR = Lazy.of(() -> {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(MAX_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "mcp-prepare-matrix-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    });
+    private static final List<Configuration> DEFAULT_CONFIGURATIONS = List.of(
+            new Configuration("oracle", H2PrepareTool.DEFAULT_JDBC_URL, null, null),
+            new Configuration("oracle-upper", "jdbc:h2:mem:compat;MODE=Oracle;DEFAULT_NULL_ORDERING=HIGH", null, null),
+            new Configuration("regular", "jdbc:h2:mem:compat", null, null),
+            new Configuration("regular-lower", "jdbc:h2:mem:compat;DATABASE_TO_UPPER=false", null, null),
+            new Configuration("postgresql", "jdbc:h2:mem:compat;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE", null, null)
+    );
+
+    private final ObjectMapper mapper;
+    private final Supplier<H2SchemaCache> schemaCache;
+
+    public H2CompatibilityMatrixTool(ObjectMapper mapper, H2SchemaCache schemaCache) {
+        this(mapper, () -> schemaCache);
+    }
+
+    public H2CompatibilityMatrixTool(ObjectMapper mapper, Supplier<H2SchemaCache> schemaCache) {
+        this.mapper = mapper;
+        this.schemaCache = schemaCache;
+    }
+
+    @Override
+    public String getName() {
+        return "h2.prepare_matrix";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Prepare SQL against several H2 compatibility configurations in parallel and report which accept it.";
+    }
+
+    @Override
+    public ToolCost getCost() {
+        return ToolCost.HEAVY;
+    }
+
+    @Override
+    public ObjectNode getInputSchema() {
+        ObjectNode schema = mapper.createObjectNode();
+        schema.put("type", "object");
+        ObjectNode properties = mapper.createObjectNode();
+        properties.putObject("sql").put("type", "string");
+        ObjectNode statements = mapper.createObjectNode();
+        statements.put("type", "array");
+        statements.put("description", "SQL strings or query objects as returned by jpa.list_native_queries.");
+        properties.set("statements", statements);
+        ObjectNode configurations = mapper.createObjectNode();
+        configurations.put("type", "array");
+        configurations.put("description",
+                "JDBC URLs or {name, jdbcUrl, username, password} objects; defaults to common Oracle/Regular/PostgreSQL modes.");
+        properties.set("configurations", configurations);
+        properties.putObject("username").put("type", "string");
+        properties.putObject("password").put("type", "string");
+        ObjectNode initArray = mapper.createObjectNode();
+        initArray.put("type", "array");
+        initArray.putObject("items").put("type", "string");
+        properties.set("initSqlPaths", initArray);
+        schema.set("properties", properties);
+        return schema;
+    }
+
+    @Override
+    public JsonNode call(JsonNode arguments) throws Exception {
+        List<SqlInputs.SqlInput> statements = new ArrayList<>();
+        String single = arguments.path("sql").asText(null);
+        if (single != null) {
+            statements.add(new SqlInputs.SqlInput("#0", single));
+        }
+        statements.addAll(SqlInputs.read(arguments.get("statements")));
+        if (statements.isEmpty()) {
+            throw new IllegalArgumentException("'sql' or 'statements' is required");
+        }
+        String username = arguments.path("username").asText("sa");
+        String password = arguments.path("password").asText("");
+        List<Configuration> configurations = readConfigurations(arguments.get("configurations"), username, password);
+        List<Path> initPaths = H2PrepareTool.readPaths(arguments.get("initSqlPaths"));
+
+        ExecutorService executor = EXECUTOR.get();
+        List<Future<ConfigurationResult>> futures = new ArrayList<>();
+        List<ConfigurationResult> results = new ArrayList<>();
+        try {
+            for (Configuration configuration : configurations) {
+                futures.add(executor.submit(() -> prepareAll(configuration, statements, initPaths)));
+            }
+            for (Future<ConfigurationResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Preparation interrupted", e);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException runtime) {
+                        throw runtime;
+                    }
+                    throw new RuntimeException("Failed to prepare statements", cause);
+                }
+            }
+        } finally {
+            // After a failure or interruption, stop the configurations still queued or running for this call.
+            for (Future<ConfigurationResult> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return serialize(statements, results);
+    }
+
+    private ConfigurationResult prepareAll(Configuration configuration, List<SqlInputs.SqlInput> statements,
+                                           List<Path> initPaths) throws Exception {
+        List<PrepareResult> outcomes = new ArrayList<>(statements.size());
+        try (H2SchemaCache.Schema schema = schemaCache.get().acquire(
+                configuration.jdbcUrl(), configuration.username(), configuration.password(), initPaths)) {
+            for (SqlInputs.SqlInput statement : statements) {
+                PrepareEvent event = new PrepareEvent();
+                event.begin();
+                long start = System.nanoTime();
+                try (PreparedStatement ignored = schema.connection().prepareStatement(statement.sql())) {
+                    // Only prepare, do not execute
+                    event.ok = true;
+                    outcomes.add(new PrepareResult(true, null));
+                } catch (SQLException e) {
+                    outcomes.add(new PrepareResult(false, H2PrepareTool.toDiagnostics(e)));
+                } finally {
+                    Metrics.record(Metrics.PHASE_PREPARE, System.nanoTime() - start);
+                    H2PrepareTool.commit(event, schema.jdbcUrl(), statement.sql());
+                }
+            }
+            return new ConfigurationResult(configuration, outcomes, null);
+        } catch (SQLException e) {
+            return new ConfigurationResult(configuration, List.of(), H2PrepareTool.toDiagnostics(e).message());
+        }
+    }
+
+    private ObjectNode serialize(List<SqlInputs.SqlInput> statements, List<ConfigurationResult> results) {
+        ArrayNode configurationsNode = mapper.createArrayNode();
+        String best = null;
+        int bestAccepted = -1;
+        for (ConfigurationResult result : results) {
+            int accepted = result.acceptedCount();
+            ObjectNode node = mapper.createObjectNode();
+            node.put("name", result.configuration().name());
+            node.put("jdbcUrl", result.configuration().jdbcUrl());
+            node.put("accepted", accepted);
+            if (result.initError() != null) {
+                node.put("initError", result.initError());
+            }
+            configurationsNode.add(node);
+            if (result.initError() == null && accepted > bestAccepted) {
+                best = result.configuration().name();
+                bestAccepted = accepted;
+            }
+        }
+
+        ArrayNode statementsNode = mapper.createArrayNode();
+        for (int i = 0; i < statements.size(); i++) {
+            ObjectNode node = mapper.createObjectNode();
+            node.put("id", statements.get(i).id());
+            node.put("sql", statements.get(i).sql());
+            ArrayNode acceptedBy = mapper.createArrayNode();
+            ObjectNode perConfiguration = mapper.createObjectNode();
+            for (ConfigurationResult result : results) {
+                if (result.initError() != null) {
+                    continue;
+                }
+                PrepareResult outcome = result.outcomes().get(i);
+                if (outcome.ok()) {
+                    acceptedBy.add(result.configuration().name());
+                }
+                perConfiguration.set(result.configuration().name(), H2PrepareTool.serialize(mapper, outcome));
+            }
+            node.set("acceptedBy", acceptedBy);
+            node.set("results", perConfiguration);
+            statementsNode.add(node);
+        }
+
+        ObjectNode result = mapper.createObjectNode();
+        if (best == null) {
+            result.putNull("bestConfiguration");
+        } else {
+            result.put("bestConfiguration", best);
+        }
+        result.set("configurations", configurationsNode);
+        result.set("statements", statementsNode);
+        return result;
+    }
+
+    private List<Configuration> readConfigurations(JsonNode node, String username, String password) {
+        if (node == null || !node.isArray() || node.isEmpty()) {
+            List<Configuration> defaults = new ArrayList<>();
+            for (Configuration configuration : DEFAULT_CONFIGURATIONS) {
+                defaults.add(new Configuration(configuration.name(), configuration.jdbcUrl(), username, password));
+            }
+            return defaults;
+        }
+        List<Configuration> configurations = new ArrayList<>();
+        for (JsonNode element : node) {
+            if (element.isTextual()) {
+                configurations.add(new Configuration(element.asText(), element.asText(), username, password));
+            } else {
+                String jdbcUrl = element.path("jdbcUrl").asText(null);
+                if (jdbcUrl == null) {
+                    throw new IllegalArgumentException("Each configuration requires a 'jdbcUrl'");
+                }
+                configurations.add(new Configuration(
+                        element.path("name").asText(jdbcUrl),
+                        jdbcUrl,
+                        element.path("username").asText(username),
+                        element.path("password").asText(password)
+                ));
+            }
+        }
+        return configurations;
+    }
+
+    private record Configuration(String name, String jdbcUrl, String username, String password) {
+    }
+
+    private record ConfigurationResult(Configuration configuration, List<PrepareResult> outcomes, String initError) {
+        int acceptedCount() {
+            int count = 0;
+            for (PrepareResult outcome : outcomes) {
+                if (outcome.ok()) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+}
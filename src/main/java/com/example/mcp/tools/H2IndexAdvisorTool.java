@@ -0,0 +1,449 @@
+package com.example.mcp.tools;
+
+import com.example.mcp.util.H2SchemaCache;
+import com.example.mcp.util.SqlTokens;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Suggests single-column indexes for queries whose H2 plans fall back to table scans.
+ *
+ * <p>Every query is EXPLAINed against a private in-memory copy of the schema, built for the call and never shared
+ * with the schema cache, so the validation indexes are invisible to concurrent prepares. A file or server database
+ * named by {@code jdbcUrl} is only read to copy its schema; the init scripts and indexes never reach it. Each query must be a single
+ * statement; {@code EXPLAIN ANALYZE} would execute it and is refused. Columns used in comparison predicates or join conditions on
+ * scanned tables become candidates, ranked by how many queries they would serve. Candidates are then validated one by
+ * one: the index is created, the affected queries are re-planned, and the index is kept only if at least one of them
+ * stops scanning the table. All indexes created during validation are dropped again before the call returns.</p>
+ */
+public class H2IndexAdvisorTool implements Tool {
+    private static final int DEFAULT_MAX_INDEXES = 10;
+    private static final Pattern TABLE_SCAN_PATTERN = Pattern.compile(
+            "(?:FROM|JOIN)\\s+\"([^\"]+)\"\\.\"([^\"]+)\"(?:\\s+\"([^\"]+)\")?\\s*/\\*\\s*[^*]*?\\.tableScan\\s*\\*/");
+    private static final Pattern TABLE_REFERENCE_PATTERN = Pattern.compile(
+            "(?:FROM|JOIN)\\s+\"([^\"]+)\"\\.\"([^\"]+)\"(?:\\s+\"([^\"]+)\")?");
+    private static final Pattern COMMENT_PATTERN = Pattern.compile("/\\*[\\s\\S]*?\\*/");
+    private static final Pattern LEFT_PREDICATE_PATTERN = Pattern.compile(
+            "(?:\"([^\"]+)\"\\.)?\"([^\"]+)\"\\s*(?:=|<=|>=|<|>|LIKE\\b|IN\\b|BETWEEN\\b)");
+    private static final Pattern RIGHT_PREDICATE_PATTERN = Pattern.compile(
+            "(?:=|<=|>=|<|>)\\s*(?:\"([^\"]+)\"\\.)?\"([^\"]+)\"");
+    private static final Pattern SIMPLE_IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+    private static final AtomicLong INDEX_SEQUENCE = new AtomicLong();
+
+    private final ObjectMapper mapper;
+    private final Supplier<H2SchemaCache> schemaCache;
+
+    public H2IndexAdvisorTool(ObjectMapper mapper, H2SchemaCache schemaCache) {
+        this(mapper, () -> schemaCache);
+    }
+
+    public H2IndexAdvisorTool(ObjectMapper mapper, Supplier<H2SchemaCache> schemaCache) {
+        this.mapper = mapper;
+        this.schemaCache = schemaCache;
+    }
+
+    @Override
+    public String getName() {
+        return "h2.advise_indexes";
+    }
+
+    @Override
+    public String getDescription() {
+        return "EXPLAIN queries against H2 and suggest validated CREATE INDEX statements for table scans.";
+    }
+
+    @Override
+    public ToolCost getCost() {
+        return ToolCost.HEAVY;
+    }
+
+    @Override
+    public ObjectNode getInputSchema() {
+        ObjectNode schema = mapper.createObjectNode();
+        schema.put("type", "object");
+        ObjectNode properties = mapper.createObjectNode();
+        ObjectNode queries = mapper.createObjectNode();
+        queries.put("type", "array");
+        queries.put("description", "SQL strings or query objects as returned by jpa.list_native_queries.");
+        properties.set("queries", queries);
+        properties.putObject("jdbcUrl").put("type", "string");
+        properties.putObject("username").put("type", "string");
+        properties.putObject("password").put("type", "string");
+        ObjectNode initArray = mapper.createObjectNode();
+        initArray.put("type", "array");
+        initArray.putObject("items").put("type", "string");
+        properties.set("initSqlPaths", initArray);
+        properties.putObject("maxIndexes").put("type", "integer");
+        schema.set("properties", properties);
+        ArrayNode required = mapper.createArrayNode();
+        required.add("queries");
+        schema.set("required", required);
+        return schema;
+    }
+
+    @Override
+    public JsonNode call(JsonNode arguments) throws Exception {
+        List<AdvisedQuery> queries = readQueries(arguments.get("queries"));
+        if (queries.isEmpty()) {
+            throw new IllegalArgumentException("'queries' must contain at least one SQL statement");
+        }
+        String jdbcUrl = arguments.path("jdbcUrl").asText(H2PrepareTool.DEFAULT_JDBC_URL);
+        String username = arguments.path("username").asText("sa");
+        String password = arguments.path("password").asText("");
+        List<Path> initPaths = H2PrepareTool.readPaths(arguments.get("initSqlPaths"));
+        int maxIndexes = Math.max(0, arguments.path("maxIndexes").asInt(DEFAULT_MAX_INDEXES));
+
+        for (AdvisedQuery query : queries) {
+            requireSingleQuery(query);
+        }
+
+        ObjectNode result = mapper.createObjectNode();
+        // Validation creates and drops indexes, so it must not run on the cached schema other tools prepare against.
+        try (H2SchemaCache.Schema schema = schemaCache.get().acquirePrivate(jdbcUrl, username, password, initPaths)) {
+            advise(schema.connection(), queries, maxIndexes, result);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to initialise H2 schema: " + e.getMessage(), e);
+        }
+        return result;
+    }
+
+    private void advise(Connection connection, List<AdvisedQuery> queries, int maxIndexes, ObjectNode result) {
+        ArrayNode failures = mapper.createArrayNode();
+        Map<String, Set<String>> columnsByTable = new HashMap<>();
+        Map<ColumnRef, Set<Integer>> candidates = new LinkedHashMap<>();
+        int scanning = 0;
+        for (int i = 0; i < queries.size(); i++) {
+            AdvisedQuery query = queries.get(i);
+            try {
+                query.plan = explain(connection, query.sql);
+            } catch (SQLException e) {
+                ObjectNode failure = mapper.createObjectNode();
+                failure.put("id", query.id);
+                failure.put("message", H2PrepareTool.toDiagnostics(e).message());
+                failures.add(failure);
+                continue;
+            }
+            List<TableRef> scans = findScans(query.plan);
+            if (scans.isEmpty()) {
+                continue;
+            }
+            scanning++;
+            for (ColumnRef column : findPredicateColumns(connection, query.plan, scans, columnsByTable)) {
+                candidates.computeIfAbsent(column, ignored -> new LinkedHashSet<>()).add(i);
+            }
+        }
+
+        List<Map.Entry<ColumnRef, Set<Integer>>> ranked = new ArrayList<>(candidates.entrySet());
+        ranked.sort(Comparator.<Map.Entry<ColumnRef, Set<Integer>>>comparingInt(entry -> entry.getValue().size())
+                .reversed()
+                .thenComparing(entry -> entry.getKey().toString()));
+
+        ArrayNode candidatesNode = mapper.createArrayNode();
+        for (Map.Entry<ColumnRef, Set<Integer>> entry : ranked) {
+            ObjectNode node = mapper.createObjectNode();
+            node.put("table", entry.getKey().table());
+            node.put("column", entry.getKey().column());
+            node.set("queries", queryIds(queries, entry.getValue()));
+            candidatesNode.add(node);
+        }
+
+        ArrayNode suggestions = mapper.createArrayNode();
+        ArrayNode rejected = mapper.createArrayNode();
+        List<String> createdIndexes = new ArrayList<>();
+        try {
+            for (Map.Entry<ColumnRef, Set<Integer>> entry : ranked) {
+                if (suggestions.size() >= maxIndexes) {
+                    break;
+                }
+                ColumnRef column = entry.getKey();
+                List<Integer> pending = new ArrayList<>();
+                for (int index : entry.getValue()) {
+                    if (countScans(queries.get(index).plan, column) > 0) {
+                        pending.add(index);
+                    }
+                }
+                if (pending.isEmpty()) {
+                    continue;
+                }
+                String indexName = "MCP_ADVISOR_IDX_" + INDEX_SEQUENCE.incrementAndGet();
+                String qualifiedIndex = quote(column.schema()) + "." + quote(indexName);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("CREATE INDEX " + qualifiedIndex + " ON " + quote(column.schema()) + "."
+                            + quote(column.table()) + " (" + quote(column.column()) + ")");
+                } catch (SQLException e) {
+                    rejected.add(rejection(column, "CREATE INDEX failed: " + e.getMessage()));
+                    continue;
+                }
+                createdIndexes.add(qualifiedIndex);
+                Set<Integer> improved = new LinkedHashSet<>();
+                for (int index : pending) {
+                    AdvisedQuery query = queries.get(index);
+                    try {
+                        String replanned = explain(connection, query.sql);
+                        if (countScans(replanned, column) < countScans(query.plan, column)) {
+                            query.plan = replanned;
+                            improved.add(index);
+                        }
+                    } catch (SQLException e) {
+                        // The query planned before the index existed; treat a failure as "not improved".
+                    }
+                }
+                if (improved.isEmpty()) {
+                    dropIndex(connection, qualifiedIndex);
+                    createdIndexes.remove(qualifiedIndex);
+                    rejected.add(rejection(column, "H2 did not use the index for any affected query"));
+                    continue;
+                }
+                ObjectNode suggestion = mapper.createObjectNode();
+                suggestion.put("statement", suggestedStatement(column));
+                suggestion.put("table", column.table());
+                suggestion.put("column", column.column());
+                suggestion.set("improvedQueries", queryIds(queries, improved));
+                suggestions.add(suggestion);
+            }
+        } finally {
+            for (String index : createdIndexes) {
+                dropIndex(connection, index);
+            }
+        }
+
+        int remaining = 0;
+        for (AdvisedQuery query : queries) {
+            if (query.plan != null && !findScans(query.plan).isEmpty()) {
+                remaining++;
+            }
+        }
+        result.put("analyzedQueries", queries.size() - failures.size());
+        result.put("queriesWithTableScans", scanning);
+        result.put("queriesWithTableScansAfterSuggestions", remaining);
+        result.set("suggestions", suggestions);
+        result.set("candidates", candidatesNode);
+        result.set("rejected", rejected);
+        if (!failures.isEmpty()) {
+            result.set("failedQueries", failures);
+        }
+    }
+
+    /**
+     * Rejects input that would do more than plan one statement: a second statement after a semicolon, or a leading
+     * {@code ANALYZE} that turns the EXPLAIN into an execution.
+     */
+    private static void requireSingleQuery(AdvisedQuery query) {
+        if (query.sql == null) {
+            return;
+        }
+        SqlTokens tokens = SqlTokens.of(query.sql);
+        boolean firstCode = true;
+        boolean terminated = false;
+        for (int t = 0; t < tokens.count(); t++) {
+            int type = tokens.type(t);
+            if (type == SqlTokens.WHITESPACE || type == SqlTokens.LINE_COMMENT || type == SqlTokens.BLOCK_COMMENT) {
+                continue;
+            }
+            if (terminated) {
+                throw new IllegalArgumentException("Query '" + query.id + "' must be a single SQL statement");
+            }
+            if (firstCode && tokens.textEqualsIgnoreCase(t, "ANALYZE")) {
+                throw new IllegalArgumentException("Query '" + query.id + "' must not start with ANALYZE");
+            }
+            firstCode = false;
+            terminated = tokens.textEqualsIgnoreCase(t, ";");
+        }
+    }
+
+    private String explain(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql);
+             ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() ? resultSet.getString(1) : "";
+        }
+    }
+
+    private List<TableRef> findScans(String plan) {
+        List<TableRef> scans = new ArrayList<>();
+        Matcher matcher = TABLE_SCAN_PATTERN.matcher(plan);
+        while (matcher.find()) {
+            scans.add(new TableRef(matcher.group(1), matcher.group(2), matcher.group(3)));
+        }
+        return scans;
+    }
+
+    private int countScans(String plan, ColumnRef column) {
+        int count = 0;
+        for (TableRef scan : findScans(plan)) {
+            if (scan.schema().equals(column.schema()) && scan.table().equals(column.table())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private Set<ColumnRef> findPredicateColumns(Connection connection, String plan, List<TableRef> scans,
+                                                Map<String, Set<String>> columnsByTable) {
+        Map<String, TableRef> byQualifier = new HashMap<>();
+        Matcher references = TABLE_REFERENCE_PATTERN.matcher(plan);
+        while (references.find()) {
+            TableRef reference = new TableRef(references.group(1), references.group(2), references.group(3));
+            byQualifier.putIfAbsent(reference.table(), reference);
+            if (reference.alias() != null) {
+                byQualifier.put(reference.alias(), reference);
+            }
+        }
+        String conditions = COMMENT_PATTERN.matcher(plan).replaceAll(" ");
+        int from = conditions.indexOf("\nFROM ");
+        if (from >= 0) {
+            conditions = conditions.substring(from);
+        }
+
+        Set<ColumnRef> columns = new LinkedHashSet<>();
+        for (Pattern pattern : List.of(LEFT_PREDICATE_PATTERN, RIGHT_PREDICATE_PATTERN)) {
+            Matcher matcher = pattern.matcher(conditions);
+            while (matcher.find()) {
+                ColumnRef column = resolveColumn(connection, matcher.group(1), matcher.group(2), scans, byQualifier,
+                        columnsByTable);
+                if (column != null) {
+                    columns.add(column);
+                }
+            }
+        }
+        return columns;
+    }
+
+    private ColumnRef resolveColumn(Connection connection, String qualifier, String column, List<TableRef> scans,
+                                    Map<String, TableRef> byQualifier, Map<String, Set<String>> columnsByTable) {
+        if (qualifier != null) {
+            TableRef table = byQualifier.get(qualifier);
+            if (table == null || !isScanned(table, scans)) {
+                return null;
+            }
+            return new ColumnRef(table.schema(), table.table(), column);
+        }
+        ColumnRef resolved = null;
+        for (TableRef scan : scans) {
+            if (tableColumns(connection, scan, columnsByTable).contains(column)) {
+                if (resolved != null) {
+                    // Ambiguous unqualified column; H2 would have qualified it if it mattered.
+                    return null;
+                }
+                resolved = new ColumnRef(scan.schema(), scan.table(), column);
+            }
+        }
+        return resolved;
+    }
+
+    private boolean isScanned(TableRef table, List<TableRef> scans) {
+        for (TableRef scan : scans) {
+            if (scan.schema().equals(table.schema()) && scan.table().equals(table.table())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Set<String> tableColumns(Connection connection, TableRef table, Map<String, Set<String>> columnsByTable) {
+        return columnsByTable.computeIfAbsent(table.schema() + "." + table.table(), ignored -> {
+            Set<String> columns = new LinkedHashSet<>();
+            try (ResultSet resultSet = connection.getMetaData()
+                    .getColumns(null, table.schema(), table.table(), null)) {
+                while (resultSet.next()) {
+                    columns.add(resultSet.getString("COLUMN_NAME"));
+                }
+            } catch (SQLException e) {
+                // Without metadata only qualified predicates can be attributed.
+            }
+            return columns;
+        });
+    }
+
+    private void dropIndex(Connection connection, String qualifiedIndex) {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP INDEX IF EXISTS " + qualifiedIndex);
+        } catch (SQLException ignored) {
+            // Best effort; the index name is unique to this advisor run.
+        }
+    }
+
+    private String suggestedStatement(ColumnRef column) {
+        String indexName = ("IDX_" + column.table() + "_" + column.column())
+                .replaceAll("[^A-Za-z0-9_]", "_")
+                .toUpperCase(Locale.ROOT);
+        String table = "PUBLIC".equals(column.schema())
+                ? identifier(column.table())
+                : identifier(column.schema()) + "." + identifier(column.table());
+        return "CREATE INDEX " + indexName + " ON " + table + " (" + identifier(column.column()) + ");";
+    }
+
+    private String identifier(String name) {
+        return SIMPLE_IDENTIFIER.matcher(name).matches() ? name : quote(name);
+    }
+
+    private static String quote(String name) {
+        return '"' + name.replace("\"", "\"\"") + '"';
+    }
+
+    private ObjectNode rejection(ColumnRef column, String reason) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("table", column.table());
+        node.put("column", column.column());
+        node.put("reason", reason);
+        return node;
+    }
+
+    private ArrayNode queryIds(List<AdvisedQuery> queries, Set<Integer> indexes) {
+        ArrayNode ids = mapper.createArrayNode();
+        for (int index : indexes) {
+            ids.add(queries.get(index).id);
+        }
+        return ids;
+    }
+
+    private List<AdvisedQuery> readQueries(JsonNode node) {
+        List<AdvisedQuery> queries = new ArrayList<>();
+        for (SqlInputs.SqlInput input : SqlInputs.read(node)) {
+            queries.add(new AdvisedQuery(input.id(), input.sql()));
+        }
+        return queries;
+    }
+
+    private static final class AdvisedQuery {
+        private final String id;
+        private final String sql;
+        private String plan;
+
+        private AdvisedQuery(String id, String sql) {
+            this.id = id;
+            this.sql = sql;
+        }
+    }
+
+    private record TableRef(String schema, String table, String alias) {
+    }
+
+    private record ColumnRef(String schema, String table, String column) {
+        @Override
+        public String toString() {
+            return schema + "." + table + "." + column;
+        }
+    }
+}
@@ -2,32 +2,40 @@ package com.example.mcp.tools;
 
 import com.example.mcp.model.PrepareDiagnostics;
 import com.example.mcp.model.PrepareResult;
+import com.example.mcp.jfr.PrepareEvent;
+import com.example.mcp.util.H2SchemaCache;
+import com.example.mcp.util.Metrics;
+import com.example.mcp.util.SqlFingerprint;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import org.h2.tools.RunScript;
 
-import java.io.IOException;
-import java.io.Reader;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class H2PrepareTool implements Tool {
+    public static final String DEFAULT_JDBC_URL = "jdbc:h2:mem:compat;MODE=Oracle;DATABASE_TO_UPPER=false;DEFAULT_NULL_ORDERING=HIGH";
     private static final Pattern LINE_COLUMN_PATTERN = Pattern.compile("line (\\d+), column (\\d+)");
 
     private final ObjectMapper mapper;
+    private final Supplier<H2SchemaCache> schemaCache;
 
-    public H2PrepareTool(ObjectMapper mapper) {
+    public H2PrepareTool(ObjectMapper mapper, H2SchemaCache schemaCache) {
+        this(mapper, () -> schemaCache);
+    }
+
+    /**
+     * Takes the schema cache through a supplier, so the server creates it only when an H2 tool is first called.
+     */
+    public H2PrepareTool(ObjectMapper mapper, Supplier<H2SchemaCache> schemaCache) {
         this.mapper = mapper;
+        this.schemaCache = schemaCache;
     }
 
     @Override
@@ -40,6 +48,11 @@ public class H2PrepareTool implements Tool {
         return "Prepare SQL against an H2 database without executing it.";
     }
 
+    @Override
+    public ToolCost getCost() {
+        return ToolCost.HEAVY;
+    }
+
     @Override
     public ObjectNode getInputSchema() {
         ObjectNode schema = mapper.createObjectNode();
@@ -66,33 +79,40 @@ public class H2PrepareTool implements Tool {
         if (sql == null) {
             throw new IllegalArgumentException("'sql' is required");
         }
-        String jdbcUrl = arguments.path("jdbcUrl").asText("jdbc:h2:mem:compat;MODE=Oracle;DATABASE_TO_UPPER=false;DEFAULT_NULL_ORDERING=HIGH");
+        String jdbcUrl = arguments.path("jdbcUrl").asText(DEFAULT_JDBC_URL);
         String username = arguments.path("username").asText("sa");
         String password = arguments.path("password").asText("");
         List<Path> initPaths = readPaths(arguments.get("initSqlPaths"));
 
-        try (Connection connection = DriverManager.getConnection(jdbcUrl, username, password)) {
-            for (Path path : initPaths) {
-                if (Files.exists(path)) {
-                    try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
-                        RunScript.execute(connection, reader);
-                    }
-                }
-            }
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+        try (H2SchemaCache.Schema schema = schemaCache.get().acquire(jdbcUrl, username, password, initPaths)) {
+            PrepareEvent event = new PrepareEvent();
+            event.begin();
+            long start = System.nanoTime();
+            try (PreparedStatement statement = schema.connection().prepareStatement(sql)) {
                 // Only prepare, do not execute
+                event.ok = true;
+                return serialize(mapper, new PrepareResult(true, null));
+            } finally {
+                Metrics.record(Metrics.PHASE_PREPARE, System.nanoTime() - start);
+                commit(event, schema.jdbcUrl(), sql);
             }
-            return serialize(new PrepareResult(true, null));
-        } catch (SQLException | IOException e) {
-            if (e instanceof SQLException sqlException) {
-                PrepareDiagnostics diagnostics = toDiagnostics(sqlException);
-                return serialize(new PrepareResult(false, diagnostics));
-            }
-            throw e;
+        } catch (SQLException e) {
+            return serialize(mapper, new PrepareResult(false, toDiagnostics(e)));
+        }
+    }
+
+    /**
+     * Fills in and commits a prepare event; the fingerprint is only computed while a recording wants the event.
+     */
+    static void commit(PrepareEvent event, String jdbcUrl, String sql) {
+        if (event.shouldCommit()) {
+            event.jdbcUrl = jdbcUrl;
+            event.sqlFingerprint = SqlFingerprint.of(sql);
+            event.commit();
         }
     }
 
-    private PrepareDiagnostics toDiagnostics(SQLException exception) {
+    static PrepareDiagnostics toDiagnostics(SQLException exception) {
         String message = exception.getMessage();
         Matcher matcher = LINE_COLUMN_PATTERN.matcher(message == null ? "" : message);
         Integer line = null;
@@ -110,7 +130,7 @@ public class H2PrepareTool implements Tool {
         );
     }
 
-    private ObjectNode serialize(PrepareResult result) {
+    static ObjectNode serialize(ObjectMapper mapper, PrepareResult result) {
         ObjectNode node = mapper.createObjectNode();
         node.put("ok", result.ok());
         if (result.diagnostics() == null) {
@@ -135,7 +155,7 @@ public class H2PrepareTool implements Tool {
         return node;
     }
 
-    private List<Path> readPaths(JsonNode node) {
+    static List<Path> readPaths(JsonNode node) {
         List<Path> paths = new ArrayList<>();
         if (node == null || !node.isArray()) {
             return paths;
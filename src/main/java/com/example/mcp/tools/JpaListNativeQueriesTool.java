@@ -3,8 +3,13 @@ package com.example.mcp.tools;
 import com.example.mcp.model.Placeholder;
 import com.example.mcp.model.QueryItem;
 import com.example.mcp.model.RuleHit;
+import com.example.mcp.util.Lazy;
+import com.example.mcp.util.Metrics;
 import com.example.mcp.util.QueryExtractor;
+import com.example.mcp.util.QueryFilter;
 import com.example.mcp.util.RuleEngine;
+import com.example.mcp.util.SqlTokens;
+import com.example.mcp.util.SystemSettings;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
@@ -14,25 +19,44 @@ import java.io.IOException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class JpaListNativeQueriesTool implements Tool {
     private static final int MAX_THREADS = 15;
+    private static final int IN_FLIGHT_PER_THREAD = 4;
+    private static final int DEFAULT_SPILL_THRESHOLD = 10_000;
+    private static final Set<QueryField> INVENTORY_FIELDS =
+            EnumSet.of(QueryField.ID, QueryField.FILE, QueryField.REPO, QueryField.METHOD);
+    private static final Set<QueryField> SQL_FIELDS =
+            EnumSet.of(QueryField.ID, QueryField.FILE, QueryField.REPO, QueryField.METHOD, QueryField.SQL_RAW);
 
     private final ObjectMapper mapper;
-    private final QueryExtractor extractor;
+    private final Lazy<RuleEngine> ruleEngine;
+    private final Lazy<QueryExtractor> extractor;
 
     public JpaListNativeQueriesTool(ObjectMapper mapper) {
         this.mapper = mapper;
-        this.extractor = new QueryExtractor(new RuleEngine());
+        this.ruleEngine = Lazy.of(RuleEngine::new);
+        this.extractor = Lazy.of(() -> new QueryExtractor(ruleEngine.get()));
     }
 
     @Override
@@ -45,6 +69,11 @@ public class JpaListNativeQueriesTool implements Tool {
         return "Scan JPA repository sources and list native SQL queries.";
     }
 
+    @Override
+    public ToolCost getCost() {
+        return ToolCost.HEAVY;
+    }
+
     @Override
     public ObjectNode getInputSchema() {
         ObjectNode schema = mapper.createObjectNode();
@@ -56,6 +85,51 @@ public class JpaListNativeQueriesTool implements Tool {
         ObjectNode collapseWhitespace = mapper.createObjectNode();
         collapseWhitespace.put("type", "boolean");
         properties.set("collapseWhitespace", collapseWhitespace);
+        ObjectNode fields = arrayOfStrings();
+        fields.put("description", "Query fields to return (id, file, repo, method, sqlRaw, sqlNormalized, "
+                + "placeholders, ruleHits); overrides 'level'. Analysis for fields not requested is skipped.");
+        properties.set("fields", fields);
+        ObjectNode level = mapper.createObjectNode();
+        level.put("type", "string");
+        level.putArray("enum").add("inventory").add("sql").add("full");
+        level.put("description", "inventory: id, file, repo, method; sql: adds sqlRaw; full (default): everything.");
+        properties.set("level", level);
+        ObjectNode format = mapper.createObjectNode();
+        format.put("type", "string");
+        format.putArray("enum").add("objects").add(CompactQueryTable.FORMAT);
+        format.put("description", "compact: rows in 'columns' order with file, repo, method, placeholder kinds and "
+                + "rule names as indexes into 'strings'.");
+        properties.set("format", format);
+        ObjectNode output = mapper.createObjectNode();
+        output.put("type", "string");
+        output.putArray("enum").add("auto").add("inline").add("file");
+        output.put("description", "auto (default): inline unless more than 'spillThreshold' queries are found, then "
+                + "written to an NDJSON file whose path is returned; inline: always inline; file: always NDJSON.");
+        properties.set("output", output);
+        properties.putObject("spillThreshold").put("type", "integer")
+                .put("description", "Query count above which 'auto' output spills to a file (default "
+                        + DEFAULT_SPILL_THRESHOLD + ").");
+        ObjectNode filter = mapper.createObjectNode();
+        filter.put("type", "object");
+        filter.put("description", "Return only queries meeting every condition given. Evaluated while scanning, "
+                + "before normalization where possible, so non-matching queries cost little.");
+        ObjectNode filterProperties = mapper.createObjectNode();
+        ObjectNode rules = arrayOfStrings();
+        rules.put("description", "Rule names (e.g. ROWNUM_USAGE, CONNECT_BY_USAGE) of which at least one must hit.");
+        filterProperties.set("rules", rules);
+        filterProperties.putObject("sqlContains").put("type", "string")
+                .put("description", "Text the SQL must contain, ignoring case (e.g. a table name).");
+        filterProperties.putObject("sqlPattern").put("type", "string")
+                .put("description", "Java regular expression found in the SQL, ignoring case.");
+        filterProperties.putObject("repoPattern").put("type", "string")
+                .put("description", "Java regular expression found in the repository name.");
+        filterProperties.putObject("minPlaceholders").put("type", "integer")
+                .put("description", "Minimum number of parameter placeholders.");
+        filter.set("properties", filterProperties);
+        properties.set("filter", filter);
+        properties.putObject("limit").put("type", "integer").put("minimum", 1)
+                .put("description", "Stop scanning once this many queries were found; the result then carries "
+                        + "'truncated': true if anything was left unscanned.");
         schema.set("properties", properties);
         ArrayNode required = mapper.createArrayNode();
         required.add("rootDirs");
@@ -74,69 +148,170 @@ public class JpaListNativeQueriesTool implements Tool {
 
     @Override
     public JsonNode call(JsonNode arguments) throws Exception {
+        return call(arguments, ToolContext.NONE);
+    }
+
+    /**
+     * Files are consumed in walk order. With a {@code limit} the walk is streamed instead of listed up front and
+     * stops, together with the extractions still in flight, as soon as enough queries were accepted, so the result
+     * is the first {@code limit} queries in file order.
+     */
+    @Override
+    public JsonNode call(JsonNode arguments, ToolContext context) throws Exception {
         List<Path> roots = readPathArray(arguments.get("rootDirs"));
         List<String> includeGlobs = readStringArray(arguments.get("includeGlobs"));
         List<String> excludeGlobs = readStringArray(arguments.get("excludeGlobs"));
         boolean collapseWhitespace = readBoolean(arguments.get("collapseWhitespace"), false);
+        Set<QueryField> fields = readFields(arguments);
+        QueryExtractor.Options options = new QueryExtractor.Options(
+                fields.contains(QueryField.SQL_RAW),
+                fields.contains(QueryField.SQL_NORMALIZED) || fields.contains(QueryField.PLACEHOLDERS),
+                fields.contains(QueryField.RULE_HITS));
+        boolean compact = readCompactFormat(arguments.get("format"));
+        Output output = readOutput(arguments.get("output"));
+        int spillThreshold = arguments.path("spillThreshold")
+                .asInt(SystemSettings.intValue("scan.spillThreshold", DEFAULT_SPILL_THRESHOLD));
+        int limit = readLimit(arguments.get("limit"));
+        QueryFilter filter = readFilter(arguments.get("filter"));
 
-        ArrayNode queriesNode = mapper.createArrayNode();
         ArrayNode errorsNode = mapper.createArrayNode();
-        Set<String> seen = new HashSet<>();
-        for (Path root : roots) {
-            if (!Files.exists(root)) {
-                continue;
-            }
-            List<Path> files;
-            try (var stream = Files.walk(root)) {
-                files = stream.filter(Files::isRegularFile)
-                        .filter(path -> shouldInclude(root, path, includeGlobs, excludeGlobs))
-                        .collect(Collectors.toList());
-            } catch (IOException e) {
-                throw new RuntimeException("Failed to scan root: " + root, e);
-            }
-            if (files.isEmpty()) {
-                continue;
-            }
-            ExecutorService executor = Executors.newFixedThreadPool(Math.min(MAX_THREADS, files.size()));
-            List<Future<FileScanResult>> futures = new ArrayList<>();
-            try {
-                for (Path path : files) {
-                    futures.add(executor.submit(() -> scanFile(root, path)));
+        ScanProgress progress = new ScanProgress(context);
+        long found = 0;
+        boolean truncated = false;
+        try (QueryCollector collector = new QueryCollector(fields, collapseWhitespace, compact, output, spillThreshold)) {
+            for (int rootIndex = 0; rootIndex < roots.size() && !truncated; rootIndex++) {
+                Path root = roots.get(rootIndex);
+                if (!Files.exists(root)) {
+                    continue;
                 }
-                for (Future<FileScanResult> future : futures) {
-                    FileScanResult result;
+                try (FileWalk walk = limit > 0
+                        ? FileWalk.streamed(root, path -> shouldInclude(root, path, includeGlobs, excludeGlobs))
+                        : FileWalk.listed(root, path -> shouldInclude(root, path, includeGlobs, excludeGlobs))) {
+                    if (!walk.hasNext()) {
+                        continue;
+                    }
+                    progress.addFiles(walk.size());
+                    int threads = walk.size() < 0 ? MAX_THREADS : Math.min(MAX_THREADS, walk.size());
+                    ExecutorService executor = Executors.newFixedThreadPool(threads);
+                    // Only a bounded window of files is in flight, so finished-but-unconsumed results stay bounded
+                    // while the output keeps file order.
+                    Deque<Future<FileScanResult>> pending = new ArrayDeque<>();
                     try {
-                        result = future.get();
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        throw new RuntimeException("Scanning interrupted", e);
-                    } catch (ExecutionException e) {
-                        Throwable cause = e.getCause();
-                        if (cause instanceof RuntimeException runtime) {
-                            throw runtime;
+                        while (walk.hasNext() || !pending.isEmpty()) {
+                            if (context.isCancelled()) {
+                                throw new CancellationException("Scan cancelled by the client");
+                            }
+                            while (walk.hasNext() && pending.size() < threads * IN_FLIGHT_PER_THREAD) {
+                                Path path = walk.next();
+                                pending.add(executor.submit(() -> scanFile(root, path, options, filter)));
+                            }
+                            FileScanResult result = await(pending.poll(), root);
+                            for (QueryItem item : result.items()) {
+                                if (limit > 0 && found >= limit) {
+                                    truncated = true;
+                                    break;
+                                }
+                                if (collector.add(item)) {
+                                    found++;
+                                }
+                            }
+                            for (String error : result.errors()) {
+                                errorsNode.add(error);
+                            }
+                            progress.fileScanned(found);
+                            if (limit > 0 && found >= limit) {
+                                truncated |= !pending.isEmpty() || walk.hasNext() || rootIndex < roots.size() - 1;
+                                break;
+                            }
                         }
-                        throw new RuntimeException("Failed to scan file under root: " + root, cause);
-                    }
-                    for (QueryItem item : result.items()) {
-                        String key = item.id() + "@" + item.file();
-                        if (seen.add(key)) {
-                            queriesNode.add(serialize(item, collapseWhitespace));
+                    } finally {
+                        for (Future<FileScanResult> future : pending) {
+                            future.cancel(true);
                         }
-                    }
-                    for (String error : result.errors()) {
-                        errorsNode.add(error);
+                        executor.shutdownNow();
                     }
                 }
-            } finally {
-                executor.shutdownNow();
             }
+            ObjectNode result = collector.finish();
+            if (truncated) {
+                result.put("truncated", true);
+            }
+            if (!errorsNode.isEmpty()) {
+                result.set("errors", errorsNode);
+            }
+            return result;
         }
-        ObjectNode result = mapper.createObjectNode();
-        result.set("queries", queriesNode);
-        if (!errorsNode.isEmpty()) {
-            result.set("errors", errorsNode);
+    }
+
+    private QueryFilter readFilter(JsonNode node) {
+        if (node == null || node.isNull()) {
+            return QueryFilter.NONE;
+        }
+        if (!node.isObject()) {
+            throw new IllegalArgumentException("'filter' must be an object");
+        }
+        Set<String> rules = new LinkedHashSet<>(readStringArray(node.get("rules")));
+        Set<String> known = ruleEngine.get().ruleNames();
+        for (String rule : rules) {
+            if (!known.contains(rule)) {
+                throw new IllegalArgumentException("Unknown rule '" + rule + "' in 'filter.rules'; known rules: "
+                        + String.join(", ", known));
+            }
         }
-        return result;
+        String sqlContains = node.path("sqlContains").asText(null);
+        return new QueryFilter(rules,
+                sqlContains == null || sqlContains.isEmpty() ? null : sqlContains,
+                readPattern(node, "sqlPattern", Pattern.CASE_INSENSITIVE),
+                readPattern(node, "repoPattern", 0),
+                Math.max(0, node.path("minPlaceholders").asInt(0)));
+    }
+
+    private static Pattern readPattern(JsonNode filter, String name, int flags) {
+        String regex = filter.path(name).asText(null);
+        if (regex == null || regex.isEmpty()) {
+            return null;
+        }
+        try {
+            return Pattern.compile(regex, flags);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("Invalid 'filter." + name + "': " + e.getDescription(), e);
+        }
+    }
+
+    private static int readLimit(JsonNode node) {
+        if (node == null || node.isNull()) {
+            return 0;
+        }
+        int limit = node.asInt(0);
+        if (limit < 1) {
+            throw new IllegalArgumentException("'limit' must be a positive integer");
+        }
+        return limit;
+    }
+
+    private static FileScanResult await(Future<FileScanResult> future, Path root) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Scanning interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new RuntimeException("Failed to scan file under root: " + root, cause);
+        }
+    }
+
+    private Output readOutput(JsonNode node) {
+        String output = node == null || node.isNull() ? "auto" : node.asText();
+        return switch (output) {
+            case "auto" -> Output.AUTO;
+            case "inline" -> Output.INLINE;
+            case "file" -> Output.FILE;
+            default -> throw new IllegalArgumentException("Unknown output '" + output + "'; use auto, inline or file");
+        };
     }
 
     private boolean shouldInclude(Path root, Path file, List<String> includes, List<String> excludes) {
@@ -180,10 +355,37 @@ public class JpaListNativeQueriesTool implements Tool {
         return values;
     }
 
-    private FileScanResult scanFile(Path root, Path path) {
+    private boolean readCompactFormat(JsonNode node) {
+        String format = node == null || node.isNull() ? "objects" : node.asText();
+        return switch (format) {
+            case "objects" -> false;
+            case CompactQueryTable.FORMAT -> true;
+            default -> throw new IllegalArgumentException("Unknown format '" + format + "'; use objects or compact");
+        };
+    }
+
+    private Set<QueryField> readFields(JsonNode arguments) {
+        JsonNode fieldsNode = arguments.get("fields");
+        if (fieldsNode != null && fieldsNode.isArray() && !fieldsNode.isEmpty()) {
+            Set<QueryField> fields = EnumSet.noneOf(QueryField.class);
+            for (JsonNode element : fieldsNode) {
+                fields.add(QueryField.fromName(element.asText()));
+            }
+            return fields;
+        }
+        String level = arguments.path("level").asText("full");
+        return switch (level) {
+            case "inventory" -> INVENTORY_FIELDS;
+            case "sql" -> SQL_FIELDS;
+            case "full" -> EnumSet.allOf(QueryField.class);
+            default -> throw new IllegalArgumentException("Unknown level '" + level + "'; use inventory, sql or full");
+        };
+    }
+
+    private FileScanResult scanFile(Path root, Path path, QueryExtractor.Options options, QueryFilter filter) {
         String relative = normalizeToUnixSeparators(root.relativize(path).toString());
         try {
-            List<QueryItem> items = extractor.extract(path, relative);
+            List<QueryItem> items = extractor.get().extract(path, relative, options, filter);
             return new FileScanResult(items, List.of());
         } catch (IOException e) {
             String message = String.format(
@@ -195,30 +397,46 @@ public class JpaListNativeQueriesTool implements Tool {
         }
     }
 
-    private ObjectNode serialize(QueryItem item, boolean collapseWhitespace) {
+    private ObjectNode serialize(QueryItem item, Set<QueryField> fields, boolean collapseWhitespace) {
         ObjectNode node = mapper.createObjectNode();
-        node.put("id", item.id());
-        node.put("file", item.file());
-        node.put("repo", item.repo());
-        putNullable(node, "method", item.method());
-        node.put("sqlRaw", collapseWhitespace ? collapseSqlWhitespace(item.sqlRaw()) : item.sqlRaw());
-        node.put("sqlNormalized", item.sqlNormalized());
-        ArrayNode placeholders = mapper.createArrayNode();
-        for (Placeholder placeholder : item.placeholders()) {
-            ObjectNode placeholderNode = mapper.createObjectNode();
-            placeholderNode.put("kind", placeholder.kind());
-            placeholderNode.put("token", placeholder.token());
-            placeholders.add(placeholderNode);
-        }
-        node.set("placeholders", placeholders);
-        ArrayNode hits = mapper.createArrayNode();
-        for (RuleHit hit : item.ruleHits()) {
-            ObjectNode hitNode = mapper.createObjectNode();
-            hitNode.put("rule", hit.rule());
-            hitNode.put("snippet", hit.snippet());
-            hits.add(hitNode);
-        }
-        node.set("ruleHits", hits);
+        if (fields.contains(QueryField.ID)) {
+            node.put("id", item.id());
+        }
+        if (fields.contains(QueryField.FILE)) {
+            node.put("file", item.file());
+        }
+        if (fields.contains(QueryField.REPO)) {
+            node.put("repo", item.repo());
+        }
+        if (fields.contains(QueryField.METHOD)) {
+            putNullable(node, "method", item.method());
+        }
+        if (fields.contains(QueryField.SQL_RAW)) {
+            node.put("sqlRaw", collapseWhitespace ? collapseSqlWhitespace(item.sqlRaw()) : item.sqlRaw());
+        }
+        if (fields.contains(QueryField.SQL_NORMALIZED)) {
+            node.put("sqlNormalized", item.sqlNormalized());
+        }
+        if (fields.contains(QueryField.PLACEHOLDERS)) {
+            ArrayNode placeholders = mapper.createArrayNode();
+            for (Placeholder placeholder : item.placeholders()) {
+                ObjectNode placeholderNode = mapper.createObjectNode();
+                placeholderNode.put("kind", placeholder.kind());
+                placeholderNode.put("token", placeholder.token());
+                placeholders.add(placeholderNode);
+            }
+            node.set("placeholders", placeholders);
+        }
+        if (fields.contains(QueryField.RULE_HITS)) {
+            ArrayNode hits = mapper.createArrayNode();
+            for (RuleHit hit : item.ruleHits()) {
+                ObjectNode hitNode = mapper.createObjectNode();
+                hitNode.put("rule", hit.rule());
+                hitNode.put("snippet", hit.snippet());
+                hits.add(hitNode);
+            }
+            node.set("ruleHits", hits);
+        }
         return node;
     }
 
@@ -241,32 +459,46 @@ public class JpaListNativeQueriesTool implements Tool {
         return defaultValue;
     }
 
+    /**
+     * Joins lines with a single space and drops their indentation. String literals and quoted identifiers are kept
+     * as they are, since their line breaks are part of the value.
+     */
     private String collapseSqlWhitespace(String sql) {
         if (sql == null) {
             return null;
         }
+        SqlTokens tokens = SqlTokens.of(sql);
         StringBuilder result = new StringBuilder(sql.length());
         boolean previousWasSpace = false;
         boolean skipIndent = false;
-        for (int i = 0; i < sql.length(); i++) {
-            char ch = sql.charAt(i);
-            if (ch == '\r') {
+        for (int t = 0; t < tokens.count(); t++) {
+            int type = tokens.type(t);
+            if (type == SqlTokens.STRING || type == SqlTokens.QUOTED_IDENTIFIER) {
+                result.append(sql, tokens.start(t), tokens.end(t));
+                previousWasSpace = false;
+                skipIndent = false;
                 continue;
             }
-            if (ch == '\n') {
-                if (!previousWasSpace && result.length() > 0) {
-                    result.append(' ');
-                    previousWasSpace = true;
+            for (int i = tokens.start(t); i < tokens.end(t); i++) {
+                char ch = sql.charAt(i);
+                if (ch == '\r') {
+                    continue;
                 }
-                skipIndent = true;
-                continue;
-            }
-            if (skipIndent && (ch == ' ' || ch == '\t')) {
-                continue;
+                if (ch == '\n') {
+                    if (!previousWasSpace && result.length() > 0) {
+                        result.append(' ');
+                        previousWasSpace = true;
+                    }
+                    skipIndent = true;
+                    continue;
+                }
+                if (skipIndent && (ch == ' ' || ch == '\t')) {
+                    continue;
+                }
+                skipIndent = false;
+                result.append(ch);
+                previousWasSpace = Character.isWhitespace(ch);
             }
-            skipIndent = false;
-            result.append(ch);
-            previousWasSpace = Character.isWhitespace(ch);
         }
         int start = 0;
         int end = result.length();
@@ -304,4 +536,227 @@ public class JpaListNativeQueriesTool implements Tool {
 
     private record FileScanResult(List<QueryItem> items, List<String> errors) {
     }
+
+    /**
+     * The files of one root in walk order: either listed up front, so their count is known for progress, or
+     * streamed, so a scan that stops early does not walk the rest of the tree. Time spent walking is recorded as
+     * {@link Metrics#PHASE_WALK} either way.
+     */
+    private static final class FileWalk implements Iterator<Path>, AutoCloseable {
+        private final Stream<Path> stream;
+        private final Iterator<Path> files;
+        private final int size;
+        private long walkNanos;
+
+        private FileWalk(Stream<Path> stream, Iterator<Path> files, int size, long walkNanos) {
+            this.stream = stream;
+            this.files = files;
+            this.size = size;
+            this.walkNanos = walkNanos;
+        }
+
+        static FileWalk listed(Path root, Predicate<Path> include) {
+            long start = System.nanoTime();
+            List<Path> files;
+            try (Stream<Path> stream = Files.walk(root)) {
+                files = stream.filter(Files::isRegularFile).filter(include).collect(Collectors.toList());
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to scan root: " + root, e);
+            }
+            return new FileWalk(null, files.iterator(), files.size(), System.nanoTime() - start);
+        }
+
+        static FileWalk streamed(Path root, Predicate<Path> include) {
+            long start = System.nanoTime();
+            Stream<Path> stream;
+            try {
+                stream = Files.walk(root);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to scan root: " + root, e);
+            }
+            Iterator<Path> files = stream.filter(Files::isRegularFile).filter(include).iterator();
+            return new FileWalk(stream, files, -1, System.nanoTime() - start);
+        }
+
+        /**
+         * Number of files, or -1 while streaming.
+         */
+        int size() {
+            return size;
+        }
+
+        @Override
+        public boolean hasNext() {
+            long start = System.nanoTime();
+            try {
+                return files.hasNext();
+            } finally {
+                walkNanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public Path next() {
+            long start = System.nanoTime();
+            try {
+                return files.next();
+            } finally {
+                walkNanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (stream != null) {
+                stream.close();
+            }
+            Metrics.record(Metrics.PHASE_WALK, walkNanos);
+        }
+    }
+
+    /**
+     * Sends throttled progress notifications: files scanned (out of the files listed so far, when known), queries
+     * found and, with a known total, the estimated time left.
+     */
+    private static final class ScanProgress {
+        private static final long INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+        private final ToolContext context;
+        private long lastReport = System.nanoTime();
+        private long firstScanned;
+        private long filesTotal;
+        private boolean totalKnown = true;
+        private long filesScanned;
+
+        private ScanProgress(ToolContext context) {
+            this.context = context;
+        }
+
+        void addFiles(int count) {
+            if (count < 0) {
+                totalKnown = false;
+            } else {
+                filesTotal += count;
+            }
+        }
+
+        void fileScanned(long queriesFound) {
+            long now = System.nanoTime();
+            if (filesScanned++ == 0) {
+                firstScanned = now;
+            }
+            if (now - lastReport < INTERVAL_NANOS) {
+                return;
+            }
+            lastReport = now;
+            if (!totalKnown) {
+                context.progress(filesScanned, null,
+                        String.format("Scanned %d files, %d queries found", filesScanned, queriesFound));
+                return;
+            }
+            String message = String.format("Scanned %d of %d files, %d queries found", filesScanned, filesTotal,
+                    queriesFound);
+            if (filesScanned > 1) {
+                // The rate is taken from the first finished file on, so extractor start-up does not skew it.
+                long nanosLeft = (now - firstScanned) / (filesScanned - 1) * (filesTotal - filesScanned);
+                message += String.format(", about %d s left", TimeUnit.NANOSECONDS.toSeconds(nanosLeft));
+            }
+            context.progress(filesScanned, (double) filesTotal, message);
+        }
+    }
+
+    private enum Output {
+        AUTO,
+        INLINE,
+        FILE
+    }
+
+    /**
+     * Collects the queries of one call, dropping repeated {@code id@file} pairs. Queries are kept in a compact
+     * {@link QueryCatalog} until the call finishes and are then serialized in the requested format, unless the output
+     * goes to a spill file: then every query is written as one NDJSON line as soon as it arrives ({@code file}) or
+     * once more than {@code spillThreshold} have been collected ({@code auto}), so memory stays bounded however
+     * large the catalog gets.
+     */
+    private final class QueryCollector implements AutoCloseable {
+        private final Set<QueryField> fields;
+        private final boolean collapseWhitespace;
+        private final boolean compact;
+        private final Output output;
+        private final int spillThreshold;
+        private final QueryCatalog catalog = new QueryCatalog();
+        private ScanSpill spill;
+
+        private QueryCollector(Set<QueryField> fields, boolean collapseWhitespace, boolean compact, Output output,
+                               int spillThreshold) throws IOException {
+            this.fields = fields;
+            this.collapseWhitespace = collapseWhitespace;
+            this.compact = compact;
+            this.output = output;
+            this.spillThreshold = Math.max(0, spillThreshold);
+            if (output == Output.FILE) {
+                spill = ScanSpill.create(mapper);
+            }
+        }
+
+        /**
+         * Returns {@code false} if a query with the same id and file was collected before.
+         */
+        boolean add(QueryItem item) throws IOException {
+            if (spill != null) {
+                if (!catalog.markSeen(item)) {
+                    return false;
+                }
+                spill.write(serialize(item, fields, collapseWhitespace));
+                return true;
+            }
+            if (!catalog.add(item)) {
+                return false;
+            }
+            if (output == Output.AUTO && catalog.size() > spillThreshold) {
+                spill = ScanSpill.create(mapper);
+                for (int i = 0; i < catalog.size(); i++) {
+                    spill.write(serialize(catalog.get(i), fields, collapseWhitespace));
+                }
+                catalog.clearQueries();
+            }
+            return true;
+        }
+
+        ObjectNode finish() throws IOException {
+            if (spill != null) {
+                spill.close();
+                ObjectNode result = mapper.createObjectNode();
+                result.put("output", "file");
+                result.put("format", "ndjson");
+                result.put("path", spill.file().toAbsolutePath().toString());
+                result.put("uri", spill.file().toUri().toString());
+                result.put("queryCount", spill.count());
+                result.put("bytes", Files.size(spill.file()));
+                return result;
+            }
+            if (compact) {
+                CompactQueryTable table = new CompactQueryTable(mapper, fields);
+                for (int i = 0; i < catalog.size(); i++) {
+                    QueryItem item = catalog.get(i);
+                    table.add(item, collapseWhitespace ? collapseSqlWhitespace(item.sqlRaw()) : item.sqlRaw());
+                }
+                return table.toResult();
+            }
+            ArrayNode queries = mapper.createArrayNode();
+            for (int i = 0; i < catalog.size(); i++) {
+                queries.add(serialize(catalog.get(i), fields, collapseWhitespace));
+            }
+            ObjectNode result = mapper.createObjectNode();
+            result.set("queries", queries);
+            return result;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (spill != null) {
+                spill.close();
+            }
+        }
+    }
 }
@@ -0,0 +1,122 @@
+package com.example.mcp.tools;
+
+import com.example.mcp.util.PrepareReportStore;
+import com.example.mcp.util.SqlFingerprint;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.function.Supplier;
+
+public class PrepareReportQueryTool implements Tool {
+    private static final int DEFAULT_LIMIT = 50;
+
+    private final ObjectMapper mapper;
+    private final Supplier<PrepareReportStore> store;
+
+    public PrepareReportQueryTool(ObjectMapper mapper, PrepareReportStore store) {
+        this(mapper, () -> store);
+    }
+
+    public PrepareReportQueryTool(ObjectMapper mapper, Supplier<PrepareReportStore> store) {
+        this.mapper = mapper;
+        this.store = store;
+    }
+
+    @Override
+    public String getName() {
+        return "h2.prepare.report.query";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Look up earlier preparation diagnoses by SQL, fingerprint, text or time, or export them as CSV "
+                + "to a new file under the report directory.";
+    }
+
+    @Override
+    public ObjectNode getInputSchema() {
+        ObjectNode schema = mapper.createObjectNode();
+        schema.put("type", "object");
+        ObjectNode properties = mapper.createObjectNode();
+        properties.putObject("sql").put("type", "string");
+        properties.putObject("fingerprint").put("type", "string");
+        properties.putObject("text").put("type", "string");
+        properties.putObject("since").put("type", "string");
+        properties.putObject("limit").put("type", "integer");
+        properties.putObject("exportCsvPath").put("type", "string");
+        schema.set("properties", properties);
+        return schema;
+    }
+
+    @Override
+    public JsonNode call(JsonNode arguments) throws Exception {
+        PrepareReportStore store = this.store.get();
+        int limit = Math.max(1, arguments.path("limit").asInt(DEFAULT_LIMIT));
+        ObjectNode result = mapper.createObjectNode();
+
+        String exportPath = arguments.path("exportCsvPath").asText(null);
+        if (exportPath != null) {
+            Path target = store.resolveExportPath(exportPath);
+            int rows;
+            try {
+                rows = store.exportCsv(target);
+            } catch (FileAlreadyExistsException e) {
+                throw new IllegalArgumentException("Export file already exists: " + exportPath);
+            }
+            result.put("exportedPath", target.toString());
+            result.put("exportedRows", rows);
+        }
+
+        List<PrepareReportStore.Entry> entries;
+        String sql = arguments.path("sql").asText(null);
+        String fingerprint = arguments.path("fingerprint").asText(null);
+        String text = arguments.path("text").asText(null);
+        String since = arguments.path("since").asText(null);
+        if (sql != null) {
+            fingerprint = SqlFingerprint.of(sql);
+            entries = store.findByFingerprint(fingerprint, limit);
+        } else if (fingerprint != null) {
+            entries = store.findByFingerprint(fingerprint, limit);
+        } else if (text != null) {
+            entries = store.search(text, limit);
+        } else if (since != null) {
+            entries = store.findSince(parseInstant(since), limit);
+        } else if (exportPath != null) {
+            return result;
+        } else {
+            throw new IllegalArgumentException("One of 'sql', 'fingerprint', 'text', 'since' or 'exportCsvPath' is required");
+        }
+
+        if (fingerprint != null) {
+            result.put("fingerprint", fingerprint);
+        }
+        ArrayNode entriesNode = mapper.createArrayNode();
+        for (PrepareReportStore.Entry entry : entries) {
+            ObjectNode node = mapper.createObjectNode();
+            node.put("id", entry.id());
+            node.put("timestamp", entry.timestamp().toString());
+            node.put("fingerprint", entry.fingerprint());
+            node.put("sql", entry.sql());
+            node.put("diagnosis", entry.diagnosis());
+            entriesNode.add(node);
+        }
+        result.put("found", !entries.isEmpty());
+        result.set("entries", entriesNode);
+        return result;
+    }
+
+    private Instant parseInstant(String value) {
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("'since' must be an ISO-8601 instant such as 2024-01-31T00:00:00Z");
+        }
+    }
+}
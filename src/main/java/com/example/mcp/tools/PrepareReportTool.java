@@ -1,25 +1,70 @@
 package com.example.mcp.tools;
 
+import com.example.mcp.util.FileRotation;
+import com.example.mcp.util.GroupCommitAppender;
 import com.example.mcp.util.JarLocationResolver;
+import com.example.mcp.util.Lazy;
+import com.example.mcp.util.PrepareReportStore;
+import com.example.mcp.util.SqlFingerprint;
+import com.example.mcp.util.SystemSettings;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.function.Supplier;
 
-public class PrepareReportTool implements Tool {
+/**
+ * Records diagnoses in the indexed {@link PrepareReportStore} and, unless {@code h2sqlmcp.report.csv=false}, in the
+ * shared CSV report. Both are written by background writers: the store entry is only queued and reported as
+ * {@code stored: "queued"}, and CSV rows go through a {@link GroupCommitAppender} that commits them in batches.
+ * Batching is tuned with the {@code h2sqlmcp.report.*} system properties {@code queueCapacity}, {@code maxBatch},
+ * {@code lingerMillis}, {@code enqueueTimeoutMillis} and {@code fsync} ({@code none} or {@code batch}). The CSV is
+ * rotated into gzip archives according to {@code report.maxBytes}, {@code report.maxAgeHours} and
+ * {@code report.maxArchives}.
+ *
+ * <p>A call returns as soon as both are queued, with {@code csv: "queued"} ({@code "disabled"} without the CSV), and
+ * does no I/O itself. Write failures are logged by the writers.</p>
+ */
+public class PrepareReportTool implements Tool, AutoCloseable {
 
     private static final String REPORT_FILE_NAME = "prepare-report.csv";
+    private static final String REPORT_HEADER = "timestamp,sql,diagnosis\n";
 
     private final ObjectMapper mapper;
+    private final Supplier<PrepareReportStore> store;
+    private final Lazy<GroupCommitAppender> appender;
 
-    public PrepareReportTool(ObjectMapper mapper) {
+    public PrepareReportTool(ObjectMapper mapper, PrepareReportStore store) {
+        this(mapper, () -> store);
+    }
+
+    /**
+     * Takes the store through a supplier and builds the CSV appender on the first call, so registering the tool
+     * touches neither the database nor the report file.
+     */
+    public PrepareReportTool(ObjectMapper mapper, Supplier<PrepareReportStore> store) {
+        this(mapper, store, !SystemSettings.booleanValue("report.csv", true) ? null : () -> new GroupCommitAppender(
+                resolveReportPath(),
+                REPORT_HEADER,
+                SystemSettings.intValue("report.queueCapacity", 4096),
+                SystemSettings.intValue("report.maxBatch", 512),
+                Duration.ofMillis(SystemSettings.longValue("report.lingerMillis", 5)),
+                Duration.ofMillis(SystemSettings.longValue("report.enqueueTimeoutMillis", 1000)),
+                GroupCommitAppender.FsyncPolicy.parse(SystemSettings.stringValue("report.fsync", "none")),
+                FileRotation.Policy.fromSettings("report", 50L * 1024 * 1024, 10)
+        ));
+    }
+
+    /**
+     * @param appender creates the CSV appender on the first call, or {@code null} to store entries only
+     */
+    PrepareReportTool(ObjectMapper mapper, Supplier<PrepareReportStore> store, Supplier<GroupCommitAppender> appender) {
         this.mapper = mapper;
+        this.store = store;
+        this.appender = appender == null ? null : Lazy.of(appender);
     }
 
     @Override
@@ -48,51 +93,48 @@ public class PrepareReportTool implements Tool {
     }
 
     @Override
-    public JsonNode call(JsonNode arguments) throws IOException {
+    public JsonNode call(JsonNode arguments) throws InterruptedException {
         String sql = arguments.path("sql").asText(null);
         String diagnosis = arguments.path("diagnosis").asText(null);
         if (sql == null || diagnosis == null) {
             throw new IllegalArgumentException("'sql' and 'diagnosis' are required");
         }
 
-        Path reportPath = resolveReportPath();
-        boolean newFile = Files.notExists(reportPath);
-        if (newFile) {
-            Path parent = reportPath.getParent();
-            if (parent != null && Files.notExists(parent)) {
-                Files.createDirectories(parent);
-            }
+        Instant timestamp = Instant.now();
+        store.get().insert(timestamp, sql, diagnosis);
+        ObjectNode result = mapper.createObjectNode();
+        if (this.appender != null) {
+            GroupCommitAppender appender = this.appender.get();
+            String row = PrepareReportStore.formatCsvValue(timestamp.toString())
+                    + ',' + PrepareReportStore.formatCsvValue(sql)
+                    + ',' + PrepareReportStore.formatCsvValue(diagnosis)
+                    + '\n';
+            appender.append(row);
+            result.put("csv", "queued");
+            result.put("reportPath", appender.file().toAbsolutePath().toString());
+        } else {
+            result.put("csv", "disabled");
         }
+        result.put("stored", "queued");
+        result.put("fingerprint", SqlFingerprint.of(sql));
+        return result;
+    }
 
-        try (var writer = Files.newBufferedWriter(reportPath, StandardCharsets.UTF_8,
-                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
-            if (newFile) {
-                writer.write("timestamp,sql,diagnosis\n");
-            }
-            writer.write(formatCsvValue(Instant.now().toString()));
-            writer.write(',');
-            writer.write(formatCsvValue(sql));
-            writer.write(',');
-            writer.write(formatCsvValue(diagnosis));
-            writer.write('\n');
+    /**
+     * Commits all queued rows; called from the server's shutdown hook.
+     */
+    @Override
+    public void close() {
+        if (appender != null && appender.isCreated()) {
+            appender.get().close();
         }
-
-        ObjectNode result = mapper.createObjectNode();
-        result.put("reportPath", reportPath.toAbsolutePath().toString());
-        result.put("appended", true);
-        return result;
     }
 
-    private Path resolveReportPath() {
+    private static Path resolveReportPath() {
         Path jarDirectory = JarLocationResolver.resolveJarDirectory(PrepareReportTool.class);
         if (jarDirectory != null) {
             return jarDirectory.resolve(REPORT_FILE_NAME);
         }
         return Path.of(REPORT_FILE_NAME);
     }
-
-    private String formatCsvValue(String value) {
-        String escaped = value.replace("\"", "\"\"");
-        return '"' + escaped + '"';
-    }
 }
@@ -0,0 +1,403 @@
+package com.example.mcp.tools;
+
+import com.example.mcp.model.Placeholder;
+import com.example.mcp.model.QueryItem;
+import com.example.mcp.model.RuleHit;
+import com.example.mcp.util.SystemSettings;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column store for the queries a scan collects, deduplicated by {@code id@file} on the way in.
+ *
+ * <p>File, repository, method, placeholder kind and rule names are interned once and referenced by index, and the id
+ * is rebuilt from repository and method as the extractor builds it. Raw SQL of all queries shares one char store
+ * (off heap with {@code h2sqlmcp.catalog.offHeapSql}); the normalized SQL, placeholder tokens and rule hit
+ * snippets are kept only as spans into it. A query whose normalized SQL cannot be expressed that way keeps its
+ * strings explicitly. {@link #get(int)} materializes a {@link QueryItem} equal to the one added.</p>
+ */
+final class QueryCatalog {
+    private static final int NO_STRING = -1;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Map<String, Integer> stringIndexes = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private final KeySet keys = new KeySet();
+    private final SqlStore sql = new SqlStore(SystemSettings.booleanValue("catalog.offHeapSql", false));
+
+    private final IntColumn file = new IntColumn();
+    private final IntColumn repo = new IntColumn();
+    private final IntColumn method = new IntColumn();
+    private final IntColumn sqlStart = new IntColumn();
+    private final IntColumn sqlLength = new IntColumn();
+    private final IntColumn firstPlaceholder = new IntColumn();
+    private final IntColumn firstHit = new IntColumn();
+
+    // One row per placeholder: span in the query's raw SQL and (kind << 1 | wrapped in parentheses).
+    private final IntColumn placeholderStart = new IntColumn();
+    private final IntColumn placeholderEnd = new IntColumn();
+    private final IntColumn placeholderKind = new IntColumn();
+    // One row per rule hit: rule name and the snippet's span in the query's raw SQL.
+    private final IntColumn hitRule = new IntColumn();
+    private final IntColumn hitStart = new IntColumn();
+    private final IntColumn hitLength = new IntColumn();
+
+    // Set for queries that were normalized; their normalized SQL is rebuilt from the raw SQL and placeholder spans.
+    private final BitSet normalized = new BitSet();
+    private final Map<Integer, Explicit> explicit = new HashMap<>();
+
+    /**
+     * Stores the query unless one with the same id and file was seen before.
+     */
+    boolean add(QueryItem item) {
+        int fileIndex = intern(item.file());
+        int repoIndex = intern(item.repo());
+        int methodIndex = item.method() == null ? NO_STRING : intern(item.method());
+        if (!keys.add(fileIndex, repoIndex, methodIndex, idFallback(item))) {
+            return false;
+        }
+        int index = file.size();
+        file.add(fileIndex);
+        repo.add(repoIndex);
+        method.add(methodIndex);
+        String raw = item.sqlRaw();
+        sqlStart.add(raw == null ? 0 : sql.append(raw));
+        sqlLength.add(raw == null ? -1 : raw.length());
+
+        firstPlaceholder.add(placeholderStart.size());
+        boolean aligned = item.sqlNormalized() == null
+                ? item.placeholders().isEmpty()
+                : raw != null && addPlaceholderSpans(raw, item.sqlNormalized(), item.placeholders());
+        firstHit.add(hitRule.size());
+        boolean located = raw != null ? addHitSpans(raw, item.ruleHits()) : item.ruleHits().isEmpty();
+        if (aligned && item.sqlNormalized() != null) {
+            normalized.set(index);
+        }
+        String expectedId = id(repoIndex, methodIndex);
+        if (!aligned || !located || !expectedId.equals(item.id())) {
+            explicit.put(index, new Explicit(item.id(), aligned ? null : item.sqlNormalized(),
+                    aligned ? null : item.placeholders(), located ? null : item.ruleHits(), !aligned));
+        }
+        return true;
+    }
+
+    /**
+     * Records the query as seen without storing it, for queries written elsewhere once the catalog spilled.
+     * Returns {@code false} if it was seen before.
+     */
+    boolean markSeen(QueryItem item) {
+        int methodIndex = item.method() == null ? NO_STRING : intern(item.method());
+        return keys.add(intern(item.file()), intern(item.repo()), methodIndex, idFallback(item));
+    }
+
+    int size() {
+        return file.size();
+    }
+
+    QueryItem get(int index) {
+        Explicit stored = explicit.get(index);
+        int repoIndex = repo.get(index);
+        int methodIndex = method.get(index);
+        int length = sqlLength.get(index);
+        String raw = length < 0 ? null : sql.get(sqlStart.get(index), length);
+        int placeholderFrom = firstPlaceholder.get(index);
+        int placeholderTo = index + 1 < size() ? firstPlaceholder.get(index + 1) : placeholderStart.size();
+        int hitFrom = firstHit.get(index);
+        int hitTo = index + 1 < size() ? firstHit.get(index + 1) : hitRule.size();
+
+        String sqlNormalized;
+        List<Placeholder> placeholders;
+        if (stored != null && stored.unaligned()) {
+            sqlNormalized = stored.sqlNormalized();
+            placeholders = stored.placeholders();
+        } else if (!normalized.get(index)) {
+            sqlNormalized = null;
+            placeholders = List.of();
+        } else {
+            StringBuilder rebuilt = new StringBuilder(raw.length());
+            placeholders = new ArrayList<>(placeholderTo - placeholderFrom);
+            int cursor = 0;
+            for (int i = placeholderFrom; i < placeholderTo; i++) {
+                int start = placeholderStart.get(i);
+                int end = placeholderEnd.get(i);
+                int kind = placeholderKind.get(i);
+                rebuilt.append(raw, cursor, start).append((kind & 1) != 0 ? "(?)" : "?");
+                placeholders.add(new Placeholder(strings.get(kind >>> 1), raw.substring(start, end)));
+                cursor = end;
+            }
+            sqlNormalized = rebuilt.append(raw, cursor, raw.length()).toString();
+        }
+
+        List<RuleHit> hits;
+        if (stored != null && stored.ruleHits() != null) {
+            hits = stored.ruleHits();
+        } else if (hitFrom == hitTo) {
+            hits = List.of();
+        } else {
+            hits = new ArrayList<>(hitTo - hitFrom);
+            for (int i = hitFrom; i < hitTo; i++) {
+                int start = hitStart.get(i);
+                hits.add(new RuleHit(strings.get(hitRule.get(i)), raw.substring(start, start + hitLength.get(i))));
+            }
+        }
+        String methodName = methodIndex == NO_STRING ? null : strings.get(methodIndex);
+        return new QueryItem(
+                stored != null ? stored.id() : id(repoIndex, methodIndex),
+                strings.get(file.get(index)),
+                strings.get(repoIndex),
+                methodName,
+                raw,
+                sqlNormalized,
+                placeholders,
+                hits
+        );
+    }
+
+    /**
+     * Drops the stored queries but keeps the interned names and the keys, so later duplicates are still recognised.
+     */
+    void clearQueries() {
+        for (IntColumn column : List.of(file, repo, method, sqlStart, sqlLength, firstPlaceholder, firstHit,
+                placeholderStart, placeholderEnd, placeholderKind, hitRule, hitStart, hitLength)) {
+            column.clear();
+        }
+        normalized.clear();
+        explicit.clear();
+        sql.clear();
+    }
+
+    /**
+     * Expresses the normalized SQL as the raw SQL with each placeholder token replaced by {@code ?} or, for a bare
+     * IN-list parameter, {@code (?)}. Returns {@code false} (leaving no spans) if that does not reproduce it.
+     */
+    private boolean addPlaceholderSpans(String raw, String sqlNormalized, List<Placeholder> placeholders) {
+        int first = placeholderStart.size();
+        int i = 0;
+        int j = 0;
+        for (Placeholder placeholder : placeholders) {
+            String token = placeholder.token();
+            boolean wrapped;
+            while (true) {
+                if (i < raw.length() && raw.startsWith(token, i)) {
+                    if (sqlNormalized.startsWith("(?)", j)) {
+                        wrapped = true;
+                        break;
+                    }
+                    if (sqlNormalized.startsWith("?", j)) {
+                        wrapped = false;
+                        break;
+                    }
+                }
+                if (i >= raw.length() || j >= sqlNormalized.length() || raw.charAt(i) != sqlNormalized.charAt(j)) {
+                    truncateSpans(first);
+                    return false;
+                }
+                i++;
+                j++;
+            }
+            placeholderStart.add(i);
+            placeholderEnd.add(i + token.length());
+            placeholderKind.add(intern(placeholder.kind()) << 1 | (wrapped ? 1 : 0));
+            i += token.length();
+            j += wrapped ? 3 : 1;
+        }
+        if (raw.length() - i != sqlNormalized.length() - j
+                || !raw.regionMatches(i, sqlNormalized, j, raw.length() - i)) {
+            truncateSpans(first);
+            return false;
+        }
+        return true;
+    }
+
+    private void truncateSpans(int size) {
+        placeholderStart.truncate(size);
+        placeholderEnd.truncate(size);
+        placeholderKind.truncate(size);
+    }
+
+    /**
+     * Snippets are trimmed matches taken from the raw SQL, so any occurrence of the same text reproduces them.
+     */
+    private boolean addHitSpans(String raw, List<RuleHit> hits) {
+        int first = hitRule.size();
+        for (RuleHit hit : hits) {
+            int start = raw.indexOf(hit.snippet());
+            if (start < 0) {
+                hitRule.truncate(first);
+                hitStart.truncate(first);
+                hitLength.truncate(first);
+                return false;
+            }
+            hitRule.add(intern(hit.rule()));
+            hitStart.add(start);
+            hitLength.add(hit.snippet().length());
+        }
+        return true;
+    }
+
+    private String id(int repoIndex, int methodIndex) {
+        String repoName = strings.get(repoIndex);
+        return methodIndex == NO_STRING ? repoName : repoName + "#" + strings.get(methodIndex);
+    }
+
+    /**
+     * Key component for ids that are not {@code repo#method}: the interned id, or {@link #NO_STRING} for the usual
+     * case.
+     */
+    private int idFallback(QueryItem item) {
+        String repoName = item.repo();
+        String expected = item.method() == null ? repoName : repoName + "#" + item.method();
+        return expected.equals(item.id()) ? NO_STRING : intern(item.id());
+    }
+
+    private int intern(String value) {
+        Integer index = stringIndexes.get(value);
+        if (index == null) {
+            index = strings.size();
+            stringIndexes.put(value, index);
+            strings.add(value);
+        }
+        return index;
+    }
+
+    private record Explicit(String id, String sqlNormalized, List<Placeholder> placeholders, List<RuleHit> ruleHits,
+                            boolean unaligned) {
+    }
+
+    private static final class IntColumn {
+        private int[] values = new int[INITIAL_CAPACITY];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        void truncate(int newSize) {
+            size = newSize;
+        }
+
+        void clear() {
+            values = new int[INITIAL_CAPACITY];
+            size = 0;
+        }
+    }
+
+    /**
+     * Open-addressing set of (file, repo, method, id) index tuples; an empty slot has file -1.
+     */
+    private static final class KeySet {
+        private static final int WIDTH = 4;
+
+        private int[] slots = emptySlots(INITIAL_CAPACITY);
+        private int size;
+
+        boolean add(int fileIndex, int repoIndex, int methodIndex, int idIndex) {
+            if ((size + 1) * 2 > slots.length / WIDTH) {
+                rehash();
+            }
+            if (!insert(slots, fileIndex, repoIndex, methodIndex, idIndex)) {
+                return false;
+            }
+            size++;
+            return true;
+        }
+
+        private static boolean insert(int[] table, int fileIndex, int repoIndex, int methodIndex, int idIndex) {
+            int mask = table.length / WIDTH - 1;
+            int hash = fileIndex * 0x9E3779B1 ^ repoIndex * 0x85EBCA77 ^ methodIndex * 0xC2B2AE3D ^ idIndex;
+            int slot = (hash ^ hash >>> 16) & mask;
+            while (true) {
+                int base = slot * WIDTH;
+                if (table[base] == -1) {
+                    table[base] = fileIndex;
+                    table[base + 1] = repoIndex;
+                    table[base + 2] = methodIndex;
+                    table[base + 3] = idIndex;
+                    return true;
+                }
+                if (table[base] == fileIndex && table[base + 1] == repoIndex && table[base + 2] == methodIndex
+                        && table[base + 3] == idIndex) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        private void rehash() {
+            int[] old = slots;
+            int[] table = emptySlots(old.length / WIDTH * 2);
+            for (int base = 0; base < old.length; base += WIDTH) {
+                if (old[base] != -1) {
+                    insert(table, old[base], old[base + 1], old[base + 2], old[base + 3]);
+                }
+            }
+            slots = table;
+        }
+
+        private static int[] emptySlots(int capacity) {
+            int[] table = new int[capacity * WIDTH];
+            for (int base = 0; base < table.length; base += WIDTH) {
+                table[base] = -1;
+            }
+            return table;
+        }
+    }
+
+    /**
+     * Append-only char store for raw SQL, on the heap or in a direct buffer.
+     */
+    private static final class SqlStore {
+        private final boolean offHeap;
+        private CharBuffer chars;
+
+        SqlStore(boolean offHeap) {
+            this.offHeap = offHeap;
+            this.chars = allocate(4096);
+        }
+
+        int append(String text) {
+            if (chars.remaining() < text.length()) {
+                long needed = (long) chars.position() + text.length();
+                if (needed > Integer.MAX_VALUE / 2) {
+                    throw new IllegalStateException("Query catalog exceeds " + Integer.MAX_VALUE / 2 + " SQL chars");
+                }
+                CharBuffer grown = allocate((int) Math.max(needed, (long) chars.capacity() * 2));
+                grown.put(chars.flip());
+                chars = grown;
+            }
+            int start = chars.position();
+            chars.put(text);
+            return start;
+        }
+
+        String get(int start, int length) {
+            return chars.duplicate().position(start).limit(start + length).toString();
+        }
+
+        void clear() {
+            chars = allocate(4096);
+        }
+
+        private CharBuffer allocate(int capacity) {
+            return offHeap ? ByteBuffer.allocateDirect(capacity * 2).asCharBuffer() : CharBuffer.allocate(capacity);
+        }
+    }
+}
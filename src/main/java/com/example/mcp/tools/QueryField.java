@@ -0,0 +1,34 @@
+package com.example.mcp.tools;
+
+/**
+ * Fields of a {@code jpa.list_native_queries} result entry, in output order.
+ */
+enum QueryField {
+    ID("id"),
+    FILE("file"),
+    REPO("repo"),
+    METHOD("method"),
+    SQL_RAW("sqlRaw"),
+    SQL_NORMALIZED("sqlNormalized"),
+    PLACEHOLDERS("placeholders"),
+    RULE_HITS("ruleHits");
+
+    private final String jsonName;
+
+    QueryField(String jsonName) {
+        this.jsonName = jsonName;
+    }
+
+    String jsonName() {
+        return jsonName;
+    }
+
+    static QueryField fromName(String name) {
+        for (QueryField field : values()) {
+            if (field.jsonName.equals(name)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown field '" + name + "'");
+    }
+}
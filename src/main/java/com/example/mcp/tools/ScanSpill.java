@@ -0,0 +1,156 @@
+package com.example.mcp.tools;
+
+import com.example.mcp.util.SystemSettings;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Writes scan results as NDJSON (one query object per line) into this process's own subdirectory of the spill
+ * directory ({@code h2sqlmcp.scan.spillDirectory}, default {@code h2-sql-mcp-scans} under the system temp directory),
+ * so server processes sharing the directory never write to the same place.
+ *
+ * <p>Creating a spill prunes files, in every process's subdirectory, that were last modified more than
+ * {@code h2sqlmcp.scan.spillRetentionMinutes} ago (default 60), so a result stays readable for at least that long
+ * after it was returned. Files this process is still writing are never pruned, and the subdirectories of processes
+ * that have exited are removed once empty.</p>
+ */
+final class ScanSpill implements AutoCloseable {
+    private static final String SUFFIX = ".ndjson";
+    private static final String PROCESS_PREFIX = "process-";
+    private static final Set<Path> OPEN = ConcurrentHashMap.newKeySet();
+
+    private final ObjectWriter writer;
+    private final Path file;
+    private final JsonGenerator generator;
+    private long count;
+    private boolean closed;
+
+    private ScanSpill(ObjectMapper mapper, Path file, JsonGenerator generator) {
+        this.writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.file = file;
+        this.generator = generator;
+    }
+
+    static ScanSpill create(ObjectMapper mapper) throws IOException {
+        Path root = Path.of(SystemSettings.stringValue("scan.spillDirectory",
+                Path.of(System.getProperty("java.io.tmpdir"), "h2-sql-mcp-scans").toString()));
+        Path directory = root.resolve(PROCESS_PREFIX + ProcessHandle.current().pid());
+        Files.createDirectories(directory);
+        Path file = directory.resolve("scan-" + UUID.randomUUID() + SUFFIX).toAbsolutePath();
+        OPEN.add(file);
+        try {
+            prune(root, directory,
+                    Duration.ofMinutes(Math.max(0, SystemSettings.longValue("scan.spillRetentionMinutes", 60))));
+            OutputStream output = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024);
+            JsonGenerator generator = mapper.getFactory().createGenerator(output);
+            generator.setRootValueSeparator(new SerializedString("\n"));
+            return new ScanSpill(mapper, file, generator);
+        } catch (IOException | RuntimeException e) {
+            OPEN.remove(file);
+            throw e;
+        }
+    }
+
+    void write(JsonNode query) throws IOException {
+        writer.writeValue(generator, query);
+        count++;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    long count() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (count > 0) {
+            generator.writeRaw('\n');
+        }
+        try {
+            generator.close();
+        } finally {
+            OPEN.remove(file);
+        }
+    }
+
+    /**
+     * Deletes spill files older than {@code retention} that this process is not writing, and the empty subdirectories
+     * of processes that have exited. Files vanishing while another process prunes at the same time are ignored.
+     */
+    private static void prune(Path root, Path own, Duration retention) throws IOException {
+        FileTime cutoff = FileTime.from(Instant.now().minus(retention));
+        List<Path> directories = new ArrayList<>();
+        try (Stream<Path> stream = Files.list(root)) {
+            stream.filter(path -> path.getFileName().toString().startsWith(PROCESS_PREFIX) && Files.isDirectory(path))
+                    .forEach(directories::add);
+        }
+        for (Path directory : directories) {
+            List<Path> files = new ArrayList<>();
+            try (Stream<Path> stream = Files.list(directory)) {
+                stream.forEach(files::add);
+            } catch (NoSuchFileException e) {
+                continue;
+            }
+            int remaining = files.size();
+            for (Path path : files) {
+                if (path.getFileName().toString().endsWith(SUFFIX) && !OPEN.contains(path.toAbsolutePath())
+                        && lastModified(path).compareTo(cutoff) < 0) {
+                    Files.deleteIfExists(path);
+                    remaining--;
+                }
+            }
+            if (remaining == 0 && !directory.equals(own) && !isLiveProcess(directory)) {
+                try {
+                    Files.deleteIfExists(directory);
+                } catch (DirectoryNotEmptyException ignored) {
+                    // A new process with the same id started spilling into it meanwhile.
+                }
+            }
+        }
+    }
+
+    private static boolean isLiveProcess(Path directory) {
+        try {
+            long pid = Long.parseLong(directory.getFileName().toString().substring(PROCESS_PREFIX.length()));
+            return ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+}
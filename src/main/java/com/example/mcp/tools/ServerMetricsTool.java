@@ -0,0 +1,79 @@
+package com.example.mcp.tools;
+
+import com.example.mcp.util.LatencyHistogram;
+import com.example.mcp.util.Metrics;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Map;
+
+/**
+ * Returns call counts, error counts and latency percentiles for every tool and internal pipeline phase.
+ */
+public class ServerMetricsTool implements Tool {
+    private final ObjectMapper mapper;
+
+    public ServerMetricsTool(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    @Override
+    public String getName() {
+        return "server.metrics";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Report per-tool and per-phase call counts, errors and latency percentiles (p50/p90/p99/max).";
+    }
+
+    @Override
+    public ObjectNode getInputSchema() {
+        ObjectNode schema = mapper.createObjectNode();
+        schema.put("type", "object");
+        ObjectNode properties = mapper.createObjectNode();
+        properties.putObject("prefix").put("type", "string")
+                .put("description", "Only include timers whose name starts with this, e.g. 'tool.' or 'phase.'.");
+        properties.putObject("reset").put("type", "boolean")
+                .put("description", "Reset all timers after taking the snapshot.");
+        schema.set("properties", properties);
+        return schema;
+    }
+
+    @Override
+    public JsonNode call(JsonNode arguments) {
+        String prefix = arguments.path("prefix").asText("");
+        Map<String, Metrics.Timer.Snapshot> snapshots = Metrics.snapshot();
+        if (arguments.path("reset").asBoolean(false)) {
+            Metrics.reset();
+        }
+        ObjectNode timers = mapper.createObjectNode();
+        snapshots.forEach((name, snapshot) -> {
+            if (name.startsWith(prefix)) {
+                timers.set(name, serialize(snapshot));
+            }
+        });
+        ObjectNode result = mapper.createObjectNode();
+        result.set("timers", timers);
+        return result;
+    }
+
+    private ObjectNode serialize(Metrics.Timer.Snapshot snapshot) {
+        LatencyHistogram.Snapshot latency = snapshot.latency();
+        ObjectNode node = mapper.createObjectNode();
+        node.put("count", latency.count());
+        node.put("errors", snapshot.errors());
+        node.put("meanMs", toMillis(latency.mean()));
+        node.put("p50Ms", toMillis(latency.p50()));
+        node.put("p90Ms", toMillis(latency.p90()));
+        node.put("p99Ms", toMillis(latency.p99()));
+        node.put("maxMs", toMillis(latency.max()));
+        node.put("totalMs", toMillis(latency.sum()));
+        return node;
+    }
+
+    static double toMillis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+}
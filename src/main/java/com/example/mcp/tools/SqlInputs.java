@@ -0,0 +1,80 @@
+package com.example.mcp.tools;
+
+import com.example.mcp.util.ParamNormalizer;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads SQL statement lists given either as plain strings or as query objects produced by
+ * {@code jpa.list_native_queries}. Statements are returned with JDBC {@code ?} placeholders.
+ */
+final class SqlInputs {
+    private SqlInputs() {
+    }
+
+    record SqlInput(String id, String sql) {
+    }
+
+    static List<SqlInput> read(JsonNode node) {
+        List<SqlInput> inputs = new ArrayList<>();
+        if (node != null && node.isObject() && CompactQueryTable.FORMAT.equals(node.path("format").asText())) {
+            return readCompact(node);
+        }
+        if (node != null && node.isObject() && node.has("queries")) {
+            // Accept the complete jpa.list_native_queries result as well as its queries array.
+            node = node.get("queries");
+        }
+        if (node == null || !node.isArray()) {
+            return inputs;
+        }
+        int position = 0;
+        for (JsonNode element : node) {
+            position++;
+            String id = "#" + position;
+            String sql;
+            if (element.isTextual()) {
+                sql = ParamNormalizer.normalizeSql(element.asText());
+            } else if (element.hasNonNull("sqlNormalized")) {
+                id = element.path("id").asText(id);
+                sql = element.get("sqlNormalized").asText();
+            } else {
+                id = element.path("id").asText(id);
+                String raw = element.hasNonNull("sql") ? element.get("sql").asText() : element.path("sqlRaw").asText(null);
+                sql = raw == null ? null : ParamNormalizer.normalizeSql(raw);
+            }
+            if (sql != null && !sql.isBlank()) {
+                inputs.add(new SqlInput(id, sql));
+            }
+        }
+        return inputs;
+    }
+
+    /**
+     * Reads the compact {@code jpa.list_native_queries} layout, where ids and SQL are plain row values.
+     */
+    private static List<SqlInput> readCompact(JsonNode node) {
+        List<String> columns = new ArrayList<>();
+        node.path("columns").forEach(column -> columns.add(column.asText()));
+        int idColumn = columns.indexOf("id");
+        int normalizedColumn = columns.indexOf("sqlNormalized");
+        int rawColumn = columns.indexOf("sqlRaw");
+        List<SqlInput> inputs = new ArrayList<>();
+        int position = 0;
+        for (JsonNode row : node.path("queries")) {
+            position++;
+            String id = idColumn >= 0 ? row.path(idColumn).asText("#" + position) : "#" + position;
+            String sql = null;
+            if (normalizedColumn >= 0 && row.hasNonNull(normalizedColumn)) {
+                sql = row.get(normalizedColumn).asText();
+            } else if (rawColumn >= 0 && row.hasNonNull(rawColumn)) {
+                sql = ParamNormalizer.normalizeSql(row.get(rawColumn).asText());
+            }
+            if (sql != null && !sql.isBlank()) {
+                inputs.add(new SqlInput(id, sql));
+            }
+        }
+        return inputs;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.mcp.tools;
 
+import com.example.mcp.util.Lazy;
 import com.example.mcp.util.RuleEngine;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -8,11 +9,11 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 
 public class SqlRewriteTool implements Tool {
     private final ObjectMapper mapper;
-    private final RuleEngine ruleEngine;
+    private final Lazy<RuleEngine> ruleEngine;
 
     public SqlRewriteTool(ObjectMapper mapper) {
         this.mapper = mapper;
-        this.ruleEngine = new RuleEngine();
+        this.ruleEngine = Lazy.of(RuleEngine::new);
     }
 
     @Override
@@ -45,7 +46,7 @@ public class SqlRewriteTool implements Tool {
         if (sql == null) {
             throw new IllegalArgumentException("'sql' is required");
         }
-        RuleEngine.RewriteResult result = ruleEngine.rewrite(sql);
+        RuleEngine.RewriteResult result = ruleEngine.get().rewrite(sql);
         ObjectNode node = mapper.createObjectNode();
         node.put("sql", result.sql());
         ArrayNode applied = mapper.createArrayNode();
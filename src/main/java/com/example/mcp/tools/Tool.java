@@ -11,4 +11,15 @@ public interface Tool {
     ObjectNode getInputSchema();
 
     JsonNode call(JsonNode arguments) throws Exception;
+
+    /**
+     * Called for client requests; tools that report progress or stop early on cancellation override this.
+     */
+    default JsonNode call(JsonNode arguments, ToolContext context) throws Exception {
+        return call(arguments);
+    }
+
+    default ToolCost getCost() {
+        return ToolCost.LIGHT;
+    }
 }
@@ -0,0 +1,77 @@
+package com.example.mcp.tools;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits how many calls of one tool run at once and how many may wait for a slot. Calls beyond both limits are
+ * rejected immediately instead of queueing without bound.
+ */
+public class ToolBulkhead {
+    private final int maxConcurrent;
+    private final int queueLimit;
+    private final Semaphore running;
+    private final AtomicInteger admitted = new AtomicInteger();
+
+    public ToolBulkhead(int maxConcurrent, int queueLimit) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.queueLimit = Math.max(0, queueLimit);
+        this.running = new Semaphore(this.maxConcurrent, true);
+    }
+
+    /**
+     * Reserves a running or queued slot without blocking. Every successful call must be followed either by
+     * {@link #awaitTurn()} and {@link #leave()}, or by {@link #abandon()} if the call never runs.
+     */
+    public boolean tryEnter() {
+        while (true) {
+            int current = admitted.get();
+            if (current >= maxConcurrent + queueLimit) {
+                return false;
+            }
+            if (admitted.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Blocks until one of the running slots is free.
+     */
+    public void awaitTurn() throws InterruptedException {
+        try {
+            running.acquire();
+        } catch (InterruptedException e) {
+            admitted.decrementAndGet();
+            throw e;
+        }
+    }
+
+    public void leave() {
+        running.release();
+        admitted.decrementAndGet();
+    }
+
+    /**
+     * Gives back a slot reserved by {@link #tryEnter()} for a call that was cancelled before it started.
+     */
+    public void abandon() {
+        admitted.decrementAndGet();
+    }
+
+    public int maxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int queueLimit() {
+        return queueLimit;
+    }
+
+    public int running() {
+        return maxConcurrent - running.availablePermits();
+    }
+
+    public int queued() {
+        return Math.max(0, admitted.get() - running());
+    }
+}
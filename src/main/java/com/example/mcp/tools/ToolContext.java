@@ -0,0 +1,33 @@
+package com.example.mcp.tools;
+
+/**
+ * Per-call hooks a long-running tool can use to report progress and to notice that the client gave up on the call.
+ */
+public interface ToolContext {
+    /**
+     * Context for calls that have no client behind them (tests, batch entries, warm-up): never cancelled, progress is
+     * dropped.
+     */
+    ToolContext NONE = new ToolContext() {
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public void progress(double progress, Double total, String message) {
+        }
+    };
+
+    /**
+     * Whether the client cancelled the call. The thread running the tool is interrupted as well, so blocking waits
+     * end early; loops that do not block should poll this.
+     */
+    boolean isCancelled();
+
+    /**
+     * Sends an MCP progress notification if the client asked for them with a progress token. {@code progress} must
+     * grow from one notification to the next; {@code total} may be {@code null} when unknown.
+     */
+    void progress(double progress, Double total, String message);
+}
@@ -0,0 +1,15 @@
+package com.example.mcp.tools;
+
+/**
+ * Cost class a tool declares so the server can isolate slow work from cheap calls.
+ */
+public enum ToolCost {
+    /**
+     * Millisecond-scale calls that run without concurrency limits.
+     */
+    LIGHT,
+    /**
+     * Calls that scan the file system or drive H2; each such tool runs behind its own bulkhead.
+     */
+    HEAVY
+}
@@ -0,0 +1,13 @@
+package com.example.mcp.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Runs a registered tool on behalf of another tool, applying the same admission limits and metrics as a direct call.
+ * The {@code context} is handed to {@link Tool#call(JsonNode, ToolContext)}, so the nested call sees the outer
+ * call's cancellation.
+ */
+@FunctionalInterface
+public interface ToolInvoker {
+    JsonNode invoke(Tool tool, JsonNode arguments, ToolContext context) throws Exception;
+}
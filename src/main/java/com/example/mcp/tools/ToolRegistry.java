@@ -20,4 +20,27 @@ public class ToolRegistry {
     public List<Tool> list() {
         return Collections.unmodifiableList(new ArrayList<>(tools.values()));
     }
+
+    /**
+     * Closes every registered tool that holds resources, continuing past failures and rethrowing the first one.
+     */
+    public void close() throws Exception {
+        Exception failure = null;
+        for (Tool tool : tools.values()) {
+            if (tool instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
 }
@@ -0,0 +1,121 @@
+package com.example.mcp.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Output stream that hands written bytes to a background thread through a bounded ring buffer.
+ *
+ * <p>Writers never block: when the buffer is full the chunk is dropped and counted, and a marker line with the number
+ * of dropped chunks is written once the buffer drains. The delegate is flushed whenever the buffer runs empty.</p>
+ */
+public class AsyncLogOutputStream extends OutputStream {
+    private static final byte[] CLOSE_MARKER = new byte[0];
+
+    private final OutputStream delegate;
+    private final BlockingQueue<byte[]> buffer;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean closed;
+
+    public AsyncLogOutputStream(OutputStream delegate, int capacity, String threadName) {
+        this.delegate = delegate;
+        this.buffer = new ArrayBlockingQueue<>(Math.max(16, capacity));
+        this.writer = new Thread(this::drain, threadName);
+        this.writer.setDaemon(true);
+        this.writer.setPriority(Thread.MIN_PRIORITY);
+        this.writer.start();
+    }
+
+    @Override
+    public void write(int b) {
+        enqueue(new byte[]{(byte) b});
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        if (length > 0) {
+            enqueue(Arrays.copyOfRange(bytes, offset, offset + length));
+        }
+    }
+
+    /**
+     * Writes are flushed by the background thread whenever the buffer runs empty.
+     */
+    @Override
+    public void flush() {
+    }
+
+    public long droppedChunks() {
+        return dropped.get();
+    }
+
+    /**
+     * Writes everything still buffered, then closes the delegate.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            buffer.put(CLOSE_MARKER);
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        delegate.close();
+    }
+
+    private void enqueue(byte[] chunk) {
+        if (closed || !buffer.offer(chunk)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void drain() {
+        List<byte[]> chunks = new ArrayList<>();
+        long reportedDrops = 0;
+        while (true) {
+            try {
+                chunks.add(buffer.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            buffer.drainTo(chunks);
+            boolean closing = false;
+            try {
+                for (byte[] chunk : chunks) {
+                    if (chunk == CLOSE_MARKER) {
+                        closing = true;
+                        continue;
+                    }
+                    delegate.write(chunk);
+                }
+                long drops = dropped.get();
+                if (drops != reportedDrops) {
+                    String marker = "[log buffer full; dropped " + (drops - reportedDrops) + " chunk(s)]"
+                            + System.lineSeparator();
+                    delegate.write(marker.getBytes(StandardCharsets.UTF_8));
+                    reportedDrops = drops;
+                }
+                delegate.flush();
+            } catch (IOException e) {
+                // Nowhere left to report logging failures; keep draining so writers never block.
+            }
+            chunks.clear();
+            if (closing) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.mcp.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Size- and age-based rotation of append-only files into gzip archives named {@code <file>.<timestamp>.gz}.
+ *
+ * <p>Writers serialize on an exclusive lock of the {@code <file>.lock} sidecar, which also records when the current
+ * segment started as epoch milliseconds; file system timestamps cannot be used for that, since Linux reports the
+ * modification time as the creation time.</p>
+ */
+public final class FileRotation {
+    private static final DateTimeFormatter ARCHIVE_TIMESTAMP =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS").withZone(ZoneOffset.UTC);
+
+    /**
+     * @param maxBytes    rotate once the file would grow beyond this size; {@code <= 0} disables size rotation
+     * @param maxAge      rotate once the current segment is older than this; zero disables age rotation
+     * @param maxArchives number of gzip archives to keep; older ones are deleted
+     */
+    public record Policy(long maxBytes, Duration maxAge, int maxArchives) {
+
+        /**
+         * Reads {@code <prefix>.maxBytes}, {@code <prefix>.maxAgeHours} and {@code <prefix>.maxArchives} from the
+         * {@code h2sqlmcp.*} system properties.
+         */
+        public static Policy fromSettings(String prefix, long defaultMaxBytes, int defaultMaxArchives) {
+            return new Policy(
+                    SystemSettings.longValue(prefix + ".maxBytes", defaultMaxBytes),
+                    Duration.ofHours(SystemSettings.longValue(prefix + ".maxAgeHours", 0)),
+                    SystemSettings.intValue(prefix + ".maxArchives", defaultMaxArchives)
+            );
+        }
+
+        public boolean shouldRotate(long currentSize, long incomingBytes, Instant segmentStart, Instant now) {
+            if (currentSize <= 0) {
+                return false;
+            }
+            if (maxBytes > 0 && currentSize + incomingBytes > maxBytes) {
+                return true;
+            }
+            return !maxAge.isZero() && segmentStart != null && segmentStart.plus(maxAge).isBefore(now);
+        }
+    }
+
+    private FileRotation() {
+    }
+
+    /**
+     * Moves the file aside, compresses it and prunes archives beyond the policy's limit. Does nothing if the file
+     * does not exist.
+     */
+    public static void rotate(Path file, Policy policy) throws IOException {
+        if (Files.notExists(file)) {
+            return;
+        }
+        String base = file.getFileName() + "." + ARCHIVE_TIMESTAMP.format(Instant.now());
+        Path rolled = file.resolveSibling(base);
+        Path archive = file.resolveSibling(base + ".gz");
+        for (int attempt = 1; Files.exists(rolled) || Files.exists(archive); attempt++) {
+            rolled = file.resolveSibling(base + "-" + attempt);
+            archive = file.resolveSibling(base + "-" + attempt + ".gz");
+        }
+        Files.move(file, rolled, StandardCopyOption.ATOMIC_MOVE);
+        try (InputStream in = Files.newInputStream(rolled);
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(archive))) {
+            in.transferTo(out);
+        }
+        Files.delete(rolled);
+        prune(file, policy.maxArchives());
+    }
+
+    /**
+     * The sidecar file writers lock around each write and rotation of {@code file}.
+     */
+    public static Path lockFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".lock");
+    }
+
+    /**
+     * Start of the current segment of {@code file} as recorded in its locked sidecar. When the file does not exist
+     * or no start was recorded yet, {@code now} is recorded and returned.
+     */
+    public static Instant segmentStart(FileChannel lockChannel, Path file, Instant now) throws IOException {
+        if (Files.exists(file)) {
+            ByteBuffer buffer = ByteBuffer.allocate(32);
+            int read = lockChannel.read(buffer, 0);
+            if (read > 0) {
+                try {
+                    return Instant.ofEpochMilli(Long.parseLong(
+                            new String(buffer.array(), 0, read, StandardCharsets.US_ASCII).trim()));
+                } catch (NumberFormatException e) {
+                    // Unreadable record, e.g. a sidecar from an older version; start the segment over.
+                }
+            }
+        }
+        startSegment(lockChannel, now);
+        return now;
+    }
+
+    /**
+     * Records {@code start} in the locked sidecar as the start of a new segment.
+     */
+    public static void startSegment(FileChannel lockChannel, Instant start) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Long.toString(start.toEpochMilli()).getBytes(StandardCharsets.US_ASCII));
+        lockChannel.truncate(0);
+        while (buffer.hasRemaining()) {
+            lockChannel.write(buffer, buffer.position());
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private static void prune(Path file, int maxArchives) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        String prefix = file.getFileName() + ".";
+        List<Path> archives = new ArrayList<>();
+        try (var stream = Files.list(directory)) {
+            stream.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(prefix) && name.endsWith(".gz");
+            }).forEach(archives::add);
+        }
+        archives.sort(Comparator.comparing(FileRotation::lastModified)
+                .thenComparing(path -> path.getFileName().toString()));
+        for (int i = 0; i < archives.size() - Math.max(0, maxArchives); i++) {
+            Files.deleteIfExists(archives.get(i));
+        }
+    }
+}
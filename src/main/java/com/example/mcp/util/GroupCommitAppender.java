@@ -0,0 +1,249 @@
+package com.example.mcp.util;
+
+import com.example.mcp.jfr.ReportWriteEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends text records to a file from a single background writer thread.
+ *
+ * <p>Callers enqueue complete records into a bounded queue and return immediately. The writer drains whatever is
+ * queued (waiting up to the linger time for more to arrive) and commits the batch with one open, one exclusive OS file
+ * lock and one write, so records from several server processes sharing the file never interleave. With
+ * {@link FsyncPolicy#BATCH} each commit is also forced to disk before the records' futures complete.</p>
+ *
+ * <p>The lock is taken on a {@code <file>.lock} sidecar rather than on the file itself, which lets the writer holding
+ * it rotate the file according to an optional {@link FileRotation.Policy} without racing other processes; the
+ * sidecar also carries the start of the current segment for age-based rotation.</p>
+ */
+public class GroupCommitAppender implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GroupCommitAppender.class);
+    private static final PendingRecord POISON = new PendingRecord(null, null);
+
+    public enum FsyncPolicy {
+        NONE,
+        BATCH;
+
+        public static FsyncPolicy parse(String value) {
+            return "batch".equals(value.toLowerCase(Locale.ROOT)) ? BATCH : NONE;
+        }
+    }
+
+    private final Path file;
+    private final Path lockFile;
+    private final String header;
+    private final FileRotation.Policy rotation;
+    private final BlockingQueue<PendingRecord> queue;
+    private final int maxBatch;
+    private final long lingerNanos;
+    private final Duration enqueueTimeout;
+    private final FsyncPolicy fsyncPolicy;
+    private final Object lifecycleLock = new Object();
+    private Thread writer;
+    private boolean closed;
+
+    public GroupCommitAppender(Path file, String header, int queueCapacity, int maxBatch, Duration linger,
+                               Duration enqueueTimeout, FsyncPolicy fsyncPolicy, FileRotation.Policy rotation) {
+        this.file = file;
+        this.lockFile = FileRotation.lockFile(file);
+        this.header = header;
+        this.rotation = rotation;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.maxBatch = Math.max(1, maxBatch);
+        this.lingerNanos = linger.toNanos();
+        this.enqueueTimeout = enqueueTimeout;
+        this.fsyncPolicy = fsyncPolicy;
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * Queues a record (including its line terminator). The returned future completes once the record's batch has
+     * been written, or exceptionally if the write failed.
+     */
+    public CompletableFuture<Void> append(String record) throws InterruptedException {
+        ensureWriter();
+        PendingRecord pending = new PendingRecord(record, new CompletableFuture<>());
+        if (!queue.offer(pending, enqueueTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("Report writer queue is full; try again later");
+        }
+        return pending.committed();
+    }
+
+    /**
+     * Stops accepting records, commits everything already queued and waits for the writer to finish.
+     */
+    @Override
+    public void close() {
+        Thread current;
+        synchronized (lifecycleLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            current = writer;
+        }
+        if (current == null) {
+            return;
+        }
+        try {
+            queue.put(POISON);
+            current.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void ensureWriter() {
+        synchronized (lifecycleLock) {
+            if (closed) {
+                throw new IllegalStateException("Report writer is closed");
+            }
+            if (writer == null) {
+                writer = new Thread(this::runWriter, "report-writer-" + file.getFileName());
+                writer.setDaemon(true);
+                writer.start();
+            }
+        }
+    }
+
+    private void runWriter() {
+        List<PendingRecord> batch = new ArrayList<>(maxBatch);
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                PendingRecord first = queue.take();
+                if (first == POISON) {
+                    stopping = true;
+                } else {
+                    batch.add(first);
+                    stopping = fillBatch(batch);
+                }
+                // Drain what is left after the poison pill so close() never drops queued records.
+                if (stopping) {
+                    PendingRecord remaining;
+                    while ((remaining = queue.poll()) != null) {
+                        if (remaining != POISON) {
+                            batch.add(remaining);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                stopping = true;
+            }
+            if (!batch.isEmpty()) {
+                commit(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private boolean fillBatch(List<PendingRecord> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + lingerNanos;
+        while (batch.size() < maxBatch) {
+            PendingRecord next = queue.poll();
+            if (next == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    return false;
+                }
+            }
+            if (next == POISON) {
+                return true;
+            }
+            batch.add(next);
+        }
+        return false;
+    }
+
+    private void commit(List<PendingRecord> batch) {
+        try {
+            writeBatch(batch);
+            for (PendingRecord pending : batch) {
+                pending.committed().complete(null);
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Failed to append {} record(s) to {}", batch.size(), file, e);
+            for (PendingRecord pending : batch) {
+                pending.committed().completeExceptionally(e);
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingRecord> batch) throws IOException {
+        Path parent = file.getParent();
+        if (parent != null && Files.notExists(parent)) {
+            Files.createDirectories(parent);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (PendingRecord pending : batch) {
+            bytes.writeBytes(pending.record().getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] payload = bytes.toByteArray();
+        ReportWriteEvent event = new ReportWriteEvent();
+        event.begin();
+        try (FileChannel lockChannel = FileChannel.open(lockFile,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileLock ignored = lockChannel.lock()) {
+            if (rotation != null) {
+                Instant now = Instant.now();
+                Instant segmentStart = FileRotation.segmentStart(lockChannel, file, now);
+                if (rotation.shouldRotate(Files.exists(file) ? Files.size(file) : 0, payload.length, segmentStart, now)) {
+                    FileRotation.rotate(file, rotation);
+                    FileRotation.startSegment(lockChannel, now);
+                }
+            }
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                if (header != null && channel.size() == 0) {
+                    writeFully(channel, ByteBuffer.wrap(header.getBytes(StandardCharsets.UTF_8)));
+                }
+                writeFully(channel, ByteBuffer.wrap(payload));
+                if (fsyncPolicy == FsyncPolicy.BATCH) {
+                    channel.force(false);
+                }
+            }
+        } finally {
+            if (event.shouldCommit()) {
+                event.target = file.toString();
+                event.records = batch.size();
+                event.bytes = payload.length;
+                event.commit();
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private record PendingRecord(String record, CompletableFuture<Void> committed) {
+    }
+}
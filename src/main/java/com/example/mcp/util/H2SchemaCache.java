@@ -0,0 +1,312 @@
+package com.example.mcp.util;
+
+import com.example.mcp.jfr.SchemaInitEvent;
+import org.h2.tools.RunScript;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps initialised in-memory H2 schemas alive between tool calls.
+ *
+ * <p>Schemas are keyed by JDBC URL, credentials and the content identity (path, size, modification time) of the
+ * init scripts, so editing a script transparently builds a fresh schema. Named in-memory databases are renamed per
+ * key, which lets several configurations share a base URL without seeing each other's tables. URLs that do not point
+ * at an in-memory database are never cached; every acquisition opens and initialises a new connection.</p>
+ */
+public class H2SchemaCache {
+    private static final String MEM_PREFIX = "jdbc:h2:mem:";
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private final int capacity;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Object> buildLocks = new LinkedHashMap<>();
+
+    public H2SchemaCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public H2SchemaCache(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * Returns a schema handle for the given configuration, building and initialising it if needed. The handle must
+     * be closed by the caller; closing a cached handle only releases it back to the cache.
+     */
+    public Schema acquire(String jdbcUrl, String username, String password, List<Path> initPaths)
+            throws SQLException, IOException {
+        if (!jdbcUrl.startsWith(MEM_PREFIX)) {
+            Connection connection = DriverManager.getConnection(jdbcUrl, username, password);
+            try {
+                runInitScripts(connection, initPaths);
+            } catch (SQLException | IOException | RuntimeException e) {
+                connection.close();
+                throw e;
+            }
+            return new Schema(connection, jdbcUrl, null);
+        }
+
+        String key = cacheKey(jdbcUrl, username, password, initPaths);
+        Object buildLock;
+        synchronized (this) {
+            Entry cached = entries.get(key);
+            if (cached != null) {
+                cached.references++;
+                return new Schema(cached.connection, cached.jdbcUrl, cached);
+            }
+            buildLock = buildLocks.computeIfAbsent(key, ignored -> new Object());
+        }
+
+        synchronized (buildLock) {
+            synchronized (this) {
+                Entry cached = entries.get(key);
+                if (cached != null) {
+                    cached.references++;
+                    return new Schema(cached.connection, cached.jdbcUrl, cached);
+                }
+            }
+            String cachedUrl = isolateMemoryDatabase(jdbcUrl, key);
+            Connection connection = DriverManager.getConnection(cachedUrl, username, password);
+            try {
+                runInitScripts(connection, initPaths);
+            } catch (SQLException | IOException | RuntimeException e) {
+                connection.close();
+                synchronized (this) {
+                    buildLocks.remove(key);
+                }
+                throw e;
+            }
+            Entry entry = new Entry(connection, cachedUrl);
+            entry.references = 1;
+            synchronized (this) {
+                entries.put(key, entry);
+                buildLocks.remove(key);
+                evictOverflow();
+            }
+            return new Schema(connection, cachedUrl, entry);
+        }
+    }
+
+    /**
+     * Builds a schema that nobody else sees, for callers that change it. It always lives in an unnamed in-memory
+     * database that is initialised from scratch and never cached: an in-memory URL keeps its options, and any other
+     * database is only read, with {@code SCRIPT NODATA}, to copy its schema and compatibility mode into the private
+     * one. The init scripts then run on the copy, so neither they nor the caller's changes reach the source database.
+     */
+    public Schema acquirePrivate(String jdbcUrl, String username, String password, List<Path> initPaths)
+            throws SQLException, IOException {
+        String url = MEM_PREFIX;
+        if (jdbcUrl.startsWith(MEM_PREFIX)) {
+            int optionsStart = jdbcUrl.indexOf(';');
+            url = MEM_PREFIX + (optionsStart < 0 ? "" : jdbcUrl.substring(optionsStart));
+        }
+        Connection connection = DriverManager.getConnection(url, username, password);
+        try {
+            if (!jdbcUrl.startsWith(MEM_PREFIX)) {
+                copySchema(jdbcUrl, username, password, connection);
+            }
+            runInitScripts(connection, initPaths);
+        } catch (SQLException | IOException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+        return new Schema(connection, url, null);
+    }
+
+    /**
+     * Closes every cached schema that is not currently in use and marks the rest for closing on release.
+     */
+    public synchronized void clear() {
+        for (Entry entry : entries.values()) {
+            entry.evicted = true;
+            closeIfUnused(entry);
+        }
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void evictOverflow() {
+        var iterator = entries.values().iterator();
+        while (entries.size() > capacity && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            eldest.evicted = true;
+            closeIfUnused(eldest);
+        }
+    }
+
+    private synchronized void release(Entry entry) {
+        entry.references--;
+        closeIfUnused(entry);
+    }
+
+    private void closeIfUnused(Entry entry) {
+        if (entry.evicted && entry.references <= 0) {
+            try {
+                entry.connection.close();
+            } catch (SQLException ignored) {
+                // The in-memory database disappears with its last connection either way.
+            }
+        }
+    }
+
+    /**
+     * Recreates the tables, indexes and other objects of {@code sourceUrl}, without their rows, in {@code target}.
+     */
+    private static void copySchema(String sourceUrl, String username, String password, Connection target)
+            throws SQLException {
+        StringBuilder script = new StringBuilder();
+        String mode = null;
+        try (Connection source = DriverManager.getConnection(sourceUrl, username, password);
+             Statement statement = source.createStatement()) {
+            try (ResultSet settings = statement.executeQuery(
+                    "SELECT SETTING_VALUE FROM INFORMATION_SCHEMA.SETTINGS WHERE SETTING_NAME = 'MODE'")) {
+                if (settings.next()) {
+                    mode = settings.getString(1);
+                }
+            }
+            try (ResultSet lines = statement.executeQuery("SCRIPT NODATA")) {
+                while (lines.next()) {
+                    script.append(lines.getString(1)).append('\n');
+                }
+            }
+        }
+        if (mode != null) {
+            try (Statement statement = target.createStatement()) {
+                statement.execute("SET MODE " + mode);
+            }
+        }
+        RunScript.execute(target, new StringReader(script.toString()));
+    }
+
+    private static void runInitScripts(Connection connection, List<Path> initPaths) throws SQLException, IOException {
+        SchemaInitEvent event = new SchemaInitEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            for (Path path : initPaths) {
+                if (Files.exists(path)) {
+                    try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                        RunScript.execute(connection, reader);
+                    }
+                }
+            }
+        } finally {
+            Metrics.record(Metrics.PHASE_SCHEMA_INIT, System.nanoTime() - start);
+            if (event.shouldCommit()) {
+                event.jdbcUrl = connection.getMetaData().getURL();
+                event.scriptCount = initPaths.size();
+                event.commit();
+            }
+        }
+    }
+
+    private static String isolateMemoryDatabase(String jdbcUrl, String key) {
+        int optionsStart = jdbcUrl.indexOf(';');
+        String name = optionsStart < 0
+                ? jdbcUrl.substring(MEM_PREFIX.length())
+                : jdbcUrl.substring(MEM_PREFIX.length(), optionsStart);
+        if (name.isEmpty()) {
+            // Unnamed in-memory databases are private to their connection already.
+            return jdbcUrl;
+        }
+        String options = optionsStart < 0 ? "" : jdbcUrl.substring(optionsStart);
+        return MEM_PREFIX + name + "_" + key.substring(0, 12) + options;
+    }
+
+    private static String cacheKey(String jdbcUrl, String username, String password, List<Path> initPaths)
+            throws IOException {
+        StringBuilder material = new StringBuilder();
+        material.append(jdbcUrl).append('\n').append(username).append('\n').append(password).append('\n');
+        for (Path path : initPaths) {
+            Path absolute = path.toAbsolutePath().normalize();
+            material.append(absolute);
+            if (Files.exists(absolute)) {
+                material.append('|').append(Files.size(absolute))
+                        .append('|').append(Files.getLastModifiedTime(absolute).toMillis());
+            }
+            material.append('\n');
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(material.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static final class Entry {
+        private final Connection connection;
+        private final String jdbcUrl;
+        private int references;
+        private boolean evicted;
+
+        private Entry(Connection connection, String jdbcUrl) {
+            this.connection = connection;
+            this.jdbcUrl = jdbcUrl;
+        }
+    }
+
+    /**
+     * A leased, initialised schema. Closing it releases cached schemas and closes uncached connections.
+     */
+    public final class Schema implements AutoCloseable {
+        private final Connection connection;
+        private final String jdbcUrl;
+        private final Entry entry;
+        private boolean closed;
+
+        private Schema(Connection connection, String jdbcUrl, Entry entry) {
+            this.connection = connection;
+            this.jdbcUrl = jdbcUrl;
+            this.entry = entry;
+        }
+
+        public Connection connection() {
+            return connection;
+        }
+
+        /**
+         * The URL the schema actually lives at, which differs from the requested one for cached named databases.
+         */
+        public String jdbcUrl() {
+            return jdbcUrl;
+        }
+
+        public boolean cached() {
+            return entry != null;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (entry == null) {
+                connection.close();
+            } else {
+                release(entry);
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.mcp.util;
+
+import java.util.function.Supplier;
+
+/**
+ * Thread-safe memoizing supplier. The value is created on the first {@link #get()} so that startup does not pay for
+ * parts (compiled regex tables, extractors, drivers) a session may never use.
+ */
+public final class Lazy<T> implements Supplier<T> {
+    private final Supplier<? extends T> factory;
+    private volatile T value;
+
+    private Lazy(Supplier<? extends T> factory) {
+        this.factory = factory;
+    }
+
+    public static <T> Lazy<T> of(Supplier<? extends T> factory) {
+        return new Lazy<>(factory);
+    }
+
+    /**
+     * Whether the value has been created, for releasing it without creating it first.
+     */
+    public boolean isCreated() {
+        return value != null;
+    }
+
+    @Override
+    public T get() {
+        T current = value;
+        if (current == null) {
+            synchronized (this) {
+                current = value;
+                if (current == null) {
+                    current = factory.get();
+                    value = current;
+                }
+            }
+        }
+        return current;
+    }
+}
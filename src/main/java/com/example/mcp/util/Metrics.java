@@ -0,0 +1,103 @@
+package com.example.mcp.util;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide registry of named timers for tool calls and internal pipeline phases.
+ *
+ * <p>Timers are created on first use and never removed. Typical use:</p>
+ * <pre>{@code
+ * long start = System.nanoTime();
+ * ...
+ * Metrics.record(Metrics.PHASE_READ, System.nanoTime() - start);
+ * }</pre>
+ */
+public final class Metrics {
+    public static final String PHASE_WALK = "phase.walk";
+    public static final String PHASE_READ = "phase.read";
+    public static final String PHASE_EXTRACT = "phase.extract";
+    public static final String PHASE_TOKENIZE = "phase.tokenize";
+    public static final String PHASE_NORMALIZE = "phase.normalize";
+    public static final String PHASE_RULE_MATCH = "phase.ruleMatch";
+    public static final String PHASE_SCHEMA_INIT = "phase.schemaInit";
+    public static final String PHASE_PREPARE = "phase.prepare";
+    public static final String PHASE_SERIALIZE = "phase.serialize";
+    public static final String SERVER_STARTUP = "server.startup";
+    public static final String TOOL_PREFIX = "tool.";
+
+    private static final Map<String, Timer> TIMERS = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static Timer timer(String name) {
+        Timer timer = TIMERS.get(name);
+        return timer != null ? timer : TIMERS.computeIfAbsent(name, ignored -> new Timer());
+    }
+
+    public static void record(String name, long nanos) {
+        timer(name).record(nanos, false);
+    }
+
+    /**
+     * Snapshots of every timer, sorted by name.
+     */
+    public static Map<String, Timer.Snapshot> snapshot() {
+        Map<String, Timer.Snapshot> snapshots = new TreeMap<>();
+        TIMERS.forEach((name, timer) -> snapshots.put(name, timer.snapshot()));
+        return snapshots;
+    }
+
+    /**
+     * One line per timer with count, errors and p50/p90/p99/max in milliseconds, for periodic log dumps.
+     */
+    public static String describe() {
+        StringBuilder builder = new StringBuilder();
+        snapshot().forEach((name, snapshot) -> {
+            LatencyHistogram.Snapshot latency = snapshot.latency();
+            if (latency.count() == 0) {
+                return;
+            }
+            builder.append(String.format(Locale.ROOT,
+                    "%n  %s count=%d errors=%d p50=%.3fms p90=%.3fms p99=%.3fms max=%.3fms",
+                    name, latency.count(), snapshot.errors(), latency.p50() / 1e6, latency.p90() / 1e6,
+                    latency.p99() / 1e6, latency.max() / 1e6));
+        });
+        return builder.toString();
+    }
+
+    public static void reset() {
+        TIMERS.values().forEach(Timer::reset);
+    }
+
+    public static final class Timer {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+
+        private Timer() {
+        }
+
+        public void record(long nanos, boolean failed) {
+            latency.record(nanos);
+            if (failed) {
+                errors.increment();
+            }
+        }
+
+        public Snapshot snapshot() {
+            return new Snapshot(latency.snapshot(), errors.sum());
+        }
+
+        private void reset() {
+            latency.reset();
+            errors.reset();
+        }
+
+        public record Snapshot(LatencyHistogram.Snapshot latency, long errors) {
+        }
+    }
+}
@@ -3,199 +3,194 @@ package com.example.mcp.util;
 import com.example.mcp.model.Placeholder;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-
+import java.util.Objects;
+
+/**
+ * Replaces positional ({@code ?1}) and named ({@code :name}) parameters outside literals and comments with {@code ?},
+ * or with {@code (?)} for a bare IN-list parameter such as {@code id in :ids}.
+ *
+ * <p>One forward pass over the {@link SqlTokens} of the SQL writes into a char buffer kept per thread and records
+ * every placeholder as a (kind, start, end) span into the source, so no intermediate strings are created; the IN-list
+ * decision is made from the last two non-whitespace characters seen so far instead of scanning back.</p>
+ */
 public final class ParamNormalizer {
+    private static final String POSITIONAL = "positional";
+    private static final String NAMED = "named";
+    // Larger buffers are used once and dropped, so a single huge statement does not stay pinned to the thread.
+    private static final int MAX_RETAINED_BUFFER = 1 << 16;
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[1024]);
+    private static final ThreadLocal<Spans> SPANS = ThreadLocal.withInitial(Spans::new);
+
     private ParamNormalizer() {
     }
 
     public record Result(String sql, List<Placeholder> placeholders) {
     }
 
-    public static Result normalize(String sql) {
-        if (sql == null) {
-            return new Result(null, List.of());
+    /**
+     * Placeholders found by {@link #normalize(String, Spans)}, as spans into the source SQL. Reusable: each
+     * call overwrites the previous content.
+     */
+    public static final class Spans {
+        // Per placeholder: start, end, kind (0 positional, 1 named) << 1 | wrapped.
+        private int[] data = new int[3 * 16];
+        private int count;
+        private String source;
+
+        public int count() {
+            return count;
         }
-        List<Placeholder> placeholders = new ArrayList<>();
-        StringBuilder normalized = new StringBuilder();
-        boolean inSingleQuote = false;
-        boolean inDoubleQuote = false;
-        boolean inLineComment = false;
-        boolean inBlockComment = false;
-
-        for (int i = 0; i < sql.length(); i++) {
-            char c = sql.charAt(i);
-            char next = i + 1 < sql.length() ? sql.charAt(i + 1) : '\0';
-
-            if (inLineComment) {
-                normalized.append(c);
-                if (c == '\n') {
-                    inLineComment = false;
-                }
-                continue;
-            }
 
-            if (inBlockComment) {
-                normalized.append(c);
-                if (c == '*' && next == '/') {
-                    normalized.append(next);
-                    i++;
-                    inBlockComment = false;
-                }
-                continue;
-            }
+        public int start(int index) {
+            return data[3 * checkIndex(index)];
+        }
 
-            if (inSingleQuote) {
-                normalized.append(c);
-                if (c == '\'' && next == '\'') {
-                    normalized.append(next);
-                    i++;
-                } else if (c == '\'') {
-                    inSingleQuote = false;
-                }
-                continue;
-            }
+        public int end(int index) {
+            return data[3 * checkIndex(index) + 1];
+        }
 
-            if (inDoubleQuote) {
-                normalized.append(c);
-                if (c == '"' && next == '"') {
-                    normalized.append(next);
-                    i++;
-                } else if (c == '"') {
-                    inDoubleQuote = false;
-                }
-                continue;
-            }
+        public String kind(int index) {
+            return (data[3 * checkIndex(index) + 2] >>> 1) == 0 ? POSITIONAL : NAMED;
+        }
 
-            if (c == '-' && next == '-') {
-                normalized.append(c).append(next);
-                i++;
-                inLineComment = true;
-                continue;
-            }
-            if (c == '/' && next == '*') {
-                normalized.append(c).append(next);
-                i++;
-                inBlockComment = true;
-                continue;
-            }
+        /**
+         * Whether the placeholder was written as {@code (?)}.
+         */
+        public boolean wrapped(int index) {
+            return (data[3 * checkIndex(index) + 2] & 1) != 0;
+        }
 
-            if (c == '\'') {
-                normalized.append(c);
-                inSingleQuote = true;
-                continue;
-            }
-            if (c == '"') {
-                normalized.append(c);
-                inDoubleQuote = true;
-                continue;
+        public List<Placeholder> toPlaceholders() {
+            List<Placeholder> placeholders = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                placeholders.add(new Placeholder(kind(i), source.substring(data[3 * i], data[3 * i + 1])));
             }
+            return placeholders;
+        }
 
-            if (c == '?' && Character.isDigit(next)) {
-                int start = i;
-                i++;
-                while (i < sql.length() && Character.isDigit(sql.charAt(i))) {
-                    i++;
-                }
-                String token = sql.substring(start, i);
-                placeholders.add(new Placeholder("positional", token));
-                appendPlaceholder(sql, normalized, start);
-                i--;
-                continue;
-            }
+        private int checkIndex(int index) {
+            return Objects.checkIndex(index, count);
+        }
 
-            if (c == ':' && (Character.isLetter(next) || next == '_')) {
-                int start = i;
-                i++;
-                while (i < sql.length()) {
-                    char ch = sql.charAt(i);
-                    if (!(Character.isLetterOrDigit(ch) || ch == '_' || ch == '$')) {
-                        break;
-                    }
-                    i++;
-                }
-                String token = sql.substring(start, i);
-                placeholders.add(new Placeholder("named", token));
-                appendPlaceholder(sql, normalized, start);
-                i--;
-                continue;
+        private void reset(String sql) {
+            source = sql;
+            count = 0;
+        }
+
+        private void add(int start, int end, boolean named, boolean wrapped) {
+            if (3 * count + 3 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
             }
+            data[3 * count] = start;
+            data[3 * count + 1] = end;
+            data[3 * count + 2] = (named ? 1 : 0) << 1 | (wrapped ? 1 : 0);
+            count++;
+        }
+    }
 
-            normalized.append(c);
+    public static Result normalize(String sql) {
+        if (sql == null) {
+            return new Result(null, List.of());
         }
+        Spans spans = SPANS.get();
+        String normalized = normalize(sql, spans);
+        List<Placeholder> placeholders = spans.toPlaceholders();
+        spans.reset(null);
+        return new Result(normalized, placeholders);
+    }
 
-        return new Result(normalized.toString(), placeholders);
+    /**
+     * Returns only the normalized SQL, without materializing the placeholders.
+     */
+    public static String normalizeSql(String sql) {
+        return normalize(sql, null);
     }
 
-    private static void appendPlaceholder(String sql, StringBuilder normalized, int placeholderStart) {
-        if (needsInClauseWrapping(sql, normalized, placeholderStart)) {
-            normalized.append('(').append('?').append(')');
-        } else {
-            normalized.append('?');
+    /**
+     * Returns the normalized SQL and records the placeholders in {@code spans}, unless it is {@code null}.
+     */
+    public static String normalize(String sql, Spans spans) {
+        if (sql == null) {
+            if (spans != null) {
+                spans.reset(null);
+            }
+            return null;
         }
+        return normalize(SqlTokens.of(sql), spans);
     }
 
-    private static boolean needsInClauseWrapping(String sql, StringBuilder normalized, int placeholderStart) {
-        int index = normalized.length() - 1;
-        while (index >= 0 && Character.isWhitespace(normalized.charAt(index))) {
-            index--;
-        }
-        if (index >= 0 && normalized.charAt(index) == '(') {
-            return false;
-        }
-        index = placeholderStart - 1;
-        while (index >= 0 && Character.isWhitespace(sql.charAt(index))) {
-            index--;
-        }
-        if (index >= 0 && sql.charAt(index) == '(') {
-            return false;
-        }
-        if (index < 0 || !equalsIgnoreCase(sql.charAt(index), 'n')) {
-            return false;
-        }
-        index--;
-        while (index >= 0 && Character.isWhitespace(sql.charAt(index))) {
-            index--;
+    /**
+     * Same as {@link #normalize(String, Spans)} for SQL that was already tokenized.
+     */
+    public static String normalize(SqlTokens tokens, Spans spans) {
+        String sql = tokens.sql();
+        if (spans != null) {
+            spans.reset(sql);
         }
-        if (index < 0 || !equalsIgnoreCase(sql.charAt(index), 'i')) {
-            return false;
-        }
-        int beforeI = index - 1;
-        if (beforeI >= 0) {
-            char ch = sql.charAt(beforeI);
-            if (!Character.isWhitespace(ch) && (Character.isLetterOrDigit(ch) || ch == '_' || ch == '$')) {
-                return false;
+        int length = sql.length();
+        // Every parameter has at least two characters and grows to at most three, "(?)".
+        int capacity = length + length / 2 + 1;
+        char[] out = BUFFER.get();
+        if (out.length < capacity) {
+            out = new char[capacity];
+            if (capacity <= MAX_RETAINED_BUFFER) {
+                BUFFER.set(out);
             }
         }
-        int afterIn = index + 1;
-        while (afterIn < placeholderStart && Character.isWhitespace(sql.charAt(afterIn))) {
-            afterIn++;
-        }
-        if (afterIn < placeholderStart && sql.charAt(afterIn) == '(') {
-            int afterParen = afterIn + 1;
-            while (afterParen < placeholderStart && Character.isWhitespace(sql.charAt(afterParen))) {
-                afterParen++;
+        int size = 0;
+        // Source positions of the last and second-to-last non-whitespace characters before `tracked`.
+        int last = -1;
+        int beforeLast = -1;
+        int tracked = 0;
+
+        for (int t = 0; t < tokens.count(); t++) {
+            int type = tokens.type(t);
+            int start = tokens.start(t);
+            int end = tokens.end(t);
+            if (type != SqlTokens.POSITIONAL_PARAMETER && type != SqlTokens.NAMED_PARAMETER) {
+                sql.getChars(start, end, out, size);
+                size += end - start;
+                continue;
             }
-            if (afterParen < placeholderStart && startsWithIgnoreCase(sql, afterParen, "select")) {
-                return false;
+
+            for (; tracked < start; tracked++) {
+                if (!Character.isWhitespace(sql.charAt(tracked))) {
+                    beforeLast = last;
+                    last = tracked;
+                }
+            }
+            boolean wrapped = isBareInList(sql, last, beforeLast);
+            if (wrapped) {
+                out[size++] = '(';
+                out[size++] = '?';
+                out[size++] = ')';
+            } else {
+                out[size++] = '?';
+            }
+            if (spans != null) {
+                spans.add(start, end, type == SqlTokens.NAMED_PARAMETER, wrapped);
             }
         }
-        return true;
-    }
 
-    private static boolean equalsIgnoreCase(char a, char b) {
-        return Character.toUpperCase(a) == Character.toUpperCase(b);
+        return new String(out, 0, size);
     }
 
-    private static boolean startsWithIgnoreCase(String value, int index, String keyword) {
-        if (index < 0 || index + keyword.length() > value.length()) {
+    /**
+     * A placeholder is a bare IN list when the SQL before it ends with the word {@code in}, i.e. its last two
+     * non-whitespace characters are {@code i} and {@code n} and no identifier character precedes the {@code i}.
+     * A parenthesis already around the placeholder or a comment in between leaves it as it is.
+     */
+    private static boolean isBareInList(String sql, int last, int beforeLast) {
+        if (last < 0 || beforeLast < 0
+                || !equalsIgnoreCase(sql.charAt(last), 'n') || !equalsIgnoreCase(sql.charAt(beforeLast), 'i')) {
             return false;
         }
-        for (int i = 0; i < keyword.length(); i++) {
-            if (!equalsIgnoreCase(value.charAt(index + i), keyword.charAt(i))) {
-                return false;
-            }
-        }
-        return true;
+        return beforeLast == 0 || !SqlTokens.isIdentifierPart(sql.charAt(beforeLast - 1));
+    }
+
+    private static boolean equalsIgnoreCase(char a, char b) {
+        return Character.toUpperCase(a) == Character.toUpperCase(b);
     }
 }
@@ -0,0 +1,421 @@
+package com.example.mcp.util;
+
+import com.example.mcp.jfr.ReportWriteEvent;
+import org.h2.api.ErrorCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Embedded H2 file database holding preparation report entries, indexed by SQL fingerprint and timestamp.
+ *
+ * <p>Inserts are queued and committed by a single background writer thread: it drains whatever is queued (up to
+ * {@code h2sqlmcp.report.maxBatch}, default 512) and writes the batch in one transaction over one connection, so a
+ * burst of reports opens the database once rather than once per row, and the inserting thread does no I/O. The
+ * database is opened for the duration of a batch or a read only, so several server processes sharing the jar
+ * directory take turns on the H2 file lock instead of one of them serving the others over TCP. Opening a locked file
+ * is retried for up to {@code h2sqlmcp.report.lockTimeoutMillis} (default 10000). Reads first wait for the entries
+ * queued before them. Entries can be exported in the {@code timestamp,sql,diagnosis} CSV layout of the original
+ * report file, into files under the store directory.</p>
+ */
+public class PrepareReportStore implements AutoCloseable {
+    private static final String DATABASE_NAME = "prepare-report";
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS PREPARE_REPORT ("
+                    + "ID BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                    + "CREATED_AT TIMESTAMP WITH TIME ZONE NOT NULL, "
+                    + "FINGERPRINT CHAR(64) NOT NULL, "
+                    + "SQL_TEXT CHARACTER LARGE OBJECT NOT NULL, "
+                    + "DIAGNOSIS CHARACTER LARGE OBJECT NOT NULL)",
+            "CREATE INDEX IF NOT EXISTS IDX_PREPARE_REPORT_FINGERPRINT ON PREPARE_REPORT (FINGERPRINT, CREATED_AT)",
+            "CREATE INDEX IF NOT EXISTS IDX_PREPARE_REPORT_CREATED_AT ON PREPARE_REPORT (CREATED_AT)"
+    };
+    private static final String SELECT_COLUMNS = "SELECT ID, CREATED_AT, FINGERPRINT, SQL_TEXT, DIAGNOSIS FROM PREPARE_REPORT";
+
+    public record Entry(long id, Instant timestamp, String fingerprint, String sql, String diagnosis) {
+    }
+
+    private record PendingEntry(Instant timestamp, String fingerprint, String sql, String diagnosis,
+                                CompletableFuture<Entry> stored) {
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PrepareReportStore.class);
+    private static final long LOCK_RETRY_MILLIS = 50;
+    private static final PendingEntry POISON = new PendingEntry(null, null, null, null, null);
+
+    private final Path directory;
+    private final String jdbcUrl;
+    private final Duration lockTimeout;
+    private final BlockingQueue<PendingEntry> queue;
+    private final int maxBatch;
+    private final Duration enqueueTimeout;
+    private final Object lifecycleLock = new Object();
+    private Thread writer;
+    private boolean closed;
+    private volatile boolean schemaCreated;
+
+    public PrepareReportStore(Path directory) {
+        this(directory, Duration.ofMillis(SystemSettings.longValue("report.lockTimeoutMillis", 10_000)),
+                SystemSettings.intValue("report.queueCapacity", 4096),
+                SystemSettings.intValue("report.maxBatch", 512),
+                Duration.ofMillis(SystemSettings.longValue("report.enqueueTimeoutMillis", 1000)));
+    }
+
+    PrepareReportStore(Path directory, Duration lockTimeout, int queueCapacity, int maxBatch, Duration enqueueTimeout) {
+        this.directory = directory.toAbsolutePath().normalize();
+        this.jdbcUrl = "jdbc:h2:file:" + this.directory.resolve(DATABASE_NAME);
+        this.lockTimeout = lockTimeout;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.maxBatch = Math.max(1, maxBatch);
+        this.enqueueTimeout = enqueueTimeout;
+    }
+
+    /**
+     * Store located next to the server jar, or in the working directory when the jar location is unknown.
+     */
+    public static PrepareReportStore nextToJar() {
+        Path jarDirectory = JarLocationResolver.resolveJarDirectory(PrepareReportStore.class);
+        return new PrepareReportStore(jarDirectory != null ? jarDirectory : Path.of(""));
+    }
+
+    /**
+     * Queues an entry. The returned future completes with the stored entry once its batch has been committed, or
+     * exceptionally if the write failed; failures are also logged.
+     */
+    public CompletableFuture<Entry> insert(Instant timestamp, String sql, String diagnosis) throws InterruptedException {
+        return enqueue(new PendingEntry(timestamp, SqlFingerprint.of(sql), sql, diagnosis, new CompletableFuture<>()));
+    }
+
+    /**
+     * Most recent entries for a fingerprint, served from the fingerprint index.
+     */
+    public List<Entry> findByFingerprint(String fingerprint, int limit) throws SQLException, InterruptedException {
+        return query(SELECT_COLUMNS + " WHERE FINGERPRINT = ? ORDER BY CREATED_AT DESC, ID DESC LIMIT ?",
+                fingerprint, limit);
+    }
+
+    /**
+     * Most recent entries at or after {@code since}, served from the timestamp index.
+     */
+    public List<Entry> findSince(Instant since, int limit) throws SQLException, InterruptedException {
+        return query(SELECT_COLUMNS + " WHERE CREATED_AT >= ? ORDER BY CREATED_AT DESC, ID DESC LIMIT ?",
+                OffsetDateTime.ofInstant(since, ZoneOffset.UTC), limit);
+    }
+
+    /**
+     * Entries whose SQL or diagnosis contains {@code text}, case-insensitively. This is a full scan and is meant for
+     * exploratory lookups; exact SQL should be found through {@link #findByFingerprint}.
+     */
+    public List<Entry> search(String text, int limit) throws SQLException, InterruptedException {
+        String escaped = text.toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        String pattern = "%" + escaped + "%";
+        return query(SELECT_COLUMNS + " WHERE LOWER(SQL_TEXT) LIKE ? OR LOWER(DIAGNOSIS) LIKE ?"
+                + " ORDER BY CREATED_AT DESC, ID DESC LIMIT ?", pattern, pattern, limit);
+    }
+
+    /**
+     * Resolves a relative export file name against the store directory, rejecting absolute paths and any path that
+     * leaves the directory.
+     */
+    public Path resolveExportPath(String name) {
+        Path relative = Path.of(name);
+        if (relative.isAbsolute() || relative.getRoot() != null) {
+            throw new IllegalArgumentException("Export path must be relative to the report directory: " + name);
+        }
+        for (Path element : relative) {
+            if (element.toString().equals("..")) {
+                throw new IllegalArgumentException("Export path must not contain '..': " + name);
+            }
+        }
+        Path target = directory.resolve(relative).normalize();
+        if (!target.startsWith(directory) || target.equals(directory)) {
+            throw new IllegalArgumentException("Export path must name a file in the report directory: " + name);
+        }
+        return target;
+    }
+
+    /**
+     * Writes every entry in insertion order using the original report CSV layout into a new file and returns the row
+     * count. An existing {@code target} is never overwritten.
+     *
+     * @throws java.nio.file.FileAlreadyExistsException if {@code target} already exists
+     */
+    public int exportCsv(Path target) throws SQLException, IOException, InterruptedException {
+        awaitQueued();
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null && Files.notExists(parent)) {
+            Files.createDirectories(parent);
+        }
+        int rows = 0;
+        try (Connection connection = open();
+             Writer writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8,
+                     StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(SELECT_COLUMNS + " ORDER BY ID")) {
+            writer.write("timestamp,sql,diagnosis\n");
+            while (resultSet.next()) {
+                Entry entry = toEntry(resultSet);
+                writer.write(formatCsvValue(entry.timestamp().toString()));
+                writer.write(',');
+                writer.write(formatCsvValue(entry.sql()));
+                writer.write(',');
+                writer.write(formatCsvValue(entry.diagnosis()));
+                writer.write('\n');
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Stops accepting entries, commits everything already queued and waits for the writer to finish.
+     */
+    @Override
+    public void close() {
+        Thread current;
+        synchronized (lifecycleLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            current = writer;
+        }
+        if (current == null) {
+            return;
+        }
+        try {
+            queue.put(POISON);
+            current.join(TimeUnit.SECONDS.toMillis(10) + lockTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static String formatCsvValue(String value) {
+        String escaped = value.replace("\"", "\"\"");
+        return '"' + escaped + '"';
+    }
+
+    private CompletableFuture<Entry> enqueue(PendingEntry pending) throws InterruptedException {
+        synchronized (lifecycleLock) {
+            if (closed) {
+                throw new IllegalStateException("Report store is closed");
+            }
+            if (writer == null) {
+                writer = new Thread(this::runWriter, "report-store-writer");
+                writer.setDaemon(true);
+                writer.start();
+            }
+        }
+        if (!queue.offer(pending, enqueueTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("Report store queue is full; try again later");
+        }
+        return pending.stored();
+    }
+
+    /**
+     * Waits until every entry queued so far has been written or has failed, so a read sees them. Failures are left to
+     * the inserting callers and the log.
+     */
+    private void awaitQueued() throws InterruptedException {
+        synchronized (lifecycleLock) {
+            if (writer == null || closed) {
+                return;
+            }
+        }
+        // An entry without SQL is a marker: the writer completes it after committing everything queued before it.
+        PendingEntry marker = new PendingEntry(null, null, null, null, new CompletableFuture<>());
+        if (!queue.offer(marker, enqueueTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("Report store queue is full; try again later");
+        }
+        marker.stored().join();
+    }
+
+    private void runWriter() {
+        List<PendingEntry> batch = new ArrayList<>(maxBatch);
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                PendingEntry first = queue.take();
+                if (first == POISON) {
+                    stopping = true;
+                } else {
+                    batch.add(first);
+                }
+                PendingEntry next;
+                while ((stopping || batch.size() < maxBatch) && (next = queue.poll()) != null) {
+                    if (next == POISON) {
+                        stopping = true;
+                    } else {
+                        batch.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                stopping = true;
+            }
+            if (!batch.isEmpty()) {
+                commit(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<PendingEntry> batch) {
+        List<Entry> stored;
+        try {
+            stored = writeBatch(batch);
+        } catch (SQLException | RuntimeException e) {
+            LOGGER.error("Failed to store {} report entries in {}", batch.size(), jdbcUrl, e);
+            for (PendingEntry pending : batch) {
+                if (pending.sql() == null) {
+                    pending.stored().complete(null);
+                } else {
+                    pending.stored().completeExceptionally(e);
+                }
+            }
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).stored().complete(stored.get(i));
+        }
+    }
+
+    /**
+     * Inserts the batch in one transaction and returns the stored entries, {@code null} for markers.
+     */
+    private List<Entry> writeBatch(List<PendingEntry> batch) throws SQLException {
+        List<Entry> stored = new ArrayList<>(batch.size());
+        if (batch.stream().allMatch(pending -> pending.sql() == null)) {
+            batch.forEach(pending -> stored.add(null));
+            return stored;
+        }
+        int records = 0;
+        long bytes = 0;
+        ReportWriteEvent event = new ReportWriteEvent();
+        event.begin();
+        try (Connection connection = open();
+             PreparedStatement statement = connection.prepareStatement(
+                     "INSERT INTO PREPARE_REPORT (CREATED_AT, FINGERPRINT, SQL_TEXT, DIAGNOSIS) VALUES (?, ?, ?, ?)",
+                     Statement.RETURN_GENERATED_KEYS)) {
+            connection.setAutoCommit(false);
+            for (PendingEntry pending : batch) {
+                if (pending.sql() == null) {
+                    stored.add(null);
+                    continue;
+                }
+                statement.setObject(1, OffsetDateTime.ofInstant(pending.timestamp(), ZoneOffset.UTC));
+                statement.setString(2, pending.fingerprint());
+                statement.setString(3, pending.sql());
+                statement.setString(4, pending.diagnosis());
+                statement.executeUpdate();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    long id = keys.next() ? keys.getLong(1) : -1;
+                    stored.add(new Entry(id, pending.timestamp(), pending.fingerprint(), pending.sql(),
+                            pending.diagnosis()));
+                }
+                records++;
+                bytes += pending.sql().getBytes(StandardCharsets.UTF_8).length
+                        + (pending.diagnosis() == null ? 0 : pending.diagnosis().getBytes(StandardCharsets.UTF_8).length);
+            }
+            connection.commit();
+        } finally {
+            if (event.shouldCommit()) {
+                event.target = "database";
+                event.records = records;
+                event.bytes = bytes;
+                event.commit();
+            }
+        }
+        return stored;
+    }
+
+    private List<Entry> query(String sql, Object... parameters) throws SQLException, InterruptedException {
+        awaitQueued();
+        try (Connection connection = open();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            List<Entry> entries = new ArrayList<>();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    entries.add(toEntry(resultSet));
+                }
+            }
+            return entries;
+        }
+    }
+
+    private Entry toEntry(ResultSet resultSet) throws SQLException {
+        return new Entry(
+                resultSet.getLong(1),
+                resultSet.getObject(2, OffsetDateTime.class).toInstant(),
+                resultSet.getString(3),
+                resultSet.getString(4),
+                resultSet.getString(5)
+        );
+    }
+
+    /**
+     * Opens the database, waiting while another process holds its file lock, and creates the schema on first use;
+     * the DDL is idempotent, so the writer and a reader may both run it.
+     */
+    private Connection open() throws SQLException {
+        long deadline = System.nanoTime() + lockTimeout.toNanos();
+        Connection opened;
+        while (true) {
+            try {
+                opened = DriverManager.getConnection(jdbcUrl, "sa", "");
+                break;
+            } catch (SQLException e) {
+                if (e.getErrorCode() != ErrorCode.DATABASE_ALREADY_OPEN_1 || System.nanoTime() >= deadline) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(LOCK_RETRY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+        if (!schemaCreated) {
+            try (Statement statement = opened.createStatement()) {
+                for (String ddl : SCHEMA) {
+                    statement.execute(ddl);
+                }
+            } catch (SQLException e) {
+                opened.close();
+                throw e;
+            }
+            schemaCreated = true;
+        }
+        return opened;
+    }
+}
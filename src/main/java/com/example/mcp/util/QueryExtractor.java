@@ -1,5 +1,7 @@
 package com.example.mcp.util;
 
+import com.example.mcp.jfr.FileExtractEvent;
+import com.example.mcp.model.Placeholder;
 import com.example.mcp.model.QueryItem;
 import com.example.mcp.model.RuleHit;
 import com.example.mcp.util.ParamNormalizer;
@@ -8,12 +10,14 @@ import org.apache.commons.text.StringEscapeUtils;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -29,10 +33,44 @@ public class QueryExtractor {
     private static final Pattern METHOD_PATTERN = Pattern.compile("(?:public|protected|private|default)?\\s*(?:static\\s+)?[\\w<>,\\s\\[\\]]+\\s+(\\w+)\\s*\\(");
     private static final Pattern NATIVE_QUERY_FLAG_PATTERN = Pattern.compile("nativequery\\s*=\\s*true");
 
+    private static final long DEFAULT_MAP_THRESHOLD = 4L * 1024 * 1024;
+    private static final byte[] NATIVE_QUERY_FLAG = "nativequery".getBytes(StandardCharsets.US_ASCII);
+    // Larger buffers are used for one file and dropped, so a single huge source does not stay pinned to a scan
+    // worker; 8 Mi chars still covers files up to twice the default map threshold.
+    private static final int MAX_RETAINED_BUFFER = 1 << 23;
+    private static final ThreadLocal<CharBuffer> DECODE_BUFFER = new ThreadLocal<>();
+
     private final RuleEngine ruleEngine;
+    private final long mapThreshold;
+
+    /**
+     * Which parts of a query to compute. Skipped parts are left {@code null} ({@code sqlRaw},
+     * {@code sqlNormalized}) or empty (placeholders, rule hits) in the returned items.
+     *
+     * @param decodeSql  decode the SQL literal into {@code sqlRaw}; implied by the other two
+     * @param normalize  run {@link ParamNormalizer} for {@code sqlNormalized} and placeholders
+     * @param matchRules run {@link RuleEngine#findHits(SqlTokens)}
+     */
+    public record Options(boolean decodeSql, boolean normalize, boolean matchRules) {
+        public static final Options FULL = new Options(true, true, true);
+
+        public Options {
+            decodeSql = decodeSql || normalize || matchRules;
+        }
+    }
 
+    /**
+     * Files of at least {@code h2sqlmcp.scan.mapThreshold} bytes (default 4 MiB) are memory-mapped and decoded into
+     * a buffer reused by the calling thread instead of being copied into a byte array and a string. The thread keeps
+     * that buffer only up to 8 Mi chars.
+     */
     public QueryExtractor(RuleEngine ruleEngine) {
+        this(ruleEngine, SystemSettings.longValue("scan.mapThreshold", DEFAULT_MAP_THRESHOLD));
+    }
+
+    QueryExtractor(RuleEngine ruleEngine, long mapThreshold) {
         this.ruleEngine = ruleEngine;
+        this.mapThreshold = mapThreshold;
     }
 
     private String decodeLiteral(String rawLiteral) {
@@ -42,6 +80,40 @@ public class QueryExtractor {
         return StringEscapeUtils.unescapeJava(rawLiteral.substring(1, rawLiteral.length() - 1));
     }
 
+    /**
+     * Decodes the literal {@code stringMatcher} just found together with any literals joined to it by {@code +},
+     * as in {@code "SELECT * FROM " + "users"}.
+     */
+    private String decodeConcatenation(String body, Matcher stringMatcher) {
+        String first = decodeLiteral(stringMatcher.group());
+        StringBuilder builder = null;
+        int index = stringMatcher.end();
+        while (true) {
+            int plus = skipWhitespace(body, index);
+            if (plus >= body.length() || body.charAt(plus) != '+') {
+                break;
+            }
+            int next = skipWhitespace(body, plus + 1);
+            stringMatcher.region(next, body.length());
+            if (!stringMatcher.lookingAt()) {
+                break;
+            }
+            if (builder == null) {
+                builder = new StringBuilder(first);
+            }
+            builder.append(decodeLiteral(stringMatcher.group()));
+            index = stringMatcher.end();
+        }
+        return builder == null ? first : builder.toString();
+    }
+
+    private static int skipWhitespace(String text, int index) {
+        while (index < text.length() && Character.isWhitespace(text.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
     private String decodeTextBlock(String rawLiteral) {
         String content = rawLiteral.substring(3, rawLiteral.length() - 3);
         content = content.replace("\r\n", "\n");
@@ -100,9 +172,46 @@ public class QueryExtractor {
     }
 
     public List<QueryItem> extract(Path file, String relativePath) throws IOException {
-        String content = readContent(file);
+        return extract(file, relativePath, Options.FULL);
+    }
+
+    public List<QueryItem> extract(Path file, String relativePath, Options options) throws IOException {
+        return extract(file, relativePath, options, QueryFilter.NONE);
+    }
+
+    /**
+     * Extracts only the queries accepted by {@code filter}; the others are dropped as early as their checks allow and
+     * never become items.
+     */
+    public List<QueryItem> extract(Path file, String relativePath, Options options, QueryFilter filter)
+            throws IOException {
+        FileExtractEvent event = new FileExtractEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            CharSequence content = read(file, event);
+            List<QueryItem> items = content == null
+                    ? List.of()
+                    : extractQueries(content, file, relativePath, options, filter);
+            event.queryCount = items.size();
+            return items;
+        } finally {
+            Metrics.record(Metrics.PHASE_EXTRACT, System.nanoTime() - start);
+            event.path = relativePath;
+            event.commit();
+        }
+    }
+
+    private List<QueryItem> extractQueries(CharSequence content, Path file, String relativePath, Options options,
+                                           QueryFilter filter) {
         String repoName = detectRepoName(content, file.getFileName().toString());
+        if (!filter.acceptsRepo(repoName) || !filter.mayMatch(content, ruleEngine)) {
+            return List.of();
+        }
+        boolean decodeSql = options.decodeSql() || filter.needsSql();
+        boolean normalize = options.normalize() || filter.minPlaceholders() > 0;
         List<QueryItem> result = new ArrayList<>();
+        ParamNormalizer.Spans spans = new ParamNormalizer.Spans();
         Matcher matcher = QUERY_PATTERN.matcher(content);
         int searchStart = 0;
         while (matcher.find(searchStart)) {
@@ -122,12 +231,49 @@ public class QueryExtractor {
                 searchStart = annotation.endIndex();
                 continue;
             }
-            String rawLiteral = stringMatcher.group();
-            String sqlRaw = decodeLiteral(rawLiteral);
+            String sqlRaw = decodeSql ? decodeConcatenation(body, stringMatcher) : null;
+            if (sqlRaw != null && !filter.acceptsSql(sqlRaw)) {
+                searchStart = annotation.endIndex();
+                continue;
+            }
+            // Lexed once; the rule filter, the normalizer and the rule engine all read these tokens. The SQL is
+            // always decoded when one of them runs.
+            SqlTokens tokens = null;
+            if (sqlRaw != null && (normalize || options.matchRules() || !filter.rules().isEmpty())) {
+                long tokenizeStart = System.nanoTime();
+                tokens = SqlTokens.of(sqlRaw);
+                Metrics.record(Metrics.PHASE_TOKENIZE, System.nanoTime() - tokenizeStart);
+            }
+            if (tokens != null && !filter.acceptsRules(tokens, ruleEngine)) {
+                searchStart = annotation.endIndex();
+                continue;
+            }
 
+            String sqlNormalized = null;
+            List<Placeholder> placeholders = List.of();
+            if (normalize) {
+                long normalizeStart = System.nanoTime();
+                String normalized = ParamNormalizer.normalize(tokens, spans);
+                Metrics.record(Metrics.PHASE_NORMALIZE, System.nanoTime() - normalizeStart);
+                if (spans.count() < filter.minPlaceholders()) {
+                    searchStart = annotation.endIndex();
+                    continue;
+                }
+                if (options.normalize()) {
+                    sqlNormalized = normalized;
+                    placeholders = spans.toPlaceholders();
+                }
+            }
+            if (!options.decodeSql()) {
+                sqlRaw = null;
+            }
             String methodName = detectMethodName(content, annotation.endIndex());
-            ParamNormalizer.Result normalized = ParamNormalizer.normalize(sqlRaw);
-            List<RuleHit> hits = ruleEngine.findHits(sqlRaw);
+            List<RuleHit> hits = List.of();
+            if (options.matchRules()) {
+                long ruleStart = System.nanoTime();
+                hits = ruleEngine.findHits(tokens);
+                Metrics.record(Metrics.PHASE_RULE_MATCH, System.nanoTime() - ruleStart);
+            }
             String id = repoName + (methodName == null ? "" : "#" + methodName);
             result.add(new QueryItem(
                     id,
@@ -135,8 +281,8 @@ public class QueryExtractor {
                     repoName,
                     methodName,
                     sqlRaw,
-                    normalized.sql(),
-                    normalized.placeholders(),
+                    sqlNormalized,
+                    placeholders,
                     hits
             ));
             searchStart = annotation.endIndex();
@@ -144,7 +290,7 @@ public class QueryExtractor {
         return result;
     }
 
-    private AnnotationMatch extractAnnotationBody(String content, int startIndex) {
+    private AnnotationMatch extractAnnotationBody(CharSequence content, int startIndex) {
         int length = content.length();
         int depth = 1;
         int index = startIndex;
@@ -248,7 +394,7 @@ public class QueryExtractor {
             if (current == ')') {
                 depth--;
                 if (depth == 0) {
-                    String body = content.substring(startIndex, index);
+                    String body = content.subSequence(startIndex, index).toString();
                     return new AnnotationMatch(body, index + 1);
                 }
                 index++;
@@ -263,20 +409,97 @@ public class QueryExtractor {
     private record AnnotationMatch(String body, int endIndex) {
     }
 
-    private String readContent(Path file) throws IOException {
-        byte[] bytes = Files.readAllBytes(file);
-        CharsetDecoder decoder = StandardCharsets.UTF_8
+    /**
+     * Returns the decoded file content, or {@code null} when the raw bytes cannot contain a native query because
+     * the {@code nativeQuery} flag never occurs in them; such files are not decoded at all. Large files come back
+     * as the thread's reusable buffer, which is only valid until this thread reads the next file.
+     */
+    private CharSequence read(Path file, FileExtractEvent event) throws IOException {
+        long start = System.nanoTime();
+        ByteBuffer bytes;
+        boolean mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            event.bytes = size;
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large to scan: " + size + " bytes");
+            }
+            mapped = size >= mapThreshold;
+            bytes = mapped ? channel.map(FileChannel.MapMode.READ_ONLY, 0, size) : readFully(channel, (int) size);
+        } finally {
+            Metrics.record(Metrics.PHASE_READ, System.nanoTime() - start);
+        }
+        if (!containsNativeQueryFlag(bytes)) {
+            return null;
+        }
+        return mapped ? decodeReusing(bytes) : decode(bytes);
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            // The file may shrink while it is read; whatever was read is used.
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * ASCII case-insensitive search for {@code nativequery}. The flag is plain ASCII, so it appears byte for byte in
+     * UTF-8 and a file without it has no query that {@link #NATIVE_QUERY_FLAG_PATTERN} would accept.
+     */
+    private static boolean containsNativeQueryFlag(ByteBuffer bytes) {
+        int last = bytes.limit() - NATIVE_QUERY_FLAG.length;
+        for (int i = bytes.position(); i <= last; i++) {
+            if ((bytes.get(i) | 0x20) != NATIVE_QUERY_FLAG[0]) {
+                continue;
+            }
+            int matched = 1;
+            while (matched < NATIVE_QUERY_FLAG.length && (bytes.get(i + matched) | 0x20) == NATIVE_QUERY_FLAG[matched]) {
+                matched++;
+            }
+            if (matched == NATIVE_QUERY_FLAG.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static CharsetDecoder newDecoder() {
+        return StandardCharsets.UTF_8
                 .newDecoder()
                 .onMalformedInput(CodingErrorAction.REPLACE)
                 .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    private String decode(ByteBuffer bytes) {
         try {
-            return decoder.decode(ByteBuffer.wrap(bytes)).toString();
+            return newDecoder().decode(bytes).toString();
         } catch (CharacterCodingException ex) {
-            return new String(bytes, StandardCharsets.ISO_8859_1);
+            return StandardCharsets.ISO_8859_1.decode(bytes.rewind()).toString();
+        }
+    }
+
+    /**
+     * Decodes straight from the (mapped) bytes into this thread's char buffer, growing it only for a larger file,
+     * so a large file is held once as chars rather than as bytes, chars and a string copy.
+     */
+    private static CharBuffer decodeReusing(ByteBuffer bytes) {
+        CharBuffer buffer = DECODE_BUFFER.get();
+        // UTF-8 never decodes to more chars than it has bytes.
+        if (buffer == null || buffer.capacity() < bytes.remaining()) {
+            buffer = CharBuffer.allocate(bytes.remaining());
+            if (buffer.capacity() <= MAX_RETAINED_BUFFER) {
+                DECODE_BUFFER.set(buffer);
+            }
         }
+        buffer.clear();
+        CharsetDecoder decoder = newDecoder();
+        decoder.decode(bytes, buffer, true);
+        decoder.flush(buffer);
+        return buffer.flip();
     }
 
-    private String detectRepoName(String content, String fallback) {
+    private String detectRepoName(CharSequence content, String fallback) {
         Matcher matcher = CLASS_PATTERN.matcher(content);
         if (matcher.find()) {
             return matcher.group(3);
@@ -285,8 +508,8 @@ public class QueryExtractor {
         return dot > 0 ? fallback.substring(0, dot) : fallback;
     }
 
-    private String detectMethodName(String content, int fromIndex) {
-        Matcher matcher = METHOD_PATTERN.matcher(content.substring(fromIndex));
+    private String detectMethodName(CharSequence content, int fromIndex) {
+        Matcher matcher = METHOD_PATTERN.matcher(content).region(fromIndex, content.length());
         if (matcher.find()) {
             return matcher.group(1);
         }
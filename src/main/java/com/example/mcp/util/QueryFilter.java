@@ -0,0 +1,61 @@
+package com.example.mcp.util;
+
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Conditions a query must meet to be extracted at all; every condition that is set must hold. Checks run in order of
+ * cost inside {@link QueryExtractor}, so most queries are dropped before normalization or rule matching: the
+ * repository name and the keywords of the requested rules against the whole file, then per query the SQL keyword
+ * and the SQL pattern on the text, the rules on its tokens and finally the placeholder count.
+ *
+ * @param rules           names of rules of which at least one must hit; empty for any
+ * @param sqlContains     text the SQL must contain, ignoring case; {@code null} for any
+ * @param sqlPattern      pattern that must be found in the SQL; {@code null} for any
+ * @param repoPattern     pattern that must be found in the repository name; {@code null} for any
+ * @param minPlaceholders minimum number of parameter placeholders
+ */
+public record QueryFilter(Set<String> rules, String sqlContains, Pattern sqlPattern, Pattern repoPattern,
+                          int minPlaceholders) {
+    public static final QueryFilter NONE = new QueryFilter(Set.of(), null, null, null, 0);
+
+    public QueryFilter {
+        rules = Set.copyOf(rules);
+    }
+
+    /**
+     * Whether the per-query checks need the decoded SQL.
+     */
+    boolean needsSql() {
+        return !rules.isEmpty() || sqlContains != null || sqlPattern != null || minPlaceholders > 0;
+    }
+
+    boolean acceptsRepo(String repoName) {
+        return repoPattern == null || repoPattern.matcher(repoName).find();
+    }
+
+    /**
+     * File-level pre-check on the undecoded source: a file without the keyword or any keyword of the requested
+     * rules cannot contain a matching query. Only a single word is looked for in the source; anything else may be
+     * split across concatenated literals or text-block lines, or be spelled with escapes, so it is left to the
+     * per-query check on the decoded SQL.
+     */
+    boolean mayMatch(CharSequence content, RuleEngine ruleEngine) {
+        if (sqlContains != null && SqlTokens.isWord(sqlContains)
+                && !RuleEngine.containsIgnoreCase(content, sqlContains)) {
+            return false;
+        }
+        return rules.isEmpty() || ruleEngine.mayMatchAny(content, rules);
+    }
+
+    boolean acceptsSql(String sql) {
+        if (sqlContains != null && !RuleEngine.containsIgnoreCase(sql, sqlContains)) {
+            return false;
+        }
+        return sqlPattern == null || sqlPattern.matcher(sql).find();
+    }
+
+    boolean acceptsRules(SqlTokens tokens, RuleEngine ruleEngine) {
+        return rules.isEmpty() || ruleEngine.matchesAny(tokens, rules);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.mcp.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+/**
+ * Output stream appending to a file that is rotated according to a {@link FileRotation.Policy}. Not thread-safe; it
+ * is meant to be driven by a single writer such as {@link AsyncLogOutputStream}.
+ *
+ * <p>Bytes are buffered in memory and appended on flush under an exclusive lock of the {@code <file>.lock} sidecar,
+ * reopening the file each time, so several server processes sharing the file append to the current segment and rotate
+ * it at most once instead of writing into a segment another process already moved aside.</p>
+ */
+public class RollingFileOutputStream extends OutputStream {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path file;
+    private final Path lockFile;
+    private final FileRotation.Policy policy;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int count;
+
+    public RollingFileOutputStream(Path file, FileRotation.Policy policy) throws IOException {
+        this.file = file;
+        this.lockFile = FileRotation.lockFile(file);
+        this.policy = policy;
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null && Files.notExists(parent)) {
+            Files.createDirectories(parent);
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        if (length > buffer.length - count) {
+            flush();
+        }
+        if (length >= buffer.length) {
+            append(bytes, offset, length);
+            return;
+        }
+        System.arraycopy(bytes, offset, buffer, count, length);
+        count += length;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (count == 0) {
+            return;
+        }
+        try {
+            append(buffer, 0, count);
+        } finally {
+            count = 0;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    private void append(byte[] bytes, int offset, int length) throws IOException {
+        try (FileChannel lockChannel = FileChannel.open(lockFile,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileLock ignored = lockChannel.lock()) {
+            Instant now = Instant.now();
+            Instant segmentStart = FileRotation.segmentStart(lockChannel, file, now);
+            if (policy.shouldRotate(Files.exists(file) ? Files.size(file) : 0, length, segmentStart, now)) {
+                FileRotation.rotate(file, policy);
+                FileRotation.startSegment(lockChannel, now);
+            }
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ByteBuffer data = ByteBuffer.wrap(bytes, offset, length);
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+            }
+        }
+    }
+}
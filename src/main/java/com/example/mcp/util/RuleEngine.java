@@ -1,12 +1,18 @@
 package com.example.mcp.util;
 
+import com.example.mcp.jfr.RuleMatchEvent;
 import com.example.mcp.model.RuleHit;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
 
+/**
+ * Detects and rewrites Oracle-specific constructs. Rules match sequences of {@link SqlTokens}, so text inside string
+ * literals, quoted identifiers and comments never matches and is never rewritten.
+ */
 public class RuleEngine {
     public static final String RULE_MINUS_TO_EXCEPT = "MINUS_TO_EXCEPT";
     public static final String RULE_NVL_TO_COALESCE = "NVL_TO_COALESCE";
@@ -17,55 +23,275 @@ public class RuleEngine {
     public static final String HINT_CONNECT_BY = "CONNECT_BY_USAGE";
     public static final String HINT_DECODE = "DECODE_USAGE";
 
-    private record RuleDefinition(String name, Pattern pattern, String replacement, boolean rewrite) {
+    // Pattern steps besides words and symbols: required and optional whitespace.
+    private static final String SPACE = " ";
+    private static final String OPTIONAL_SPACE = "";
+
+    /**
+     * {@code keywords} lists literal words of which every match contains at least one (ignoring case), so text
+     * without any of them cannot match and the tokens need not be checked.
+     */
+    private record RuleDefinition(String name, List<TokenPattern> patterns, String replacement, boolean rewrite,
+                                  List<String> keywords) {
+        RuleDefinition(String name, TokenPattern pattern, String replacement, boolean rewrite, List<String> keywords) {
+            this(name, List.of(pattern), replacement, rewrite, keywords);
+        }
+
+        /**
+         * Returns the index after the first matching alternative, or -1 if none starts at {@code index}.
+         */
+        int match(SqlTokens tokens, int index) {
+            for (TokenPattern pattern : patterns) {
+                int end = pattern.match(tokens, index);
+                if (end >= 0) {
+                    return end;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Consecutive tokens a rule matches: words and symbols compared ignoring case, {@link #SPACE} for a whitespace
+     * token and {@link #OPTIONAL_SPACE} for an optional one. Words are whole tokens, so {@code ROWNUM} does not
+     * match inside {@code MY_ROWNUM}.
+     */
+    private record TokenPattern(List<String> steps) {
+        static TokenPattern of(String... steps) {
+            return new TokenPattern(List.of(steps));
+        }
+
+        /**
+         * Returns the index after the last matched token, or -1 if the pattern does not start at {@code index}.
+         */
+        int match(SqlTokens tokens, int index) {
+            int t = index;
+            for (String step : steps) {
+                boolean space = t < tokens.count() && tokens.type(t) == SqlTokens.WHITESPACE;
+                if (step.equals(OPTIONAL_SPACE)) {
+                    t += space ? 1 : 0;
+                } else if (step.equals(SPACE) ? space : isCode(tokens, t) && tokens.textEqualsIgnoreCase(t, step)) {
+                    t++;
+                } else {
+                    return -1;
+                }
+            }
+            return t;
+        }
+
+        private static boolean isCode(SqlTokens tokens, int t) {
+            return t < tokens.count() && (tokens.type(t) == SqlTokens.WORD || tokens.type(t) == SqlTokens.SYMBOL);
+        }
     }
 
     public record RewriteResult(String sql, List<String> appliedRules) {
     }
 
     private final List<RuleDefinition> rewriteRules = List.of(
-            new RuleDefinition(RULE_MINUS_TO_EXCEPT, Pattern.compile("\\bMINUS\\b", Pattern.CASE_INSENSITIVE), "EXCEPT", true),
-            new RuleDefinition(RULE_NVL_TO_COALESCE, Pattern.compile("\\bNVL\\s*\\(", Pattern.CASE_INSENSITIVE), "COALESCE(", true),
-            new RuleDefinition(RULE_FROM_DUAL, Pattern.compile("(?i)\\s+FROM\\s+DUAL\\b"), "", true),
-            new RuleDefinition(RULE_SYSDATE, Pattern.compile("\\bSYSDATE\\b", Pattern.CASE_INSENSITIVE), "CURRENT_TIMESTAMP", true)
+            new RuleDefinition(RULE_MINUS_TO_EXCEPT, TokenPattern.of("MINUS"), "EXCEPT", true, List.of("MINUS")),
+            new RuleDefinition(RULE_NVL_TO_COALESCE, TokenPattern.of("NVL", OPTIONAL_SPACE, "("), "COALESCE(", true,
+                    List.of("NVL")),
+            new RuleDefinition(RULE_FROM_DUAL, TokenPattern.of(SPACE, "FROM", SPACE, "DUAL"), "", true, List.of("DUAL")),
+            new RuleDefinition(RULE_SYSDATE, TokenPattern.of("SYSDATE"), "CURRENT_TIMESTAMP", true,
+                    List.of("SYSDATE"))
     );
 
     private final List<RuleDefinition> hintRules = List.of(
-            new RuleDefinition(HINT_OLD_JOIN, Pattern.compile("\\(\\+\\)"), null, false),
-            new RuleDefinition(HINT_ROWNUM, Pattern.compile("\\bROWNUM\\b", Pattern.CASE_INSENSITIVE), null, false),
-            new RuleDefinition(HINT_CONNECT_BY, Pattern.compile("\\bCONNECT\\s+BY\\b|\\bSTART\\s+WITH\\b", Pattern.CASE_INSENSITIVE), null, false),
-            new RuleDefinition(HINT_DECODE, Pattern.compile("\\bDECODE\\s*\\(", Pattern.CASE_INSENSITIVE), null, false)
+            new RuleDefinition(HINT_OLD_JOIN, TokenPattern.of("(", "+", ")"), null, false, List.of("(+)")),
+            new RuleDefinition(HINT_ROWNUM, TokenPattern.of("ROWNUM"), null, false, List.of("ROWNUM")),
+            new RuleDefinition(HINT_CONNECT_BY,
+                    List.of(TokenPattern.of("CONNECT", SPACE, "BY"), TokenPattern.of("START", SPACE, "WITH")), null, false,
+                    List.of("CONNECT", "START")),
+            new RuleDefinition(HINT_DECODE, TokenPattern.of("DECODE", OPTIONAL_SPACE, "("), null, false,
+                    List.of("DECODE"))
     );
 
     public List<RuleHit> findHits(String sql) {
-        List<RuleHit> hits = new ArrayList<>();
         if (sql == null) {
-            return hits;
+            return new ArrayList<>();
         }
+        return findHits(SqlTokens.of(sql));
+    }
+
+    /**
+     * Hits of every rule in rule order, each rule's in text order. A snippet is the matched text without
+     * surrounding whitespace.
+     */
+    public List<RuleHit> findHits(SqlTokens tokens) {
+        List<RuleHit> hits = new ArrayList<>();
+        RuleMatchEvent event = new RuleMatchEvent();
+        event.begin();
         for (RuleDefinition rule : getAllRules()) {
-            Matcher matcher = rule.pattern.matcher(sql);
-            while (matcher.find()) {
-                String snippet = matcher.group().trim();
-                hits.add(new RuleHit(rule.name, snippet));
+            if (!containsKeyword(tokens.sql(), rule)) {
+                continue;
+            }
+            int t = 0;
+            while (t < tokens.count()) {
+                int end = rule.match(tokens, t);
+                if (end < 0) {
+                    t++;
+                    continue;
+                }
+                int first = tokens.type(t) == SqlTokens.WHITESPACE ? t + 1 : t;
+                hits.add(new RuleHit(rule.name, tokens.sql().substring(tokens.start(first), tokens.end(end - 1))));
+                t = end;
             }
         }
+        commit(event, "findHits", tokens.sql(), hits.size());
         return hits;
     }
 
+    /**
+     * Names of all rules and hints, as reported in {@link RuleHit#rule()}.
+     */
+    public Set<String> ruleNames() {
+        Set<String> names = new LinkedHashSet<>();
+        for (RuleDefinition rule : getAllRules()) {
+            names.add(rule.name);
+        }
+        return names;
+    }
+
+    /**
+     * Cheap pre-check on Java source: {@code false} if {@code text} contains none of the keywords of the given rules,
+     * so none of them can match in any SQL it holds. A rule with a keyword that is not a single word, such as
+     * {@code (+)}, always may match, since the source can split it across concatenated literals.
+     */
+    public boolean mayMatchAny(CharSequence text, Collection<String> ruleNames) {
+        for (RuleDefinition rule : getAllRules()) {
+            if (ruleNames.contains(rule.name) && (!allKeywordsAreWords(rule) || containsKeyword(text, rule))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether at least one of the given rules matches {@code sql}. The SQL is tokenized once, and a rule's token
+     * patterns are only tried at each token when one of its keywords occurs in the text.
+     */
+    public boolean matchesAny(String sql, Collection<String> ruleNames) {
+        return sql != null && matchesAny(SqlTokens.of(sql), ruleNames);
+    }
+
+    public boolean matchesAny(SqlTokens tokens, Collection<String> ruleNames) {
+        for (RuleDefinition rule : getAllRules()) {
+            if (ruleNames.contains(rule.name) && containsKeyword(tokens.sql(), rule) && matchesSomewhere(tokens, rule)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchesSomewhere(SqlTokens tokens, RuleDefinition rule) {
+        for (int t = 0; t < tokens.count(); t++) {
+            if (rule.match(tokens, t) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean allKeywordsAreWords(RuleDefinition rule) {
+        for (String keyword : rule.keywords) {
+            if (!SqlTokens.isWord(keyword)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containsKeyword(CharSequence text, RuleDefinition rule) {
+        for (String keyword : rule.keywords) {
+            if (containsIgnoreCase(text, keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Case-insensitive {@link String#contains(CharSequence)} without lower-casing a copy of {@code text}.
+     */
+    static boolean containsIgnoreCase(CharSequence text, String keyword) {
+        if (keyword.isEmpty()) {
+            return true;
+        }
+        char upper = Character.toUpperCase(keyword.charAt(0));
+        char lower = Character.toLowerCase(keyword.charAt(0));
+        int last = text.length() - keyword.length();
+        for (int i = 0; i <= last; i++) {
+            char ch = text.charAt(i);
+            if ((ch == upper || ch == lower) && regionMatchesIgnoreCase(text, i, keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean regionMatchesIgnoreCase(CharSequence text, int offset, String keyword) {
+        for (int i = 1; i < keyword.length(); i++) {
+            char a = text.charAt(offset + i);
+            char b = keyword.charAt(i);
+            if (a != b && Character.toUpperCase(a) != Character.toUpperCase(b)
+                    && Character.toLowerCase(a) != Character.toLowerCase(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public RewriteResult rewrite(String sql) {
         if (sql == null) {
             return new RewriteResult(null, List.of());
         }
-        String updated = sql;
-        List<String> applied = new ArrayList<>();
-        for (RuleDefinition rule : rewriteRules) {
-            Matcher matcher = rule.pattern.matcher(updated);
-            if (matcher.find()) {
-                updated = matcher.replaceAll(rule.replacement);
-                applied.add(rule.name);
+        return rewrite(SqlTokens.of(sql));
+    }
+
+    /**
+     * Replaces the matches of all rewrite rules in one pass over the tokens; where several rules could start at the
+     * same token the first in rule order wins. Applied rules are listed in rule order.
+     */
+    public RewriteResult rewrite(SqlTokens tokens) {
+        RuleMatchEvent event = new RuleMatchEvent();
+        event.begin();
+        String sql = tokens.sql();
+        StringBuilder updated = new StringBuilder(sql.length());
+        boolean[] applied = new boolean[rewriteRules.size()];
+        int t = 0;
+        while (t < tokens.count()) {
+            int end = -1;
+            for (int r = 0; r < rewriteRules.size() && end < 0; r++) {
+                RuleDefinition rule = rewriteRules.get(r);
+                end = rule.match(tokens, t);
+                if (end >= 0) {
+                    updated.append(rule.replacement);
+                    applied[r] = true;
+                }
+            }
+            if (end < 0) {
+                updated.append(sql, tokens.start(t), tokens.end(t));
+                end = t + 1;
+            }
+            t = end;
+        }
+        List<String> appliedRules = new ArrayList<>();
+        for (int r = 0; r < applied.length; r++) {
+            if (applied[r]) {
+                appliedRules.add(rewriteRules.get(r).name);
             }
         }
-        return new RewriteResult(updated, applied);
+        commit(event, "rewrite", sql, appliedRules.size());
+        return new RewriteResult(appliedRules.isEmpty() ? sql : updated.toString(), appliedRules);
+    }
+
+    private static void commit(RuleMatchEvent event, String operation, String sql, int matches) {
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.sqlLength = sql.length();
+            event.matches = matches;
+            event.commit();
+        }
     }
 
     private List<RuleDefinition> getAllRules() {
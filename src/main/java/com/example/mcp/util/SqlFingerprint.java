@@ -0,0 +1,59 @@
+package com.example.mcp.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Computes a stable identity for SQL text that ignores placeholder style, keyword case and whitespace layout, so the
+ * same statement copied from different sources maps to the same report entries.
+ */
+public final class SqlFingerprint {
+    private SqlFingerprint() {
+    }
+
+    public static String of(String sql) {
+        String canonical = canonicalize(ParamNormalizer.normalizeSql(sql));
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Collapses whitespace runs and upper-cases everything outside single-quoted literals.
+     */
+    static String canonicalize(String sql) {
+        StringBuilder canonical = new StringBuilder(sql.length());
+        boolean inLiteral = false;
+        boolean pendingSpace = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (inLiteral) {
+                canonical.append(c);
+                if (c == '\'') {
+                    inLiteral = false;
+                }
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                pendingSpace = canonical.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                canonical.append(' ');
+                pendingSpace = false;
+            }
+            if (c == '\'') {
+                inLiteral = true;
+                canonical.append(c);
+            } else {
+                canonical.append(Character.toUpperCase(c));
+            }
+        }
+        return canonical.toString();
+    }
+}
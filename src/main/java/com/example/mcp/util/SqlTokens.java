@@ -0,0 +1,173 @@
+package com.example.mcp.util;
+
+import java.util.Arrays;
+
+/**
+ * SQL text split once into tokens, stored as packed (type, start, end) triples into the source, so normalization,
+ * rule matching and whitespace collapsing of one query share a single lexing pass.
+ *
+ * <p>Tokens cover the text without gaps. Literals ({@code '...'}, {@code "..."}) honour doubled quotes, and
+ * literals and comments left open run to the end of the text. A parameter is {@code ?} followed by digits or
+ * {@code :} followed by a letter or underscore and identifier characters; words are runs of letters, digits,
+ * {@code _} and {@code $}; every other non-whitespace character is a symbol of its own.</p>
+ */
+public final class SqlTokens {
+    public static final int WHITESPACE = 0;
+    public static final int WORD = 1;
+    public static final int SYMBOL = 2;
+    public static final int STRING = 3;
+    public static final int QUOTED_IDENTIFIER = 4;
+    public static final int LINE_COMMENT = 5;
+    public static final int BLOCK_COMMENT = 6;
+    public static final int POSITIONAL_PARAMETER = 7;
+    public static final int NAMED_PARAMETER = 8;
+
+    private final String sql;
+    private int[] data;
+    private int count;
+
+    private SqlTokens(String sql) {
+        this.sql = sql;
+        this.data = new int[3 * (sql.length() / 4 + 4)];
+    }
+
+    public static SqlTokens of(String sql) {
+        if (sql == null) {
+            throw new IllegalArgumentException("sql must not be null");
+        }
+        SqlTokens tokens = new SqlTokens(sql);
+        tokens.lex();
+        return tokens;
+    }
+
+    public String sql() {
+        return sql;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public int type(int index) {
+        return data[3 * index];
+    }
+
+    public int start(int index) {
+        return data[3 * index + 1];
+    }
+
+    public int end(int index) {
+        return data[3 * index + 2];
+    }
+
+    public String text(int index) {
+        return sql.substring(start(index), end(index));
+    }
+
+    /**
+     * Whether the token's text equals {@code text}, ignoring case, without copying it.
+     */
+    public boolean textEqualsIgnoreCase(int index, String text) {
+        int start = start(index);
+        return end(index) - start == text.length() && sql.regionMatches(true, start, text, 0, text.length());
+    }
+
+    private void lex() {
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            char next = i + 1 < length ? sql.charAt(i + 1) : '\0';
+            int end;
+            int type;
+            if (c == '-' && next == '-') {
+                int newline = sql.indexOf('\n', i + 2);
+                end = newline < 0 ? length : newline + 1;
+                type = LINE_COMMENT;
+            } else if (c == '/' && next == '*') {
+                int close = sql.indexOf("*/", i + 2);
+                end = close < 0 ? length : close + 2;
+                type = BLOCK_COMMENT;
+            } else if (c == '\'' || c == '"') {
+                end = quotedEnd(c, i + 1);
+                type = c == '\'' ? STRING : QUOTED_IDENTIFIER;
+            } else if (c == '?' && Character.isDigit(next)) {
+                end = i + 2;
+                while (end < length && Character.isDigit(sql.charAt(end))) {
+                    end++;
+                }
+                type = POSITIONAL_PARAMETER;
+            } else if (c == ':' && (Character.isLetter(next) || next == '_')) {
+                end = identifierEnd(i + 2);
+                type = NAMED_PARAMETER;
+            } else if (Character.isWhitespace(c)) {
+                end = i + 1;
+                while (end < length && Character.isWhitespace(sql.charAt(end))) {
+                    end++;
+                }
+                type = WHITESPACE;
+            } else if (isIdentifierPart(c)) {
+                end = identifierEnd(i + 1);
+                type = WORD;
+            } else {
+                end = i + 1;
+                type = SYMBOL;
+            }
+            add(type, i, end);
+            i = end;
+        }
+    }
+
+    private int quotedEnd(char quote, int from) {
+        int i = from;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == quote) {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private int identifierEnd(int from) {
+        int i = from;
+        while (i < sql.length() && isIdentifierPart(sql.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Whether {@code text} is a single non-empty word, which Java source cannot split across literals or lines
+     * without also splitting the word in the SQL.
+     */
+    static boolean isWord(String text) {
+        if (text.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (!isIdentifierPart(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean isIdentifierPart(char ch) {
+        return Character.isLetterOrDigit(ch) || ch == '_' || ch == '$';
+    }
+
+    private void add(int type, int start, int end) {
+        if (3 * count + 3 > data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        data[3 * count] = type;
+        data[3 * count + 1] = start;
+        data[3 * count + 2] = end;
+        count++;
+    }
+}
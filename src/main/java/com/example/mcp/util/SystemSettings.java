@@ -0,0 +1,49 @@
+package com.example.mcp.util;
+
+/**
+ * Reads {@code h2sqlmcp.*} tuning options from system properties, falling back to defaults on absent or malformed
+ * values.
+ */
+public final class SystemSettings {
+    public static final String PREFIX = "h2sqlmcp.";
+
+    private SystemSettings() {
+    }
+
+    public static String stringValue(String key, String defaultValue) {
+        String value = System.getProperty(PREFIX + key);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    public static int intValue(String key, int defaultValue) {
+        String value = stringValue(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public static long longValue(String key, long defaultValue) {
+        String value = stringValue(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public static boolean booleanValue(String key, boolean defaultValue) {
+        String value = stringValue(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value);
+    }
+}
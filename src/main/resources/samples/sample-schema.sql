@@ -0,0 +1,12 @@
+CREATE TABLE users (
+    id BIGINT PRIMARY KEY,
+    name VARCHAR(100),
+    email VARCHAR(200),
+    status VARCHAR(1),
+    created_at TIMESTAMP
+);
+CREATE TABLE archived_users (
+    id BIGINT PRIMARY KEY,
+    status VARCHAR(1)
+);
+CREATE INDEX ix_users_status ON users (status);
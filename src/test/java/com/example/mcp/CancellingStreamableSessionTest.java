@@ -0,0 +1,70 @@
+package com.example.mcp;
+
+import io.modelcontextprotocol.json.TypeRef;
+import io.modelcontextprotocol.spec.McpSchema;
+import io.modelcontextprotocol.spec.McpStreamableServerSession;
+import io.modelcontextprotocol.spec.McpStreamableServerTransport;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CancellingStreamableSessionTest {
+
+    @Test
+    void cancelNotificationStopsTheCallAndClosesItsResponseStream() {
+        AtomicBoolean handlingCancelled = new AtomicBoolean();
+        McpStreamableServerSession sdkSession = new McpStreamableServerSession("session", null, null, Duration.ZERO,
+                Map.of(), Map.of()) {
+            @Override
+            public Mono<Void> responseStream(McpSchema.JSONRPCRequest request, McpStreamableServerTransport transport) {
+                return Mono.<Void>never().doOnCancel(() -> handlingCancelled.set(true));
+            }
+        };
+        CancellingStreamableSession session = new CancellingStreamableSession(sdkSession);
+        RecordingTransport transport = new RecordingTransport();
+        AtomicBoolean completed = new AtomicBoolean();
+
+        session.responseStream(new McpSchema.JSONRPCRequest("2.0", McpSchema.METHOD_TOOLS_CALL, 7, Map.of()), transport)
+                .subscribe(null, null, () -> completed.set(true));
+        session.accept(new McpSchema.JSONRPCNotification("2.0", "notifications/cancelled", Map.of("requestId", 8)))
+                .block();
+        assertFalse(completed.get());
+        assertFalse(transport.closed.get());
+
+        session.accept(new McpSchema.JSONRPCNotification("2.0", "notifications/cancelled", Map.of("requestId", 7)))
+                .block();
+        assertTrue(handlingCancelled.get());
+        assertTrue(completed.get());
+        assertTrue(transport.closed.get());
+    }
+
+    private static final class RecordingTransport implements McpStreamableServerTransport {
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        @Override
+        public Mono<Void> sendMessage(McpSchema.JSONRPCMessage message, String messageId) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<Void> sendMessage(McpSchema.JSONRPCMessage message) {
+            return Mono.empty();
+        }
+
+        @Override
+        public <T> T unmarshalFrom(Object data, TypeRef<T> typeRef) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Mono<Void> closeGracefully() {
+            return Mono.fromRunnable(() -> closed.set(true));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.mcp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class McpServerHttpTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    @Test
+    void answersInitializeAndToolCallOverStreamableHttp() throws Exception {
+        McpServer server = new McpServer();
+        McpServer.HttpEndpoint endpoint = server.openHttp("127.0.0.1", 0);
+        try {
+            URI uri = URI.create("http://127.0.0.1:" + endpoint.http().port() + "/mcp");
+
+            ObjectNode initialize = request(1, "initialize");
+            ObjectNode params = initialize.putObject("params");
+            params.put("protocolVersion", "2025-06-18");
+            params.putObject("capabilities");
+            params.putObject("clientInfo").put("name", "test").put("version", "1");
+            HttpResponse<String> initialized = post(uri, null, initialize);
+            assertEquals(200, initialized.statusCode(), initialized.body());
+            String sessionId = initialized.headers().firstValue("mcp-session-id").orElse(null);
+            assertNotNull(sessionId);
+            assertTrue(readMessage(initialized.body()).path("result").has("serverInfo"));
+
+            ObjectNode notification = mapper.createObjectNode().put("jsonrpc", "2.0")
+                    .put("method", "notifications/initialized");
+            assertEquals(202, post(uri, sessionId, notification).statusCode());
+
+            ObjectNode call = request(2, "tools/call");
+            call.putObject("params").put("name", "sql.rewrite").putObject("arguments")
+                    .put("sql", "SELECT NVL(name, 'n/a') FROM users");
+            HttpResponse<String> called = post(uri, sessionId, call);
+            assertEquals(200, called.statusCode(), called.body());
+            JsonNode result = readMessage(called.body()).get("result");
+            assertEquals(2, readMessage(called.body()).get("id").asInt());
+            assertFalse(result.path("isError").asBoolean(), result.toString());
+            assertTrue(result.get("structuredContent").toString().contains("COALESCE"), result.toString());
+        } finally {
+            endpoint.server().closeGracefully().block(Duration.ofSeconds(5));
+            server.releaseResources();
+            endpoint.http().close();
+        }
+    }
+
+    private ObjectNode request(int id, String method) {
+        return mapper.createObjectNode().put("jsonrpc", "2.0").put("id", id).put("method", method);
+    }
+
+    private HttpResponse<String> post(URI uri, String sessionId, JsonNode body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(10))
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json, text/event-stream")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()));
+        if (sessionId != null) {
+            request.header("mcp-session-id", sessionId);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * The JSON-RPC message of a response, sent either as plain JSON or as the data of a server-sent event.
+     */
+    private JsonNode readMessage(String body) throws Exception {
+        if (body.trim().startsWith("{")) {
+            return mapper.readTree(body);
+        }
+        for (String line : body.split("\n")) {
+            if (line.startsWith("data:")) {
+                return mapper.readTree(line.substring("data:".length()));
+            }
+        }
+        throw new AssertionError("No message in response: " + body);
+    }
+}
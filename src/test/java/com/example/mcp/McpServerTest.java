@@ -0,0 +1,69 @@
+package com.example.mcp;
+
+import com.example.mcp.jfr.ToolCallEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.modelcontextprotocol.json.McpJsonMapper;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class McpServerTest {
+    private static final String STRUCTURED_ONLY = "h2sqlmcp.result.structuredOnly";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @AfterEach
+    void clearSettings() {
+        System.clearProperty(STRUCTURED_ONLY);
+    }
+
+    @Test
+    void carriesTheSameJsonAsTextAndStructuredContent() throws Exception {
+        ObjectNode result = sampleResult();
+
+        JsonNode wire = toWire(new McpServer(), result);
+
+        assertFalse(wire.path("isError").asBoolean());
+        assertEquals(result, wire.get("structuredContent"));
+        assertEquals(1, wire.get("content").size());
+        assertEquals("text", wire.get("content").get(0).get("type").asText());
+        assertEquals(result, mapper.readTree(wire.get("content").get(0).get("text").asText()));
+    }
+
+    @Test
+    void dropsTheTextCopyWhenStructuredOnly() throws Exception {
+        System.setProperty(STRUCTURED_ONLY, "true");
+        ObjectNode result = sampleResult();
+
+        JsonNode wire = toWire(new McpServer(), result);
+
+        assertEquals(result, wire.get("structuredContent"));
+        assertTrue(wire.path("content").isEmpty());
+    }
+
+    private ObjectNode sampleResult() {
+        ObjectNode result = mapper.createObjectNode();
+        result.put("sql", "SELECT \"name\" FROM users WHERE note = 'a\\nb'");
+        result.put("count", 2);
+        result.putArray("hits").addObject().put("rule", "NVL").put("match", "NVL(");
+        return result;
+    }
+
+    /**
+     * Serializes the call result the way the transport does and reads it back as a tree.
+     */
+    private JsonNode toWire(McpServer server, JsonNode result) throws Exception {
+        try {
+            McpSchema.CallToolResult callResult = server.toCallToolResult(result, new ToolCallEvent());
+            return mapper.readTree(McpJsonMapper.getDefault().writeValueAsString(callResult));
+        } finally {
+            server.releaseResources();
+        }
+    }
+}
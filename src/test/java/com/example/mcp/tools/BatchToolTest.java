@@ -0,0 +1,111 @@
+package com.example.mcp.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchToolTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void runsDependenciesFirstAndSkipsDependentsOfFailedEntries() throws Exception {
+        List<String> order = new CopyOnWriteArrayList<>();
+        ToolRegistry registry = new ToolRegistry();
+        registry.register(new SqlRewriteTool(mapper));
+        BatchTool batch = new BatchTool(mapper, registry, (tool, arguments, context) -> {
+            order.add(arguments.path("sql").asText());
+            return tool.call(arguments, context);
+        });
+
+        JsonNode arguments = mapper.readTree("""
+                {"calls": [
+                  {"id": "second", "tool": "sql.rewrite", "arguments": {"sql": "SELECT SYSDATE FROM DUAL"},
+                   "dependsOn": ["first"]},
+                  {"id": "first", "tool": "sql.rewrite", "arguments": {"sql": "SELECT NVL(a, b) FROM t"}},
+                  {"id": "broken", "tool": "sql.rewrite", "arguments": {}},
+                  {"id": "after-broken", "tool": "sql.rewrite", "arguments": {"sql": "SELECT 1"},
+                   "dependsOn": ["broken"]}
+                ]}
+                """);
+        JsonNode result = batch.call(arguments);
+
+        JsonNode results = result.get("results");
+        assertEquals(4, results.size());
+        assertEquals("second", results.get(0).get("id").asText());
+        assertEquals("SELECT CURRENT_TIMESTAMP", results.get(0).get("result").get("sql").asText());
+        assertTrue(order.indexOf("SELECT NVL(a, b) FROM t") < order.indexOf("SELECT SYSDATE FROM DUAL"));
+
+        assertFalse(results.get(2).get("ok").asBoolean());
+        assertEquals("'sql' is required", results.get(2).get("error").asText());
+        assertTrue(results.get(3).get("skipped").asBoolean());
+        assertFalse(order.contains("SELECT 1"));
+        assertEquals(2, result.get("failed").asInt());
+    }
+
+    @Test
+    void entriesSeeTheBatchCancellationAndTheBatchReportsProgress() throws Exception {
+        ToolRegistry registry = new ToolRegistry();
+        registry.register(new SqlRewriteTool(mapper));
+        AtomicBoolean cancelled = new AtomicBoolean();
+        List<Double> progress = new CopyOnWriteArrayList<>();
+        ToolContext context = new ToolContext() {
+            @Override
+            public boolean isCancelled() {
+                return cancelled.get();
+            }
+
+            @Override
+            public void progress(double value, Double total, String message) {
+                progress.add(value);
+            }
+        };
+        List<Boolean> seenByEntries = new CopyOnWriteArrayList<>();
+        BatchTool batch = new BatchTool(mapper, registry, (tool, arguments, entryContext) -> {
+            // The client cancels while the first entry runs.
+            cancelled.set(true);
+            seenByEntries.add(entryContext.isCancelled());
+            return tool.call(arguments, entryContext);
+        });
+
+        JsonNode result = batch.call(mapper.readTree("""
+                {"calls": [
+                  {"id": "first", "tool": "sql.rewrite", "arguments": {"sql": "SELECT 1"}},
+                  {"id": "second", "tool": "sql.rewrite", "arguments": {"sql": "SELECT 2"}, "dependsOn": ["first"]}
+                ]}
+                """), context);
+
+        assertEquals(List.of(true), seenByEntries);
+        assertTrue(result.get("results").get(1).get("skipped").asBoolean());
+        assertEquals(List.of(1.0, 2.0), progress);
+    }
+
+    @Test
+    void rejectsUnknownToolsAndDependencyCycles() throws Exception {
+        ToolRegistry registry = new ToolRegistry();
+        registry.register(new SqlRewriteTool(mapper));
+        BatchTool batch = new BatchTool(mapper, registry, Tool::call);
+
+        ObjectNode unknown = (ObjectNode) mapper.readTree("""
+                {"calls": [{"tool": "no.such.tool"}]}
+                """);
+        assertThrows(IllegalArgumentException.class, () -> batch.call(unknown));
+
+        ObjectNode cycle = (ObjectNode) mapper.readTree("""
+                {"calls": [
+                  {"id": "a", "tool": "sql.rewrite", "arguments": {"sql": "SELECT 1"}, "dependsOn": ["b"]},
+                  {"id": "b", "tool": "sql.rewrite", "arguments": {"sql": "SELECT 2"}, "dependsOn": ["a"]}
+                ]}
+                """);
+        assertThrows(IllegalArgumentException.class, () -> batch.call(cycle));
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.mcp.tools;
+
+import com.example.mcp.util.H2SchemaCache;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class H2CompatibilityMatrixToolTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final H2CompatibilityMatrixTool tool = new H2CompatibilityMatrixTool(mapper, new H2SchemaCache());
+
+    @Test
+    void reportsWhichConfigurationAcceptsEachStatement() throws Exception {
+        ObjectNode args = mapper.createObjectNode();
+        args.putArray("statements").add("SELECT SYSDATE FROM DUAL").add("SELECT 1");
+        ArrayNode configurations = args.putArray("configurations");
+        configurations.addObject().put("name", "oracle").put("jdbcUrl", "jdbc:h2:mem:matrix;MODE=Oracle");
+        configurations.addObject().put("name", "regular").put("jdbcUrl", "jdbc:h2:mem:matrix");
+
+        JsonNode result = tool.call(args);
+
+        assertEquals("oracle", result.get("bestConfiguration").asText());
+        assertEquals(2, result.get("configurations").get(0).get("accepted").asInt());
+        assertEquals(1, result.get("configurations").get(1).get("accepted").asInt());
+        JsonNode sysdate = result.get("statements").get(0);
+        assertEquals(mapper.createArrayNode().add("oracle"), sysdate.get("acceptedBy"));
+        assertFalse(sysdate.get("results").get("regular").get("ok").asBoolean());
+        assertTrue(sysdate.get("results").get("regular").get("diagnostics").has("message"));
+        assertEquals(2, result.get("statements").get(1).get("acceptedBy").size());
+    }
+
+    @Test
+    void reportsConfigurationsThatCannotBeOpened() throws Exception {
+        ObjectNode args = mapper.createObjectNode();
+        args.put("sql", "SELECT 1");
+        ArrayNode configurations = args.putArray("configurations");
+        configurations.addObject().put("name", "broken").put("jdbcUrl", "jdbc:h2:mem:matrix;NO_SUCH_SETTING=1");
+        configurations.addObject().put("name", "regular").put("jdbcUrl", "jdbc:h2:mem:matrix");
+
+        JsonNode result = tool.call(args);
+
+        assertEquals("regular", result.get("bestConfiguration").asText());
+        JsonNode broken = result.get("configurations").get(0);
+        assertTrue(broken.get("initError").asText().contains("NO_SUCH_SETTING"));
+        assertEquals(0, broken.get("accepted").asInt());
+        JsonNode statement = result.get("statements").get(0);
+        assertEquals(mapper.createArrayNode().add("regular"), statement.get("acceptedBy"));
+        assertFalse(statement.get("results").has("broken"));
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.mcp.tools;
+
+import com.example.mcp.util.H2SchemaCache;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class H2IndexAdvisorToolTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void suggestsIndexesThatRemoveTableScans() throws Exception {
+        Path schema = tempDir.resolve("schema-h2.sql");
+        Files.writeString(schema, "CREATE TABLE users(id INT PRIMARY KEY, status VARCHAR(10), name VARCHAR(20));\n");
+
+        ObjectMapper mapper = new ObjectMapper();
+        H2IndexAdvisorTool tool = new H2IndexAdvisorTool(mapper, new H2SchemaCache());
+        ObjectNode args = mapper.createObjectNode();
+        args.putArray("initSqlPaths").add(schema.toString());
+        ArrayNode queries = args.putArray("queries");
+        queries.add("SELECT * FROM users WHERE status = :status");
+        queries.addObject()
+                .put("id", "UserRepository#findByName")
+                .put("sqlNormalized", "SELECT * FROM users WHERE name LIKE '%' || ?");
+        queries.add("SELECT * FROM users WHERE id = ?1");
+
+        JsonNode result = tool.call(args);
+
+        assertEquals(3, result.get("analyzedQueries").asInt());
+        assertEquals(2, result.get("queriesWithTableScans").asInt());
+        JsonNode suggestions = result.get("suggestions");
+        assertEquals(1, suggestions.size());
+        assertEquals("CREATE INDEX IDX_USERS_STATUS ON users (status);", suggestions.get(0).get("statement").asText());
+        assertEquals("name", result.get("rejected").get(0).get("column").asText());
+
+        JsonNode repeated = tool.call(args);
+        assertEquals(suggestions, repeated.get("suggestions"), "validation indexes must not leak into the cached schema");
+    }
+
+    @Test
+    void validatesOnAPrivateSchemaWhilePreparesRun() throws Exception {
+        Path schema = tempDir.resolve("schema-h2.sql");
+        Files.writeString(schema, "CREATE TABLE users(id INT PRIMARY KEY, status VARCHAR(10), name VARCHAR(20));\n");
+        ObjectMapper mapper = new ObjectMapper();
+        H2SchemaCache cache = new H2SchemaCache();
+        H2IndexAdvisorTool advisor = new H2IndexAdvisorTool(mapper, cache);
+        H2PrepareTool prepare = new H2PrepareTool(mapper, cache);
+        ObjectNode adviseArgs = mapper.createObjectNode();
+        adviseArgs.putArray("initSqlPaths").add(schema.toString());
+        adviseArgs.putArray("queries").add("SELECT * FROM users WHERE status = ?1");
+        ObjectNode prepareArgs = mapper.createObjectNode();
+        prepareArgs.putArray("initSqlPaths").add(schema.toString());
+        prepareArgs.put("sql", "SELECT * FROM users WHERE status = ?");
+
+        AtomicBoolean advising = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> advisorRuns = executor.submit(() -> {
+                try {
+                    for (int i = 0; i < 20; i++) {
+                        assertEquals(1, advisor.call(adviseArgs).get("suggestions").size());
+                    }
+                } finally {
+                    advising.set(false);
+                }
+                return null;
+            });
+            Future<?> prepares = executor.submit(() -> {
+                do {
+                    assertTrue(prepare.call(prepareArgs).get("ok").asBoolean());
+                    try (H2SchemaCache.Schema shared = cache.acquire(H2PrepareTool.DEFAULT_JDBC_URL, "sa", "",
+                            List.of(schema));
+                         Statement statement = shared.connection().createStatement();
+                         ResultSet indexes = statement.executeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES"
+                                 + " WHERE INDEX_NAME LIKE 'MCP_ADVISOR_IDX_%'")) {
+                        indexes.next();
+                        assertEquals(0, indexes.getInt(1), "advisor indexes must not appear in the shared schema");
+                    }
+                } while (advising.get());
+                return null;
+            });
+            advisorRuns.get(60, TimeUnit.SECONDS);
+            prepares.get(60, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void leavesAFileDatabaseUntouched() throws Exception {
+        String url = "jdbc:h2:file:" + tempDir.resolve("app").toAbsolutePath();
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE users(id INT PRIMARY KEY, status VARCHAR(10))");
+            statement.execute("INSERT INTO users VALUES (1, 'NEW')");
+        }
+        Path extra = tempDir.resolve("extra-h2.sql");
+        Files.writeString(extra, "CREATE TABLE orders(id INT PRIMARY KEY, user_id INT);\n");
+        ObjectMapper mapper = new ObjectMapper();
+        H2IndexAdvisorTool tool = new H2IndexAdvisorTool(mapper, new H2SchemaCache());
+        ObjectNode args = mapper.createObjectNode();
+        args.put("jdbcUrl", url);
+        args.putArray("initSqlPaths").add(extra.toString());
+        args.putArray("queries")
+                .add("SELECT * FROM users WHERE status = ?1")
+                .add("SELECT * FROM orders WHERE user_id = ?1");
+
+        JsonNode result = tool.call(args);
+
+        assertEquals(2, result.get("suggestions").size());
+        try (Connection connection = DriverManager.getConnection(url + ";IFEXISTS=TRUE", "sa", "");
+             Statement statement = connection.createStatement();
+             ResultSet tables = statement.executeQuery("SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES"
+                     + " WHERE TABLE_SCHEMA = 'PUBLIC'")) {
+            assertTrue(tables.next());
+            assertEquals("USERS", tables.getString(1));
+            assertFalse(tables.next(), "init scripts must not run on the source database");
+        }
+        try (Connection connection = DriverManager.getConnection(url + ";IFEXISTS=TRUE", "sa", "");
+             Statement statement = connection.createStatement();
+             ResultSet indexes = statement.executeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES"
+                     + " WHERE INDEX_NAME LIKE 'MCP_ADVISOR_IDX_%'")) {
+            indexes.next();
+            assertEquals(0, indexes.getInt(1), "validation indexes must not be created in the source database");
+        }
+    }
+
+    @Test
+    void rejectsInputThatWouldDoMoreThanPlanOneStatement() {
+        ObjectMapper mapper = new ObjectMapper();
+        H2IndexAdvisorTool tool = new H2IndexAdvisorTool(mapper, new H2SchemaCache());
+
+        for (String sql : List.of("SELECT 1; DROP ALL OBJECTS", "ANALYZE DELETE FROM users")) {
+            ObjectNode args = mapper.createObjectNode();
+            args.putArray("queries").add(sql);
+            assertThrows(IllegalArgumentException.class, () -> tool.call(args), sql);
+        }
+        ObjectNode trailing = mapper.createObjectNode();
+        trailing.putArray("queries").add("SELECT 1; -- done");
+        JsonNode result = assertDoesNotThrow(() -> tool.call(trailing));
+        assertEquals(1, result.get("analyzedQueries").asInt());
+        assertFalse(result.has("failedQueries"));
+    }
+}
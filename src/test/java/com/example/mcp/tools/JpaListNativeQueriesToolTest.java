@@ -1,5 +1,6 @@
 package com.example.mcp.tools;
 
+import com.example.mcp.util.Metrics;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
@@ -9,9 +10,15 @@ import org.junit.jupiter.api.io.TempDir;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 class JpaListNativeQueriesToolTest {
@@ -86,6 +93,182 @@ class JpaListNativeQueriesToolTest {
         }
     }
 
+    @Test
+    void projectsRequestedFieldsAndSkipsUnusedAnalysis() throws Exception {
+        prepareRepository();
+
+        ObjectMapper mapper = new ObjectMapper();
+        JpaListNativeQueriesTool tool = new JpaListNativeQueriesTool(mapper);
+        ObjectNode args = mapper.createObjectNode();
+        args.putArray("rootDirs").add(tempDir.toString());
+        args.put("level", "inventory");
+
+        long normalizedBefore = phaseCount(Metrics.PHASE_NORMALIZE);
+        long ruleMatchesBefore = phaseCount(Metrics.PHASE_RULE_MATCH);
+        ArrayNode inventory = (ArrayNode) tool.call(args).get("queries");
+        assertEquals(4, inventory.size());
+        for (JsonNode query : inventory) {
+            assertEquals(List.of("id", "file", "repo", "method"), fieldNames(query));
+        }
+        assertEquals(normalizedBefore, phaseCount(Metrics.PHASE_NORMALIZE), "normalizer should not run");
+        assertEquals(ruleMatchesBefore, phaseCount(Metrics.PHASE_RULE_MATCH), "rule engine should not run");
+
+        args.remove("level");
+        args.putArray("fields").add("id").add("ruleHits");
+        ArrayNode hits = (ArrayNode) tool.call(args).get("queries");
+        assertEquals(4, hits.size());
+        for (JsonNode query : hits) {
+            assertEquals(List.of("id", "ruleHits"), fieldNames(query));
+        }
+        assertEquals(normalizedBefore, phaseCount(Metrics.PHASE_NORMALIZE), "normalizer should not run");
+    }
+
+    @Test
+    void compactFormatSharesRepeatedStrings() throws Exception {
+        prepareRepository();
+
+        ObjectMapper mapper = new ObjectMapper();
+        JpaListNativeQueriesTool tool = new JpaListNativeQueriesTool(mapper);
+        ObjectNode args = mapper.createObjectNode();
+        args.putArray("rootDirs").add(tempDir.toString());
+        args.put("format", "compact");
+
+        JsonNode result = tool.call(args);
+        assertEquals("compact", result.get("format").asText());
+        List<String> columns = new ArrayList<>();
+        result.get("columns").forEach(column -> columns.add(column.asText()));
+        assertEquals(List.of("id", "file", "repo", "method", "sqlRaw", "sqlNormalized", "placeholders", "ruleHits"),
+                columns);
+        JsonNode strings = result.get("strings");
+        ArrayNode rows = (ArrayNode) result.get("queries");
+        assertEquals(4, rows.size());
+        int fileIndex = rows.get(0).get(1).asInt();
+        for (JsonNode row : rows) {
+            assertEquals(fileIndex, row.get(1).asInt(), "all queries share one file entry");
+        }
+        assertEquals("src/main/java/com/example/demo/DemoRepository.java", strings.get(fileIndex).asText());
+        assertEquals("DemoRepository", strings.get(rows.get(0).get(2).asInt()).asText());
+
+        List<SqlInputs.SqlInput> inputs = SqlInputs.read(result);
+        assertEquals(4, inputs.size());
+        assertEquals("SELECT COUNT(*) FROM demo_records where numer=?", inputs.get(0).sql());
+    }
+
+    @Test
+    void spillsToNdjsonAboveThreshold() throws Exception {
+        prepareRepository();
+        Path spillDirectory = tempDir.resolve("spill");
+        System.setProperty("h2sqlmcp.scan.spillDirectory", spillDirectory.toString());
+        try {
+            ObjectMapper mapper = new ObjectMapper();
+            JpaListNativeQueriesTool tool = new JpaListNativeQueriesTool(mapper);
+            ObjectNode args = mapper.createObjectNode();
+            args.putArray("rootDirs").add(tempDir.resolve("src").toString());
+            args.put("spillThreshold", 2);
+
+            JsonNode result = tool.call(args);
+            assertEquals("file", result.get("output").asText());
+            assertEquals(4, result.get("queryCount").asInt());
+            Path spilled = Path.of(result.get("path").asText());
+            assertEquals(spillDirectory, spilled.getParent().getParent());
+            List<String> lines = Files.readAllLines(spilled);
+            assertEquals(4, lines.size());
+            assertEquals("DemoRepository#countAllNative", mapper.readTree(lines.get(0)).get("id").asText());
+
+            args.put("spillThreshold", 4);
+            assertEquals(4, tool.call(args).get("queries").size(), "stays inline up to the threshold");
+        } finally {
+            System.clearProperty("h2sqlmcp.scan.spillDirectory");
+        }
+    }
+
+    @Test
+    void stopsAtLimitAndHonoursCancellation() throws Exception {
+        prepareRepository();
+
+        ObjectMapper mapper = new ObjectMapper();
+        JpaListNativeQueriesTool tool = new JpaListNativeQueriesTool(mapper);
+        ObjectNode args = mapper.createObjectNode();
+        args.putArray("rootDirs").add(tempDir.toString());
+        args.put("level", "inventory");
+
+        args.put("limit", 2);
+        JsonNode limited = tool.call(args);
+        assertEquals(2, limited.get("queries").size());
+        assertTrue(limited.get("truncated").asBoolean());
+
+        args.put("limit", 10);
+        JsonNode complete = tool.call(args);
+        assertEquals(4, complete.get("queries").size());
+        assertFalse(complete.has("truncated"));
+
+        args.put("limit", 0);
+        assertThrows(IllegalArgumentException.class, () -> tool.call(args));
+
+        args.remove("limit");
+        ToolContext cancelled = new ToolContext() {
+            @Override
+            public boolean isCancelled() {
+                return true;
+            }
+
+            @Override
+            public void progress(double progress, Double total, String message) {
+            }
+        };
+        assertThrows(CancellationException.class, () -> tool.call(args, cancelled));
+    }
+
+    @Test
+    void filtersQueriesWhileScanning() throws Exception {
+        prepareRepository();
+
+        ObjectMapper mapper = new ObjectMapper();
+        JpaListNativeQueriesTool tool = new JpaListNativeQueriesTool(mapper);
+        ObjectNode args = mapper.createObjectNode();
+        args.putArray("rootDirs").add(tempDir.toString());
+        args.put("level", "inventory");
+
+        long normalizedBefore = phaseCount(Metrics.PHASE_NORMALIZE);
+        ObjectNode filter = args.putObject("filter");
+        filter.putArray("rules").add("CONNECT_BY_USAGE");
+        ArrayNode connectBy = (ArrayNode) tool.call(args).get("queries");
+        assertEquals(1, connectBy.size());
+        assertEquals("DemoRepository#countAllNative1", connectBy.get(0).get("id").asText());
+
+        filter.removeAll();
+        filter.put("sqlContains", "DEMO_RECORDS");
+        assertEquals(2, tool.call(args).get("queries").size());
+        assertEquals(normalizedBefore, phaseCount(Metrics.PHASE_NORMALIZE), "normalizer should not run");
+
+        filter.removeAll();
+        filter.put("sqlPattern", "in\\s*\\(select");
+        assertEquals("DemoRepository#findWithSubselect", tool.call(args).get("queries").get(0).get("id").asText());
+
+        filter.removeAll();
+        filter.put("minPlaceholders", 1);
+        assertEquals(2, tool.call(args).get("queries").size());
+
+        filter.removeAll();
+        filter.put("repoPattern", "^Other");
+        assertEquals(0, tool.call(args).get("queries").size());
+
+        filter.removeAll();
+        filter.putArray("rules").add("NO_SUCH_RULE");
+        assertThrows(IllegalArgumentException.class, () -> tool.call(args));
+    }
+
+    private static long phaseCount(String name) {
+        Metrics.Timer.Snapshot snapshot = Metrics.snapshot().get(name);
+        return snapshot == null ? 0 : snapshot.latency().count();
+    }
+
+    private static List<String> fieldNames(JsonNode node) {
+        List<String> names = new ArrayList<>();
+        node.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+
     private void prepareRepository() throws Exception {
         Path sourceDir = tempDir.resolve("src/main/java/com/example/demo");
         Files.createDirectories(sourceDir);
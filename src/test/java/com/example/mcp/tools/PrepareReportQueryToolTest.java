@@ -0,0 +1,138 @@
+package com.example.mcp.tools;
+
+import com.example.mcp.util.PrepareReportStore;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrepareReportQueryToolTest {
+
+    @TempDir
+    Path tempDir;
+
+    private PrepareReportStore store;
+
+    @BeforeEach
+    void openStore() {
+        store = new PrepareReportStore(tempDir);
+    }
+
+    @AfterEach
+    void closeStore() throws Exception {
+        store.close();
+    }
+
+    @Test
+    void findsEarlierDiagnosisForReformattedSql() throws Exception {
+        store.insert(Instant.parse("2024-01-01T00:00:00Z"), "SELECT * FROM users WHERE id = :id", "missing table");
+        store.insert(Instant.parse("2024-01-02T00:00:00Z"), "SELECT 1 FROM DUAL", "fine");
+
+        ObjectMapper mapper = new ObjectMapper();
+        PrepareReportQueryTool tool = new PrepareReportQueryTool(mapper, store);
+        ObjectNode args = mapper.createObjectNode();
+        args.put("sql", "select *\n  from USERS where ID = ?1");
+
+        JsonNode result = tool.call(args);
+
+        assertEquals(1, result.get("entries").size());
+        assertEquals("missing table", result.get("entries").get(0).get("diagnosis").asText());
+
+        ObjectNode miss = mapper.createObjectNode();
+        miss.put("sql", "SELECT 2 FROM DUAL");
+        assertFalse(tool.call(miss).get("found").asBoolean());
+    }
+
+    @Test
+    void exportsEntriesInReportCsvLayout() throws Exception {
+        store.insert(Instant.parse("2024-01-01T00:00:00Z"), "SELECT \"x\" FROM t", "quoted");
+
+        ObjectMapper mapper = new ObjectMapper();
+        PrepareReportQueryTool tool = new PrepareReportQueryTool(mapper, store);
+        ObjectNode args = mapper.createObjectNode();
+        Path export = tempDir.resolve("export.csv");
+        args.put("exportCsvPath", "export.csv");
+
+        JsonNode result = tool.call(args);
+
+        assertEquals(1, result.get("exportedRows").asInt());
+        assertEquals(List.of(
+                "timestamp,sql,diagnosis",
+                "\"2024-01-01T00:00:00Z\",\"SELECT \"\"x\"\" FROM t\",\"quoted\""
+        ), Files.readAllLines(export));
+    }
+
+    @Test
+    void exportsOnlyToNewFilesInsideTheReportDirectory() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        PrepareReportQueryTool tool = new PrepareReportQueryTool(mapper, store);
+        Path existing = Files.writeString(tempDir.resolve("existing.csv"), "keep");
+
+        for (String path : List.of(existing.toAbsolutePath().toString(), "../escape.csv", "exports/../../escape.csv",
+                "existing.csv")) {
+            ObjectNode args = mapper.createObjectNode();
+            args.put("exportCsvPath", path);
+            assertThrows(IllegalArgumentException.class, () -> tool.call(args), path);
+        }
+        assertEquals("keep", Files.readString(existing));
+        assertFalse(Files.exists(tempDir.resolveSibling("escape.csv")));
+
+        ObjectNode nested = mapper.createObjectNode();
+        nested.put("exportCsvPath", "exports/report.csv");
+        JsonNode result = tool.call(nested);
+        assertEquals(tempDir.resolve("exports/report.csv").toAbsolutePath().normalize().toString(),
+                result.get("exportedPath").asText());
+        assertEquals(List.of("timestamp,sql,diagnosis"), Files.readAllLines(tempDir.resolve("exports/report.csv")));
+    }
+
+    @Test
+    void holdsTheDatabaseOnlyForTheDurationOfAnOperation() throws Exception {
+        store.insert(Instant.parse("2024-01-01T00:00:00Z"), "SELECT 1", "one").join();
+
+        String url = "jdbc:h2:file:" + tempDir.toAbsolutePath().normalize().resolve("prepare-report") + ";IFEXISTS=TRUE";
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement();
+             ResultSet sessions = statement.executeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SESSIONS")) {
+            sessions.next();
+            assertEquals(1, sessions.getInt(1));
+        }
+        assertEquals(1, store.findSince(Instant.EPOCH, 10).size());
+    }
+
+    @Test
+    void readsSeeEntriesStillQueuedForTheWriter() throws Exception {
+        List<CompletableFuture<PrepareReportStore.Entry>> queued = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            queued.add(store.insert(Instant.parse("2024-01-01T00:00:00Z").plusSeconds(i), "SELECT " + i, "n" + i));
+        }
+
+        assertEquals(200, store.findSince(Instant.EPOCH, 500).size());
+        Set<Long> ids = new HashSet<>();
+        for (CompletableFuture<PrepareReportStore.Entry> entry : queued) {
+            assertTrue(entry.isDone());
+            ids.add(entry.join().id());
+        }
+        assertEquals(200, ids.size());
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.mcp.tools;
+
+import com.example.mcp.util.GroupCommitAppender;
+import com.example.mcp.util.PrepareReportStore;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class PrepareReportToolTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void returnsOnceTheRowIsQueuedAndWritesItInTheBackground() throws Exception {
+        Path report = tempDir.resolve("prepare-report.csv");
+        Path unwritable = Files.createDirectory(tempDir.resolve("directory.csv"));
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode args = mapper.createObjectNode().put("sql", "SELECT 1 FROM DUAL").put("diagnosis", "fine");
+
+        try (PrepareReportStore store = new PrepareReportStore(tempDir.resolve("store"))) {
+            JsonNode queued;
+            JsonNode failed;
+            try (PrepareReportTool written = new PrepareReportTool(mapper, () -> store, () -> appender(report));
+                 PrepareReportTool failing = new PrepareReportTool(mapper, () -> store, () -> appender(unwritable))) {
+                queued = written.call(args);
+                failed = failing.call(args);
+            }
+
+            assertEquals("queued", queued.get("csv").asText());
+            assertEquals("queued", queued.get("stored").asText());
+            List<String> lines = Files.readAllLines(report);
+            assertEquals(2, lines.size());
+            assertEquals("timestamp,sql,diagnosis", lines.get(0));
+            assertTrue(lines.get(1).endsWith(",\"SELECT 1 FROM DUAL\",\"fine\""), lines.get(1));
+            assertEquals("queued", failed.get("csv").asText(), "a failing CSV write does not fail the call");
+            assertEquals(2, store.findByFingerprint(failed.get("fingerprint").asText(), 10).size(),
+                    "the store keeps the entry even when the CSV write fails");
+        }
+    }
+
+    @Test
+    void reportsTheCsvAsDisabledWithoutAnAppender() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode args = mapper.createObjectNode().put("sql", "SELECT 1 FROM DUAL").put("diagnosis", "fine");
+
+        try (PrepareReportStore store = new PrepareReportStore(tempDir.resolve("store"));
+             PrepareReportTool tool = new PrepareReportTool(mapper, () -> store, null)) {
+            JsonNode result = tool.call(args);
+            assertEquals("disabled", result.get("csv").asText());
+            assertFalse(result.has("reportPath"));
+        }
+    }
+
+    @Test
+    void createsNeitherStoreNorAppenderUntilCalled() {
+        PrepareReportTool tool = new PrepareReportTool(new ObjectMapper(),
+                () -> fail("store created early"), () -> fail("appender created early"));
+
+        assertEquals("h2.prepare.report", tool.getName());
+        assertTrue(tool.getInputSchema().has("properties"));
+        tool.close();
+    }
+
+    private static GroupCommitAppender appender(Path file) {
+        return new GroupCommitAppender(file, "timestamp,sql,diagnosis\n", 16, 4, Duration.ZERO, Duration.ofSeconds(1),
+                GroupCommitAppender.FsyncPolicy.NONE, null);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.mcp.tools;
+
+import com.example.mcp.model.Placeholder;
+import com.example.mcp.model.QueryItem;
+import com.example.mcp.model.RuleHit;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueryCatalogTest {
+
+    @Test
+    void returnsQueriesEqualToTheOnesAdded() {
+        List<QueryItem> items = List.of(
+                new QueryItem("OrderRepository#byStatus", "src/OrderRepository.java", "OrderRepository", "byStatus",
+                        "SELECT NVL(total, 0) FROM orders WHERE status IN :statuses AND id = ?1 FROM DUAL",
+                        "SELECT NVL(total, 0) FROM orders WHERE status IN (?) AND id = ? FROM DUAL",
+                        List.of(new Placeholder("named", ":statuses"), new Placeholder("positional", "?1")),
+                        List.of(new RuleHit("NVL", "NVL("), new RuleHit("FROM_DUAL", "FROM DUAL"))),
+                new QueryItem("OrderRepository", "src/OrderRepository.java", "OrderRepository", null,
+                        "SELECT 1", "SELECT 1", List.of(), List.of()),
+                new QueryItem("Legacy#raw", "src/Legacy.java", "Legacy", "raw",
+                        "SELECT * FROM t WHERE a = :a", null, List.of(), List.of()),
+                new QueryItem("custom-id", "src/Legacy.java", "Legacy", "raw",
+                        "SELECT :a", "SELECT ?",
+                        List.of(new Placeholder("named", ":b")), List.of(new RuleHit("R", "missing"))));
+
+        QueryCatalog catalog = new QueryCatalog();
+        for (QueryItem item : items) {
+            assertTrue(catalog.add(item));
+        }
+
+        assertEquals(items.size(), catalog.size());
+        for (int i = 0; i < items.size(); i++) {
+            assertEquals(items.get(i), catalog.get(i));
+        }
+    }
+
+    @Test
+    void dropsRepeatedIdAndFileEvenAfterClearing() {
+        QueryItem first = new QueryItem("Repo#find", "src/Repo.java", "Repo", "find",
+                "SELECT 1", "SELECT 1", List.of(), List.of());
+        QueryItem sameKey = new QueryItem("Repo#find", "src/Repo.java", "Repo", "find",
+                "SELECT 2", "SELECT 2", List.of(), List.of());
+        QueryItem otherFile = new QueryItem("Repo#find", "src/other/Repo.java", "Repo", "find",
+                "SELECT 1", "SELECT 1", List.of(), List.of());
+
+        QueryCatalog catalog = new QueryCatalog();
+        assertTrue(catalog.add(first));
+        assertFalse(catalog.add(sameKey));
+        assertEquals(1, catalog.size());
+
+        catalog.clearQueries();
+        assertEquals(0, catalog.size());
+        assertFalse(catalog.markSeen(sameKey));
+        assertTrue(catalog.markSeen(otherFile));
+        assertFalse(catalog.add(otherFile));
+    }
+}
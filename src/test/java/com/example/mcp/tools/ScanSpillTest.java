@@ -0,0 +1,85 @@
+package com.example.mcp.tools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScanSpillTest {
+    private static final FileTime LONG_AGO = FileTime.from(Instant.now().minus(Duration.ofDays(1)));
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @BeforeEach
+    void useTempSpillDirectory() {
+        System.setProperty("h2sqlmcp.scan.spillDirectory", tempDir.toString());
+        System.setProperty("h2sqlmcp.scan.spillRetentionMinutes", "60");
+    }
+
+    @AfterEach
+    void clearSettings() {
+        System.clearProperty("h2sqlmcp.scan.spillDirectory");
+        System.clearProperty("h2sqlmcp.scan.spillRetentionMinutes");
+    }
+
+    @Test
+    void writesIntoADirectoryOfItsOwnProcess() throws Exception {
+        try (ScanSpill spill = ScanSpill.create(mapper)) {
+            assertEquals(tempDir.resolve("process-" + ProcessHandle.current().pid()).toAbsolutePath(),
+                    spill.file().getParent());
+        }
+    }
+
+    @Test
+    void prunesOnlyClosedFilesOlderThanTheRetention() throws Exception {
+        ScanSpill inProgress = ScanSpill.create(mapper);
+        inProgress.write(mapper.createObjectNode().put("id", "Repo#find"));
+        Files.setLastModifiedTime(inProgress.file(), LONG_AGO);
+        Path recent;
+        try (ScanSpill returned = ScanSpill.create(mapper)) {
+            recent = returned.file();
+        }
+        Path expired;
+        try (ScanSpill old = ScanSpill.create(mapper)) {
+            expired = old.file();
+        }
+        Files.setLastModifiedTime(expired, LONG_AGO);
+
+        try (ScanSpill ignored = ScanSpill.create(mapper)) {
+            assertTrue(Files.exists(inProgress.file()), "a spill still being written must survive");
+            assertTrue(Files.exists(recent), "a spill within the retention must survive");
+            assertFalse(Files.exists(expired));
+        }
+
+        inProgress.close();
+        assertEquals(1, Files.readAllLines(inProgress.file()).size());
+    }
+
+    @Test
+    void removesExpiredFilesAndEmptyDirectoriesOfExitedProcesses() throws Exception {
+        Path exited = Files.createDirectory(tempDir.resolve("process-" + Long.MAX_VALUE));
+        Path expired = Files.writeString(exited.resolve("scan-old.ndjson"), "{}\n");
+        Files.setLastModifiedTime(expired, LONG_AGO);
+        Path other = Files.createDirectory(tempDir.resolve("process-" + (Long.MAX_VALUE - 1)));
+        Path fresh = Files.writeString(other.resolve("scan-new.ndjson"), "{}\n");
+
+        try (ScanSpill ignored = ScanSpill.create(mapper)) {
+            assertFalse(Files.exists(exited));
+            assertTrue(Files.exists(fresh));
+        }
+    }
+}
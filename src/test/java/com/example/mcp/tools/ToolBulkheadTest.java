@@ -0,0 +1,31 @@
+package com.example.mcp.tools;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ToolBulkheadTest {
+
+    @Test
+    void rejectsCallsBeyondRunningAndQueuedSlots() throws Exception {
+        ToolBulkhead bulkhead = new ToolBulkhead(1, 1);
+
+        assertTrue(bulkhead.tryEnter());
+        bulkhead.awaitTurn();
+        assertTrue(bulkhead.tryEnter());
+        assertFalse(bulkhead.tryEnter());
+        assertEquals(1, bulkhead.running());
+        assertEquals(1, bulkhead.queued());
+
+        bulkhead.leave();
+        bulkhead.awaitTurn();
+        assertTrue(bulkhead.tryEnter());
+        bulkhead.abandon();
+        bulkhead.leave();
+
+        assertEquals(0, bulkhead.running());
+        assertEquals(0, bulkhead.queued());
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.mcp.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GroupCommitAppenderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void writesHeaderOnceAndDrainsQueueOnClose() throws Exception {
+        Path file = tempDir.resolve("report.csv");
+        GroupCommitAppender appender = new GroupCommitAppender(file, "h\n", 16, 4, Duration.ofMillis(1),
+                Duration.ofSeconds(1), GroupCommitAppender.FsyncPolicy.BATCH, null);
+        for (int i = 0; i < 10; i++) {
+            appender.append("row" + i + "\n");
+        }
+        appender.close();
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(11, lines.size());
+        assertEquals("h", lines.get(0));
+        assertEquals("row9", lines.get(10));
+        assertThrows(IllegalStateException.class, () -> appender.append("late\n"));
+    }
+
+    @Test
+    void rotatesIntoGzipArchivesAndKeepsHeaderInNewSegment() throws Exception {
+        Path file = tempDir.resolve("report.csv");
+        FileRotation.Policy policy = new FileRotation.Policy(20, Duration.ZERO, 2);
+        for (int i = 0; i < 5; i++) {
+            GroupCommitAppender appender = new GroupCommitAppender(file, "h\n", 16, 1, Duration.ZERO,
+                    Duration.ofSeconds(1), GroupCommitAppender.FsyncPolicy.NONE, policy);
+            appender.append("0123456789" + i + "\n");
+            appender.close();
+        }
+
+        assertEquals(List.of("h", "01234567894"), Files.readAllLines(file));
+        try (var archives = Files.list(tempDir)) {
+            assertEquals(2, archives.filter(path -> path.toString().endsWith(".gz")).count());
+        }
+    }
+
+    @Test
+    void rotatesByAgeWhileTheFileKeepsBeingWritten() throws Exception {
+        Path file = tempDir.resolve("report.csv");
+        FileRotation.Policy policy = new FileRotation.Policy(0, Duration.ofMillis(300), 10);
+        GroupCommitAppender appender = new GroupCommitAppender(file, "h\n", 16, 1, Duration.ZERO,
+                Duration.ofSeconds(1), GroupCommitAppender.FsyncPolicy.NONE, policy);
+        for (int i = 0; i < 10; i++) {
+            appender.append("row" + i + "\n").get();
+            Thread.sleep(100);
+        }
+        appender.close();
+
+        try (var archives = Files.list(tempDir)) {
+            assertTrue(archives.anyMatch(path -> path.toString().endsWith(".gz")));
+        }
+        assertEquals("h", Files.readAllLines(file).get(0));
+    }
+}
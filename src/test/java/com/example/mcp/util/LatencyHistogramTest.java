@@ -0,0 +1,42 @@
+package com.example.mcp.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketsCoverTheirValuesWithinOneEighth() {
+        for (long value : new long[]{0, 1, 7, 8, 9, 15, 16, 1_000, 123_456_789L, Long.MAX_VALUE}) {
+            long upper = LatencyHistogram.upperBound(LatencyHistogram.indexOf(value));
+            assertTrue(upper >= value, "upper bound below " + value);
+            assertTrue(upper - value <= value / 8, "bucket too wide for " + value);
+        }
+    }
+
+    @Test
+    void reportsPercentilesAndMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1_000; i++) {
+            histogram.record(i * 1_000L);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(1_000, snapshot.count());
+        assertEquals(1_000_000L, snapshot.max());
+        assertWithinEighth(500_000L, snapshot.p50());
+        assertWithinEighth(900_000L, snapshot.p90());
+        assertWithinEighth(990_000L, snapshot.p99());
+
+        histogram.reset();
+        assertEquals(0, histogram.snapshot().count());
+    }
+
+    private static void assertWithinEighth(long expected, long actual) {
+        assertTrue(actual >= expected && actual - expected <= expected / 8,
+                "expected ~" + expected + " but was " + actual);
+    }
+}
@@ -50,4 +50,38 @@ class ParamNormalizerTest {
 
         assertEquals(sql, result.sql());
     }
+
+    @Test
+    void recordsPlaceholderSpansIntoTheSource() {
+        String sql = "select * from t where a = ?1 and b in :ids /* :c */ and d = ':e' and f in (:g)";
+        ParamNormalizer.Spans spans = new ParamNormalizer.Spans();
+
+        String normalized = ParamNormalizer.normalize(sql, spans);
+
+        assertEquals("select * from t where a = ? and b in (?) /* :c */ and d = ':e' and f in (?)", normalized);
+        assertEquals(3, spans.count());
+        assertEquals(List.of("?1", ":ids", ":g"),
+                List.of(sql.substring(spans.start(0), spans.end(0)), sql.substring(spans.start(1), spans.end(1)),
+                        sql.substring(spans.start(2), spans.end(2))));
+        assertEquals(List.of("positional", "named", "named"), List.of(spans.kind(0), spans.kind(1), spans.kind(2)));
+        assertEquals(List.of(false, true, false), List.of(spans.wrapped(0), spans.wrapped(1), spans.wrapped(2)));
+        assertEquals(ParamNormalizer.normalize(sql).placeholders(), spans.toPlaceholders());
+    }
+
+    @Test
+    void handlesThousandsOfPlaceholders() {
+        StringBuilder sql = new StringBuilder("select * from t where a in ?1");
+        StringBuilder expected = new StringBuilder("select * from t where a in (?)");
+        for (int i = 0; i < 5000; i++) {
+            sql.append(" or b IN :p").append(i).append(" or c = ?").append(i + 2);
+            expected.append(" or b IN (?) or c = ?");
+        }
+
+        ParamNormalizer.Result result = ParamNormalizer.normalize(sql.toString());
+
+        assertEquals(expected.toString(), result.sql());
+        assertEquals(10001, result.placeholders().size());
+        assertEquals(":p4999", result.placeholders().get(9999).token());
+        assertEquals(result.sql(), ParamNormalizer.normalizeSql(sql.toString()));
+    }
 }
@@ -0,0 +1,120 @@
+package com.example.mcp.util;
+
+import com.example.mcp.model.Placeholder;
+import com.example.mcp.model.QueryItem;
+import com.example.mcp.model.RuleHit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueryExtractorTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void mappedFilesYieldTheSameQueries() throws Exception {
+        Path file = tempDir.resolve("OrderRepository.java");
+        Files.writeString(file, """
+                public interface OrderRepository {
+                    @Query(value = "SELECT NVL(total, 0) FROM orders WHERE ROWNUM <= ?1 -- café", nativeQuery = true)
+                    List<Object> firstOrders(int count);
+
+                    @Query(value = \"""
+                            SELECT id
+                              FROM orders
+                             WHERE status IN :statuses
+                            \""", nativeQuery = true)
+                    List<Long> byStatus(List<String> statuses);
+                }
+                """);
+
+        List<QueryItem> read = new QueryExtractor(new RuleEngine(), Long.MAX_VALUE).extract(file, "OrderRepository.java");
+        List<QueryItem> mapped = new QueryExtractor(new RuleEngine(), 0).extract(file, "OrderRepository.java");
+
+        assertEquals(2, read.size());
+        assertEquals(read, mapped);
+        assertEquals("OrderRepository#byStatus", mapped.get(1).id());
+    }
+
+    @Test
+    void skipsFilesWithoutNativeQueryFlag() throws Exception {
+        Path file = tempDir.resolve("JpqlRepository.java");
+        Files.writeString(file, """
+                public interface JpqlRepository {
+                    @Query("SELECT o FROM Order o")
+                    List<Order> all();
+                }
+                """);
+
+        assertTrue(new QueryExtractor(new RuleEngine()).extract(file, "JpqlRepository.java").isEmpty());
+    }
+
+    @Test
+    void prefiltersTheSourceOnlyOnSingleWords() throws Exception {
+        Path file = tempDir.resolve("UserRepository.java");
+        Files.writeString(file, """
+                public interface UserRepository {
+                    @Query(value = "SELECT * FROM\\u0020users u, roles r WHERE u.role_id = r.id(\\u002B)", nativeQuery = true)
+                    List<Object> withRoles();
+                }
+                """);
+        QueryExtractor extractor = new QueryExtractor(new RuleEngine());
+
+        QueryFilter sqlContains = new QueryFilter(Set.of(), "from users", null, null, 0);
+        QueryFilter rule = new QueryFilter(Set.of(RuleEngine.HINT_OLD_JOIN), null, null, null, 0);
+        QueryFilter missingWord = new QueryFilter(Set.of(), "accounts", null, null, 0);
+
+        assertEquals(1, extractor.extract(file, "UserRepository.java", QueryExtractor.Options.FULL, sqlContains).size());
+        assertEquals(1, extractor.extract(file, "UserRepository.java", QueryExtractor.Options.FULL, rule).size());
+        assertTrue(extractor.extract(file, "UserRepository.java", QueryExtractor.Options.FULL, missingWord).isEmpty());
+    }
+
+    @Test
+    void joinsConcatenatedLiteralsIntoOneQuery() throws Exception {
+        Path file = tempDir.resolve("UserRepository.java");
+        Files.writeString(file, """
+                public interface UserRepository {
+                    @Query(value = "SELECT NVL(name, '-') FROM users "
+                            + "WHERE id = :id", nativeQuery = true)
+                    List<Object> byId(long id);
+
+                    @Query(value = "SELECT id FROM users WHERE " + CONDITION, nativeQuery = true)
+                    List<Object> byCondition();
+                }
+                """);
+
+        List<QueryItem> items = new QueryExtractor(new RuleEngine()).extract(file, "UserRepository.java");
+
+        assertEquals(2, items.size());
+        QueryItem byId = items.get(0);
+        assertEquals("SELECT NVL(name, '-') FROM users WHERE id = :id", byId.sqlRaw());
+        assertEquals("SELECT NVL(name, '-') FROM users WHERE id = ?", byId.sqlNormalized());
+        assertEquals(List.of(new Placeholder("named", ":id")), byId.placeholders());
+        assertEquals(List.of(RuleEngine.RULE_NVL_TO_COALESCE), byId.ruleHits().stream().map(RuleHit::rule).toList());
+        assertEquals("SELECT id FROM users WHERE ", items.get(1).sqlRaw(), "stops at the first non-literal operand");
+    }
+
+    @Test
+    void filtersOnTheJoinedSql() throws Exception {
+        Path file = tempDir.resolve("UserRepository.java");
+        Files.writeString(file, """
+                public interface UserRepository {
+                    @Query(value = "SELECT * FROM " + "users", nativeQuery = true)
+                    List<Object> all();
+                }
+                """);
+        QueryFilter filter = new QueryFilter(Set.of(), "from users", null, null, 0);
+
+        List<QueryItem> items = new QueryExtractor(new RuleEngine())
+                .extract(file, "UserRepository.java", QueryExtractor.Options.FULL, filter);
+
+        assertEquals(List.of("UserRepository#all"), items.stream().map(QueryItem::id).toList());
+    }
+}
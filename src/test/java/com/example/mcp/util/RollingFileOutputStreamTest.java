@@ -0,0 +1,76 @@
+package com.example.mcp.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RollingFileOutputStreamTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void keepsEveryLineWhenTwoWritersShareAndRotateTheFile() throws Exception {
+        Path file = tempDir.resolve("server.log");
+        FileRotation.Policy policy = new FileRotation.Policy(200, Duration.ZERO, 100);
+        RollingFileOutputStream first = new RollingFileOutputStream(file, policy);
+        RollingFileOutputStream second = new RollingFileOutputStream(file, policy);
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            RollingFileOutputStream out = i % 2 == 0 ? first : second;
+            String line = "line-" + i + "-0123456789";
+            out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            expected.add(line);
+        }
+        first.close();
+        second.close();
+
+        List<String> lines = new ArrayList<>();
+        try (var files = Files.list(tempDir)) {
+            for (Path path : files.filter(path -> path.toString().endsWith(".gz")).toList()) {
+                lines.addAll(readGzip(path));
+            }
+        }
+        lines.addAll(Files.readAllLines(file));
+        lines.sort(null);
+        expected.sort(null);
+        assertEquals(expected, lines);
+    }
+
+    @Test
+    void rotatesByAgeWhileTheFileKeepsBeingWritten() throws Exception {
+        Path file = tempDir.resolve("server.log");
+        RollingFileOutputStream out = new RollingFileOutputStream(file,
+                new FileRotation.Policy(0, Duration.ofMillis(300), 10));
+        for (int i = 0; i < 10; i++) {
+            out.write(("line-" + i + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            Thread.sleep(100);
+        }
+        out.close();
+
+        try (var archives = Files.list(tempDir)) {
+            assertTrue(archives.anyMatch(path -> path.toString().endsWith(".gz")));
+        }
+    }
+
+    private static List<String> readGzip(Path path) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(path))) {
+            String text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            return text.isEmpty() ? List.of() : List.of(text.split("\n"));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.mcp.util;
+
+import com.example.mcp.model.RuleHit;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RuleEngineTest {
+    private final RuleEngine ruleEngine = new RuleEngine();
+
+    @Test
+    void reportsHitsPerRuleInTextOrder() {
+        List<RuleHit> hits = ruleEngine.findHits(
+                "SELECT NVL (a, 0), SYSDATE FROM t START WITH p IS NULL CONNECT\n  BY PRIOR id = p MINUS SELECT 1 FROM  DUAL");
+
+        assertEquals(List.of(
+                new RuleHit(RuleEngine.RULE_MINUS_TO_EXCEPT, "MINUS"),
+                new RuleHit(RuleEngine.RULE_NVL_TO_COALESCE, "NVL ("),
+                new RuleHit(RuleEngine.RULE_FROM_DUAL, "FROM  DUAL"),
+                new RuleHit(RuleEngine.RULE_SYSDATE, "SYSDATE"),
+                new RuleHit(RuleEngine.HINT_CONNECT_BY, "START WITH"),
+                new RuleHit(RuleEngine.HINT_CONNECT_BY, "CONNECT\n  BY")), hits);
+    }
+
+    @Test
+    void leavesLiteralsAndCommentsAlone() {
+        String sql = "SELECT 'a MINUS b', \"SYSDATE\" FROM t -- NVL(x)\nWHERE /* ROWNUM */ x = 1 MINUS SELECT 2 FROM DUAL";
+
+        RuleEngine.RewriteResult rewritten = ruleEngine.rewrite(sql);
+
+        assertEquals(
+                "SELECT 'a MINUS b', \"SYSDATE\" FROM t -- NVL(x)\nWHERE /* ROWNUM */ x = 1 EXCEPT SELECT 2",
+                rewritten.sql());
+        assertEquals(List.of(RuleEngine.RULE_MINUS_TO_EXCEPT, RuleEngine.RULE_FROM_DUAL), rewritten.appliedRules());
+        assertEquals(List.of(RuleEngine.RULE_MINUS_TO_EXCEPT, RuleEngine.RULE_FROM_DUAL),
+                ruleEngine.findHits(sql).stream().map(RuleHit::rule).toList());
+    }
+}
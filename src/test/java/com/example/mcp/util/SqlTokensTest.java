@@ -0,0 +1,43 @@
+package com.example.mcp.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SqlTokensTest {
+
+    @Test
+    void splitsSqlIntoTypedTokensWithoutGaps() {
+        String sql = "SELECT a$1, 'it''s' FROM \"T\" -- note\nWHERE x IN :ids AND y = ?12 /* c */";
+
+        SqlTokens tokens = SqlTokens.of(sql);
+
+        List<String> described = new ArrayList<>();
+        int expectedStart = 0;
+        for (int t = 0; t < tokens.count(); t++) {
+            assertEquals(expectedStart, tokens.start(t));
+            expectedStart = tokens.end(t);
+            if (tokens.type(t) != SqlTokens.WHITESPACE) {
+                described.add(tokens.type(t) + ":" + tokens.text(t));
+            }
+        }
+        assertEquals(sql.length(), expectedStart);
+        assertEquals(List.of("1:SELECT", "1:a$1", "2:,", "3:'it''s'", "1:FROM", "4:\"T\"", "5:-- note\n",
+                "1:WHERE", "1:x", "1:IN", "8::ids", "1:AND", "1:y", "2:=", "7:?12", "6:/* c */"), described);
+        assertTrue(tokens.textEqualsIgnoreCase(0, "select"));
+    }
+
+    @Test
+    void runsUnterminatedLiteralsAndCommentsToTheEnd() {
+        for (String sql : List.of("x = 'open", "x = \"open", "x = /* open", "x = -- open")) {
+            SqlTokens tokens = SqlTokens.of(sql);
+
+            assertEquals(sql.length(), tokens.end(tokens.count() - 1));
+            assertEquals(4, tokens.start(tokens.count() - 1));
+        }
+    }
+}